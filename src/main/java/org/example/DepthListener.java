@@ -0,0 +1,14 @@
+package org.example;
+
+/**
+ * Price-level changes from {@link EnhancedOrderBook}, for market data feeds
+ * that keep their own copy of the depth.
+ *
+ * Each call reports the change in resting quantity at one level: positive
+ * when an order rests there, negative when a resting order fills or is
+ * cancelled. A level whose running total reaches zero is gone. Callbacks run
+ * on the matching thread under the book lock and must only record the change.
+ */
+public interface DepthListener {
+    void onLevelChange(Order.Side side, long price, long quantityDelta);
+}
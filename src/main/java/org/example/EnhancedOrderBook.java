@@ -1,5 +1,8 @@
 package org.example;
 
+import org.example.journal.JournalReplicator;
+import org.example.risk.KillSwitch;
+import org.example.risk.PriceBands;
 import org.example.risk.RiskEngine;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -14,28 +17,58 @@ public class EnhancedOrderBook {
     private final TradeListener listener;
     private final OrderJournal journal;
     private final RiskEngine riskEngine;
+    private final String symbol;
+    private final int instrumentIndex;
+    private volatile OrderPipeline pipeline; // null: gateways check risk under the book lock
+    private volatile ExecutionListener executionListener;
+    private volatile DepthListener depthListener;
 
     private final AtomicLong totalOrders = new AtomicLong();
     private final AtomicLong totalTrades = new AtomicLong();
     private final AtomicLong rejectedOrders = new AtomicLong();
     private final long[] latencyBuckets = new long[100];
 
-    private double referenceMarketPrice = 100.0;
-
     public EnhancedOrderBook(TradeListener listener, RiskEngine riskEngine) {
+        this(listener, riskEngine, new OrderJournal());
+    }
+
+    /**
+     * @param journal event journal, or null to run without journaling
+     *                (offline replay and benchmarks)
+     */
+    public EnhancedOrderBook(TradeListener listener, RiskEngine riskEngine, OrderJournal journal) {
+        this(listener, riskEngine, journal, RiskEngine.DEFAULT_SYMBOL);
+    }
+
+    /**
+     * @param symbol instrument this book trades; orders are tagged with its
+     *               risk-engine id so positions and notional are kept per symbol
+     */
+    public EnhancedOrderBook(TradeListener listener, RiskEngine riskEngine, OrderJournal journal,
+                             String symbol) {
         this.listener = listener;
         this.riskEngine = riskEngine;
-        this.journal = new OrderJournal();
+        this.journal = journal;
+        this.symbol = symbol;
+        this.instrumentIndex = riskEngine.internInstrument(symbol);
+        riskEngine.getKillSwitch().addListener(this::pullOrders);
+    }
+
+    /**
+     * Gateway entry point: through the risk pipeline when one is attached,
+     * otherwise {@link #processOrder}.
+     */
+    public OrderResponse submitOrder(Order order) {
+        OrderPipeline pipeline = this.pipeline;
+        return pipeline != null ? pipeline.process(order) : processOrder(order);
     }
 
     public synchronized OrderResponse processOrder(Order order) {
         long startTime = System.nanoTime();
         totalOrders.incrementAndGet();
+        order.setInstrumentIndex(instrumentIndex);
 
-        // Convert String userId to long for risk engine
-        long userIdLong = Long.parseLong(order.getUserId());
-
-        RiskEngine.RiskCheckResult riskResult = riskEngine.checkOrder(order, referenceMarketPrice);
+        RiskEngine.RiskCheckResult riskResult = riskEngine.checkOrder(order);
 
         if (!riskResult.isApproved()) {
             rejectedOrders.incrementAndGet();
@@ -43,8 +76,53 @@ public class EnhancedOrderBook {
                     riskResult.getRejectCode(), riskResult.getRejectReason());
         }
 
-        journal.log(order);
+        return execute(order, startTime);
+    }
+
+    /**
+     * Match an order whose risk check already passed in the {@link OrderPipeline}
+     * risk stage, so its exposure is reserved. Only matching runs under the book
+     * lock. A kill switch that fired after the check still stops the order.
+     */
+    public synchronized OrderResponse processPreChecked(Order order) {
+        long startTime = System.nanoTime();
+        totalOrders.incrementAndGet();
+        if (riskEngine.isBlocked(order)) {
+            riskEngine.release(order);
+            rejectedOrders.incrementAndGet();
+            return OrderResponse.rejected(order.getId(), RiskEngine.RejectCode.KILL_SWITCH_ACTIVE.name(),
+                    RiskEngine.RejectCode.KILL_SWITCH_ACTIVE.describe(0, 0));
+        }
+        return execute(order, startTime);
+    }
+
+    /** Count an order the pipeline's risk stage rejected; it never reaches the lock. */
+    OrderResponse rejectPreChecked(Order order, RiskEngine.RiskCheckResult riskResult) {
+        totalOrders.incrementAndGet();
+        rejectedOrders.incrementAndGet();
+        return OrderResponse.rejected(order.getId(), riskResult.getRejectCode(), riskResult.getRejectReason());
+    }
+
+    /**
+     * Apply an order that the primary engine already risk-approved (replication
+     * standby). Skips the risk check but otherwise matches, journals and updates
+     * positions exactly like {@link #processOrder}.
+     */
+    public synchronized OrderResponse applyReplicated(Order order) {
+        long startTime = System.nanoTime();
+        totalOrders.incrementAndGet();
+        order.setInstrumentIndex(instrumentIndex);
+        riskEngine.reserve(order);
+        return execute(order, startTime);
+    }
+
+    private OrderResponse execute(Order order, long startTime) {
+        long journalSequence = journal != null ? journal.log(order) : -1;
         activeOrders.put(order.getId(), order);
+        ExecutionListener executions = executionListener;
+        if (executions != null) {
+            executions.onAccepted(order);
+        }
 
         List<Trade> trades = new ArrayList<>();
 
@@ -53,11 +131,7 @@ public class EnhancedOrderBook {
         } else {
             trades.addAll(match(order, buyOrders, sellOrders));
         }
-
-        // Update positions in risk engine using long userId
-        for (Trade trade : trades) {
-            riskEngine.updatePosition(order.getUserId(), order.getSide(), trade.quantity());
-        }
+        publishReferencePrices(trades);
 
         long latencyMicros = (System.nanoTime() - startTime) / 1000;
         if (latencyMicros < 100) {
@@ -74,7 +148,7 @@ public class EnhancedOrderBook {
             status = "PARTIAL";
         }
 
-        return OrderResponse.accepted(order.getId(), trades, status);
+        return OrderResponse.accepted(order.getId(), trades, status, journalSequence);
     }
 
     private List<Trade> match(Order incoming,
@@ -97,22 +171,40 @@ public class EnhancedOrderBook {
 
             long tradedQty = Math.min(incoming.getQuantity(), resting.getQuantity());
 
+            boolean incomingBuys = incoming.getSide() == Order.Side.BUY;
+            Order buyer = incomingBuys ? incoming : resting;
+            Order seller = incomingBuys ? resting : incoming;
+
             Trade trade = new Trade(
-                    incoming.getSide() == Order.Side.BUY ? incoming.getId() : resting.getId(),
-                    incoming.getSide() == Order.Side.SELL ? incoming.getId() : resting.getId(),
+                    buyer.getId(),
+                    seller.getId(),
                     bestPrice,
-                    tradedQty
+                    tradedQty,
+                    buyer.getUserId(),
+                    seller.getUserId(),
+                    System.currentTimeMillis()
             );
 
             trades.add(trade);
             totalTrades.incrementAndGet();
 
+            // Both sides move the traded quantity from open exposure to position
+            riskEngine.onFill(buyer, bestPrice, tradedQty);
+            riskEngine.onFill(seller, bestPrice, tradedQty);
+
             if (listener != null) {
                 listener.onTrade(trade);
             }
 
-            incoming.setQuantity(incoming.getQuantity() - tradedQty);
-            resting.setQuantity(resting.getQuantity() - tradedQty);
+            incoming.fill(bestPrice, tradedQty);
+            resting.fill(bestPrice, tradedQty);
+            levelChanged(resting.getSide(), bestPrice, -tradedQty);
+
+            ExecutionListener executions = executionListener;
+            if (executions != null) {
+                executions.onFill(resting, trade);
+                executions.onFill(incoming, trade);
+            }
 
             if (resting.getQuantity() == 0) {
                 queue.poll();
@@ -125,6 +217,7 @@ public class EnhancedOrderBook {
 
         if (incoming.getQuantity() > 0) {
             sameSide.computeIfAbsent(incoming.getPrice(), p -> new ArrayDeque<>()).add(incoming);
+            levelChanged(incoming.getSide(), incoming.getPrice(), incoming.getQuantity());
         } else {
             activeOrders.remove(incoming.getId());
         }
@@ -133,8 +226,27 @@ public class EnhancedOrderBook {
     }
 
     public synchronized boolean cancelOrder(long orderId) {
+        return cancel(orderId) != null;
+    }
+
+    private void cancelledUnsolicited(Order order, String reason) {
+        ExecutionListener executions = executionListener;
+        if (executions != null) {
+            executions.onCancelled(order, reason);
+        }
+    }
+
+    private void levelChanged(Order.Side side, long price, long quantityDelta) {
+        DepthListener depth = depthListener;
+        if (depth != null) {
+            depth.onLevelChange(side, price, quantityDelta);
+        }
+    }
+
+    /** Cancel a resting order and return it, with its final fills, or null if it was not resting. */
+    public synchronized Order cancel(long orderId) {
         Order order = activeOrders.remove(orderId);
-        if (order == null) return false;
+        if (order == null) return null;
 
         TreeMap<Long, Deque<Order>> book =
                 order.getSide() == Order.Side.BUY ? buyOrders : sellOrders;
@@ -145,28 +257,113 @@ public class EnhancedOrderBook {
             if (queue.isEmpty()) {
                 book.remove(order.getPrice());
             }
-            return removed;
+            if (removed) {
+                levelChanged(order.getSide(), order.getPrice(), -order.getQuantity());
+                riskEngine.release(order);
+                publishReferencePrices(Collections.emptyList());
+                if (journal != null) {
+                    journal.logCancel(orderId);
+                }
+            }
+            return removed ? order : null;
         }
-        return false;
+        return null;
     }
 
-    public synchronized OrderResponse modifyOrder(long orderId, long newPrice, long newQty) {
+    /**
+     * Cancel every resting order in a kill-switch scope. Runs under the book
+     * lock after the block flag is set, so no order in scope can be added
+     * once the sweep has started.
+     */
+    private synchronized void pullOrders(KillSwitch.Scope scope, int index) {
+        List<Long> pulled = new ArrayList<>();
+        for (Order order : activeOrders.values()) {
+            boolean inScope = switch (scope) {
+                case GLOBAL -> true;
+                case TRADER -> order.getTraderIndex() == index;
+                case SESSION -> order.getSessionIndex() == index;
+            };
+            if (inScope) pulled.add(order.getId());
+        }
+        int cancelled = 0;
+        String reason = "Kill switch " + scope;
+        for (long orderId : pulled) {
+            Order order = cancel(orderId);
+            if (order != null) {
+                cancelled++;
+                cancelledUnsolicited(order, reason);
+            }
+        }
+        System.out.printf("[OrderBook] %s kill switch pulled %d orders from %s%n", scope, cancelled, symbol);
+    }
+
+    public OrderResponse modifyOrder(long orderId, long newPrice, long newOrderQty) {
         Order old = activeOrders.get(orderId);
-        if (old == null) {
-            return OrderResponse.rejected(orderId, "ORDER_NOT_FOUND", "Order does not exist");
+        return modifyOrder(orderId, newPrice, newOrderQty, old != null ? old.getClientOrderId() : null);
+    }
+
+    /**
+     * Replace a resting order's price and total quantity ({@code newOrderQty}
+     * counts what has already filled, like FIX OrderQty on a replace). The
+     * replacement keeps the order id and its fills, rests with the remainder
+     * and goes by {@code clientOrderId} from now on.
+     *
+     * A modify is a cancel plus a new order: the original is cancelled under
+     * the book lock, then the replacement goes through {@link #submitOrder},
+     * so it is risk-checked on its trader's risk thread like any other order
+     * and the original's exposure is not counted twice. If the replacement is
+     * rejected the order is gone, and the owner is told with an unsolicited
+     * cancel. Must not be called with the book lock held.
+     */
+    public OrderResponse modifyOrder(long orderId, long newPrice, long newOrderQty, String clientOrderId) {
+        Order old;
+        Order modified;
+        synchronized (this) {
+            old = activeOrders.get(orderId);
+            if (old == null) {
+                return OrderResponse.rejected(orderId, "ORDER_NOT_FOUND", "Order does not exist");
+            }
+            long openQty = newOrderQty - old.getCumQty();
+            if (openQty <= 0) {
+                return OrderResponse.rejected(orderId, "QUANTITY_NOT_ABOVE_FILLED",
+                        "Order quantity " + newOrderQty + " is not above the filled " + old.getCumQty());
+            }
+
+            if (cancel(orderId) == null) {
+                return OrderResponse.rejected(orderId, "ORDER_NOT_FOUND", "Order does not exist");
+            }
+
+            modified = new Order(
+                    orderId,
+                    old.getUserId(),  // String userId
+                    old.getSide(),
+                    newPrice,
+                    openQty
+            );
+            modified.setTraderIndex(old.getTraderIndex());
+            modified.setSessionIndex(old.getSessionIndex());
+            modified.setClientOrderId(clientOrderId);
+            modified.setOrigClientOrderId(old.getClientOrderId());
+            modified.carryFills(old);
         }
 
-        cancelOrder(orderId);
+        OrderResponse response = submitOrder(modified);
+        if (!response.isAccepted()) {
+            synchronized (this) {
+                cancelledUnsolicited(old, "Replacement rejected: " + response.getRejectReason());
+            }
+        }
+        return response;
+    }
 
-        Order modified = new Order(
-                orderId,
-                old.getUserId(),  // String userId
-                old.getSide(),
-                newPrice,
-                newQty
-        );
+    /** The order while it rests in the book, else null. */
+    public Order getActiveOrder(long orderId) {
+        return activeOrders.get(orderId);
+    }
 
-        return processOrder(modified);
+    /** True while the order rests in the book (not filled, cancelled or rejected). */
+    public boolean isActive(long orderId) {
+        return activeOrders.containsKey(orderId);
     }
 
     public List<OrderBookEntry> getOrderBookSide(Order.Side side, int depth) {
@@ -187,8 +384,27 @@ public class EnhancedOrderBook {
         return levels;
     }
 
+    /**
+     * Feed a market data price into the price band, for instruments whose
+     * reference source is the market data feed. Converted to ticks once here.
+     */
     public void updateMarketPrice(double price) {
-        this.referenceMarketPrice = price;
+        riskEngine.updateReferencePrice(instrumentIndex, PriceBands.ReferenceSource.MARKET_DATA,
+                Math.round(price * 100));
+    }
+
+    // Last trade and mid are offered to the risk engine after every book change;
+    // it ignores them unless they are this instrument's reference source
+    private void publishReferencePrices(List<Trade> trades) {
+        if (!trades.isEmpty()) {
+            riskEngine.updateReferencePrice(instrumentIndex, PriceBands.ReferenceSource.LAST_TRADE,
+                    trades.get(trades.size() - 1).price());
+        }
+        if (riskEngine.getReferenceSource(instrumentIndex) == PriceBands.ReferenceSource.MID
+                && !buyOrders.isEmpty() && !sellOrders.isEmpty()) {
+            riskEngine.updateReferencePrice(instrumentIndex, PriceBands.ReferenceSource.MID,
+                    (buyOrders.firstKey() + sellOrders.firstKey()) / 2);
+        }
     }
 
     public PerformanceMetrics getPerformanceMetrics() {
@@ -212,6 +428,73 @@ public class EnhancedOrderBook {
         );
     }
 
+    /**
+     * Block until the event behind {@code response} is acknowledged by the
+     * configured number of replicas. Returns true immediately when replication
+     * is off or asynchronous. Call it before confirming an order, never while
+     * holding the book lock.
+     */
+    public boolean awaitReplication(OrderResponse response) {
+        JournalReplicator replicator = journal != null ? journal.getReplicator() : null;
+        return replicator == null || replicator.awaitAck(response.getJournalSequence());
+    }
+
+    public void setPipeline(OrderPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Receives every price-level change; one listener per book. The current
+     * levels are replayed to it first, under the book lock, so it starts from
+     * an exact copy.
+     */
+    public synchronized void setDepthListener(DepthListener depthListener) {
+        if (depthListener != null) {
+            replayLevels(Order.Side.BUY, buyOrders, depthListener);
+            replayLevels(Order.Side.SELL, sellOrders, depthListener);
+        }
+        this.depthListener = depthListener;
+    }
+
+    private static void replayLevels(Order.Side side, TreeMap<Long, Deque<Order>> book, DepthListener listener) {
+        for (Map.Entry<Long, Deque<Order>> level : book.entrySet()) {
+            long quantity = 0;
+            for (Order order : level.getValue()) {
+                quantity += order.getQuantity();
+            }
+            listener.onLevelChange(side, level.getKey(), quantity);
+        }
+    }
+
+    /** Receives acceptances and fills of every order; one listener per book. */
+    public void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = executionListener;
+    }
+
+    public OrderPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public int getInstrumentIndex() {
+        return instrumentIndex;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public RiskEngine getRiskEngine() {
+        return riskEngine;
+    }
+
+    public OrderJournal getJournal() {
+        return journal;
+    }
+
+    public OrderJournal.JournalMetrics getJournalMetrics() {
+        return journal != null ? journal.getMetrics() : null;
+    }
+
     public void recover() {
         System.out.println("[EnhancedOrderBook] Recovery not implemented yet");
     }
@@ -223,24 +506,28 @@ public class EnhancedOrderBook {
         private final String rejectCode;
         private final String rejectReason;
         private final List<Trade> trades;
+        private final long journalSequence;
 
         private OrderResponse(long orderId, boolean accepted, String status,
-                              String rejectCode, String rejectReason, List<Trade> trades) {
+                              String rejectCode, String rejectReason, List<Trade> trades,
+                              long journalSequence) {
             this.orderId = orderId;
             this.accepted = accepted;
             this.status = status;
             this.rejectCode = rejectCode;
             this.rejectReason = rejectReason;
             this.trades = trades;
+            this.journalSequence = journalSequence;
         }
 
-        public static OrderResponse accepted(long orderId, List<Trade> trades, String status) {
-            return new OrderResponse(orderId, true, status, null, null, trades);
+        public static OrderResponse accepted(long orderId, List<Trade> trades, String status,
+                                             long journalSequence) {
+            return new OrderResponse(orderId, true, status, null, null, trades, journalSequence);
         }
 
         public static OrderResponse rejected(long orderId, String code, String reason) {
             return new OrderResponse(orderId, false, "REJECTED", code, reason,
-                    Collections.emptyList());
+                    Collections.emptyList(), -1);
         }
 
         public long getOrderId() { return orderId; }
@@ -249,6 +536,7 @@ public class EnhancedOrderBook {
         public String getRejectCode() { return rejectCode; }
         public String getRejectReason() { return rejectReason; }
         public List<Trade> getTrades() { return trades; }
+        public long getJournalSequence() { return journalSequence; }
 
         @Override
         public String toString() {
@@ -0,0 +1,24 @@
+package org.example;
+
+/**
+ * Order life-cycle events from {@link EnhancedOrderBook}, for gateways that
+ * report executions back to the order's owner.
+ *
+ * Callbacks run on the matching thread under the book lock, in the order the
+ * events happened, so they must only hand the event off. The order passed in
+ * is live book state: read what is needed during the callback.
+ */
+public interface ExecutionListener {
+
+    /** {@code order} passed its risk checks and is about to match. */
+    void onAccepted(Order order);
+
+    /** {@code order} traded; its cum qty, leaves and average price include the fill. */
+    void onFill(Order order, Trade trade);
+
+    /**
+     * The book cancelled {@code order} without its owner asking, e.g. in a
+     * kill-switch sweep; its cum qty and average price are final.
+     */
+    void onCancelled(Order order, String reason);
+}
@@ -1,12 +1,34 @@
 package org.example;
 
+import org.example.marketdata.HybridMarketDataProducer;
+import org.example.pnl.PnlEngine;
+import org.example.risk.KillSwitch;
+import org.example.risk.OrderThrottle;
+import org.example.risk.PriceBands;
+import org.example.risk.RiskAdminServer;
 import org.example.risk.RiskEngine;
+import org.example.risk.RiskLimitConfig;
+import org.example.risk.RiskLimitWatcher;
+import org.example.fix.BinaryLogFactory;
 import org.example.fix.FixGateway;
+import org.example.fix.FixMarketData;
+import org.example.journal.JournalArchiver;
+import org.example.journal.JournalReplicator;
+import org.example.journal.ReplicaFollower;
+import org.example.tradestore.TradeStore;
 import java.util.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class Main {
 
+    private static final long REPLICA_ACK_TIMEOUT_MS = 50;
+    private static final int JOURNAL_RING_CAPACITY = 1 << 16;
+    private static final String DEFAULT_TRADE_STORE = "trade_store";
+
+    private static volatile FixGateway fixGateway;
+
     public static void main(String[] args) {
 
         // 1. Trade Listener (simplified lambda)
@@ -23,29 +45,87 @@ public class Main {
         System.out.println("   ENHANCED HFT ENGINE WITH RISK (v2.0)    ");
         System.out.println("-------------------------------------------");
 
-        RiskEngine riskEngine = new RiskEngine();
-        EnhancedOrderBook book = new EnhancedOrderBook(myPrinter, riskEngine);
-        FixGateway fixGateway = new FixGateway(book);
-        new Thread(() -> {
-            try {
-                fixGateway.start();
-            } catch (Exception e) {
-                System.err.println("Failed to start FIX Gateway: " + e.getMessage());
-                e.printStackTrace();
+        // Command line: [--journal <file>] [--segment-mb <n>] [--trade-store <dir>] [--replicate <port> [--sync-acks <n>]] [--standby <host:port>]
+        //               [--trader-rate <orders/s>,<cancels/s>] [--session-rate <orders/s>,<cancels/s>] [--risk-limits <file>]
+        //               [--reference-source last-trade|mid|market-data]
+        //               [--kill-policy <rejects>,<rate rejects>,<loss cents>] [--admin-port <port>]
+        //               [--loss-limit <cents>] [--risk-threads <n>]
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("standby") && !hasOwnFiles(options)) {
+            System.err.println("--standby needs its own --journal and --trade-store;"
+                    + " the defaults are the primary's files when both run on one host");
+            return;
+        }
+
+        RiskEngine riskEngine = new RiskEngine(
+                RiskEngine.DEFAULT_MAX_TRADERS,
+                RiskEngine.DEFAULT_MAX_INSTRUMENTS,
+                parseThrottle(options.get("trader-rate"), RiskEngine.DEFAULT_TRADER_THROTTLE),
+                parseThrottle(options.get("session-rate"), RiskEngine.DEFAULT_SESSION_THROTTLE));
+        Path limitsFile = Path.of(options.getOrDefault("risk-limits", RiskLimitConfig.DEFAULT_FILE));
+        loadRiskLimits(riskEngine, limitsFile);
+        if (options.containsKey("kill-policy")) {
+            riskEngine.getKillSwitch().setPolicy(parseKillPolicy(options.get("kill-policy")));
+        }
+        startRiskAdmin(riskEngine,
+                Integer.parseInt(options.getOrDefault("admin-port", String.valueOf(RiskAdminServer.DEFAULT_PORT))));
+
+        // PnL runs on its own thread; the book only copies fills into its ring
+        PnlEngine pnlEngine = new PnlEngine(riskEngine, Long.parseLong(options.getOrDefault("loss-limit", "0")));
+        riskEngine.setLossMonitor(pnlEngine);
+        TradeListener pnlFeed = pnlEngine.feed(RiskEngine.DEFAULT_SYMBOL);
+
+        TradeStore tradeStore = openTradeStore(options.getOrDefault("trade-store", DEFAULT_TRADE_STORE));
+        TradeListener listener = trade -> {
+            myPrinter.onTrade(trade);
+            pnlFeed.onTrade(trade);
+            if (tradeStore != null) tradeStore.onTrade(trade);
+        };
+        OrderJournal journal = new OrderJournal(
+                options.getOrDefault("journal", OrderJournal.DEFAULT_FILE),
+                JOURNAL_RING_CAPACITY,
+                OrderJournal.OverflowPolicy.BLOCK,
+                Long.parseLong(options.getOrDefault("segment-mb", "256")) * 1024 * 1024,
+                new JournalArchiver());
+        EnhancedOrderBook book = new EnhancedOrderBook(listener, riskEngine, journal);
+
+        PriceBands.ReferenceSource referenceSource = PriceBands.ReferenceSource.valueOf(
+                options.getOrDefault("reference-source", "last-trade").toUpperCase().replace('-', '_'));
+        riskEngine.setReferenceSource(book.getSymbol(), referenceSource);
+        if (referenceSource == PriceBands.ReferenceSource.MARKET_DATA) {
+            startMarketDataFeed(book, pnlEngine);
+        }
+        System.out.println("✓ Price band reference: " + referenceSource);
+
+        int riskThreads = Integer.parseInt(options.getOrDefault("risk-threads", "1"));
+
+        // 3. Replication: either follow a primary (standby) or serve followers
+        ReplicaFollower follower = null;
+        JournalReplicator replicator = null;
+        if (options.containsKey("standby")) {
+            String[] hostPort = options.get("standby").split(":");
+            follower = new ReplicaFollower(book, hostPort[0], Integer.parseInt(hostPort[1]));
+            follower.start();
+            System.out.println("✓ Standby mode: gateways start on 'promote'");
+        } else {
+            if (options.containsKey("replicate")) {
+                replicator = new JournalReplicator(
+                        Integer.parseInt(options.get("replicate")),
+                        Integer.parseInt(options.getOrDefault("sync-acks", "0")),
+                        REPLICA_ACK_TIMEOUT_MS);
+                try {
+                    replicator.start(journal);
+                } catch (IOException e) {
+                    System.err.println("Failed to start replication: " + e.getMessage());
+                }
             }
-        }).start();
-        System.out.println("✓ FIX Gateway starting on port 9876...");
 
-        // 3. Recovery
-        book.recover();
+            // 4. Recovery
+            book.recover();
 
-        // 4. Start Server
-        Thread serverThread = new Thread(() -> {
-            TradingServer server = new TradingServer(book);
-            server.start();
-        });
-        serverThread.setDaemon(true);
-        serverThread.start();
+            // 5. Gateways
+            startGateways(book, riskThreads);
+        }
 
         try {
             Thread.sleep(500);
@@ -54,7 +134,7 @@ public class Main {
             System.err.println("Startup interrupted: " + e.getMessage());
         }
 
-        // 5. CLI
+        // 6. CLI
         Scanner scanner = new Scanner(System.in);
 
         printHelp();
@@ -77,7 +157,10 @@ public class Main {
                     printPerformanceMetrics(book);
                     break;
                 case "risk":
-                    printRiskInfo(scanner, riskEngine);
+                    printRiskInfo(scanner, riskEngine, limitsFile);
+                    break;
+                case "pnl":
+                    printPnl(scanner, pnlEngine, book.getSymbol());
                     break;
                 case "cancel":
                     cancelOrderCLI(scanner, book);
@@ -85,6 +168,19 @@ public class Main {
                 case "modify":
                     modifyOrderCLI(scanner, book);
                     break;
+                case "trades":
+                    queryTradesCLI(scanner, tradeStore);
+                    break;
+                case "replication":
+                    printReplicationStatus(replicator, follower);
+                    break;
+                case "promote":
+                    if (follower == null || !follower.isFollowing()) {
+                        System.out.println("Not running as a standby.");
+                    } else {
+                        startGateways(follower.promote(), riskThreads);
+                    }
+                    break;
                 case "help":
                     printHelp();
                     break;
@@ -98,6 +194,181 @@ public class Main {
         }
     }
 
+    private static void startGateways(EnhancedOrderBook book, int riskThreads) {
+        // Risk checks on their own threads ahead of matching; 0 keeps them under the book lock
+        if (riskThreads > 0) {
+            book.setPipeline(new OrderPipeline(book, riskThreads));
+            System.out.println("✓ Risk pipeline: " + riskThreads + " risk thread(s) ahead of matching");
+        }
+
+        FixGateway gateway = new FixGateway(book);
+        fixGateway = gateway;
+        new Thread(() -> {
+            try {
+                gateway.start();
+            } catch (Exception e) {
+                System.err.println("Failed to start FIX Gateway: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }).start();
+        System.out.println("✓ FIX Gateway starting on port 9876...");
+
+        Thread serverThread = new Thread(() -> {
+            TradingServer server = new TradingServer(book);
+            server.start();
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+    }
+
+    private static TradeStore openTradeStore(String directory) {
+        try {
+            return new TradeStore(directory);
+        } catch (IOException e) {
+            System.err.println("Trade store disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** A standby must not write to the primary's journal or trade store, which are the defaults. */
+    private static boolean hasOwnFiles(Map<String, String> options) {
+        String journalFile = options.get("journal");
+        String tradeStoreDir = options.get("trade-store");
+        return journalFile != null && tradeStoreDir != null
+                && !Path.of(journalFile).toAbsolutePath().normalize()
+                        .equals(Path.of(OrderJournal.DEFAULT_FILE).toAbsolutePath().normalize())
+                && !Path.of(tradeStoreDir).toAbsolutePath().normalize()
+                        .equals(Path.of(DEFAULT_TRADE_STORE).toAbsolutePath().normalize());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Poll the market data producer for the book's symbol to move its price
+     * band. PnL is re-marked by each quote from a real feed as it arrives;
+     * simulated prices never mark, so such symbols keep their last trade.
+     */
+    private static void startMarketDataFeed(EnhancedOrderBook book, PnlEngine pnlEngine) {
+        HybridMarketDataProducer marketData = new HybridMarketDataProducer();
+        marketData.addListener(pnlEngine);
+        Thread feed = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    book.updateMarketPrice(marketData.getSnapshot(book.getSymbol()).getLastPrice());
+                    Thread.sleep(1000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "MarketData-Reference");
+        feed.setDaemon(true);
+        feed.start();
+    }
+
+    /** Load the limits file if present and reload it whenever it changes. */
+    private static void loadRiskLimits(RiskEngine riskEngine, Path limitsFile) {
+        if (!Files.exists(limitsFile)) {
+            System.out.println("No risk limits file at " + limitsFile + ", using built-in defaults");
+            return;
+        }
+        try {
+            riskEngine.loadLimits(limitsFile);
+            new RiskLimitWatcher(riskEngine, limitsFile).start();
+            System.out.println("✓ Risk limits loaded from " + limitsFile + " (watching for changes)");
+        } catch (IOException e) {
+            System.err.println("Failed to load risk limits, using built-in defaults: " + e.getMessage());
+        }
+    }
+
+    /** "rejects,rateRejects,lossCents" per trader before an automatic kill (0 = never). */
+    private static KillSwitch.Policy parseKillPolicy(String value) {
+        String[] limits = value.split(",");
+        return new KillSwitch.Policy(
+                Integer.parseInt(limits[0].trim()),
+                limits.length > 1 ? Integer.parseInt(limits[1].trim()) : 0,
+                limits.length > 2 ? Long.parseLong(limits[2].trim()) : 0);
+    }
+
+    /** Kill-switch admin endpoint on localhost; port 0 disables it. */
+    private static void startRiskAdmin(RiskEngine riskEngine, int port) {
+        if (port == 0) return;
+        try {
+            new RiskAdminServer(riskEngine, port).start();
+            System.out.println("✓ Risk admin on http://localhost:" + port + "/kill");
+        } catch (IOException e) {
+            System.err.println("Risk admin disabled: " + e.getMessage());
+        }
+    }
+
+    /** "orders,cancels" per second (0 = unlimited), with a burst of a tenth of a second. */
+    private static OrderThrottle.ThrottleConfig parseThrottle(String value,
+                                                              OrderThrottle.ThrottleConfig fallback) {
+        if (value == null) return fallback;
+        String[] rates = value.split(",");
+        int orders = Integer.parseInt(rates[0].trim());
+        int cancels = rates.length > 1 ? Integer.parseInt(rates[1].trim()) : orders;
+        return new OrderThrottle.ThrottleConfig(
+                orders, Math.max(1, orders / 10), cancels, Math.max(1, cancels / 10));
+    }
+
+    // ================= TRADE HISTORY =================
+    private static void queryTradesCLI(Scanner scanner, TradeStore tradeStore) {
+        if (tradeStore == null) {
+            System.out.println("Trade store disabled");
+            return;
+        }
+        System.out.println("\n=== TRADE HISTORY ===");
+        System.out.print("Trader ID (blank for market VWAP): ");
+        String traderId = scanner.nextLine().trim();
+        System.out.print("Minutes back (default 60): ");
+        long minutes = 60;
+        try {
+            String input = scanner.nextLine().trim();
+            if (!input.isEmpty()) minutes = Long.parseLong(input);
+        } catch (NumberFormatException ignored) {}
+
+        long to = System.currentTimeMillis();
+        long from = to - minutes * 60_000;
+        try {
+            if (traderId.isEmpty()) {
+                System.out.println(tradeStore.vwap(from, to));
+            } else {
+                List<TradeStore.StoredTrade> fills = tradeStore.findTrades(traderId, from, to);
+                for (TradeStore.StoredTrade t : fills) {
+                    System.out.printf("  %s %,d @ ₹%.2f (Buy ID: %d, Sell ID: %d)%n",
+                            traderId.equals(t.buyer()) ? "BOUGHT" : "SOLD",
+                            t.quantity(), t.price() / 100.0, t.buyOrderId(), t.sellOrderId());
+                }
+                System.out.printf("%d fills for %s%n", fills.size(), traderId);
+            }
+            System.out.println(tradeStore.getMetrics());
+        } catch (IOException e) {
+            System.out.println("Query failed: " + e.getMessage());
+        }
+    }
+
+    // ================= REPLICATION =================
+    private static void printReplicationStatus(JournalReplicator replicator, ReplicaFollower follower) {
+        System.out.println("\n--- REPLICATION ---");
+        if (follower != null) {
+            System.out.printf("Standby %s: last applied seq %d, %d events applied%n",
+                    follower.isFollowing() ? "following" : "promoted",
+                    follower.getLastApplied(), follower.getAppliedCount());
+        } else if (replicator != null) {
+            System.out.println(replicator.getStatus());
+        } else {
+            System.out.println("Replication disabled");
+        }
+    }
+
     // ================= STRESS TEST =================
     private static void runStressTest(EnhancedOrderBook book) {
         Scanner scanner = new Scanner(System.in);
@@ -114,11 +385,11 @@ public class Main {
         long start = System.nanoTime();
 
         for (int i = 0; i < ordersPerSide; i++) {
-            book.processOrder(new Order(
+            book.submitOrder(new Order(
                     System.nanoTime(), "STRESS_SELLER",
                     Order.Side.SELL, 10500 + i, 10));
 
-            book.processOrder(new Order(
+            book.submitOrder(new Order(
                     System.nanoTime(), "STRESS_BUYER",
                     Order.Side.BUY, 9500 - i, 10));
         }
@@ -172,7 +443,7 @@ public class Main {
                 System.nanoTime(), userId, side,
                 (long) (price * 100), qty);
 
-        EnhancedOrderBook.OrderResponse response = book.processOrder(order);
+        EnhancedOrderBook.OrderResponse response = book.submitOrder(order);
         System.out.println("Order Response: " + response);
 
         if (!response.isAccepted()) {
@@ -212,7 +483,7 @@ public class Main {
             System.out.print("New Price (e.g. 100.50): ");
             double newPrice = Double.parseDouble(scanner.nextLine());
 
-            System.out.print("New Quantity: ");
+            System.out.print("New Total Quantity (including filled): ");
             long newQty = Long.parseLong(scanner.nextLine());
 
             EnhancedOrderBook.OrderResponse response = book.modifyOrder(
@@ -259,13 +530,38 @@ public class Main {
         EnhancedOrderBook.PerformanceMetrics metrics = book.getPerformanceMetrics();
         System.out.println("\n--- PERFORMANCE METRICS ---");
         System.out.println(metrics);
+        if (book.getPipeline() != null) {
+            System.out.println(book.getPipeline().getMetrics());
+        }
+        if (fixGateway != null) {
+            System.out.println(fixGateway.getFastPathMetrics());
+            fixGateway.getOrderIndexMetrics().forEach(m -> System.out.println("ClOrdID index " + m));
+            fixGateway.getSenderMetrics().forEach(m -> System.out.println("FIX sender " + m));
+            BinaryLogFactory.Metrics logMetrics = fixGateway.getMessageLogMetrics();
+            if (logMetrics != null) System.out.println(logMetrics);
+            FixMarketData.Metrics depthMetrics = fixGateway.getMarketDataMetrics();
+            if (depthMetrics != null) System.out.println(depthMetrics);
+            fixGateway.getDropCopyMetrics().forEach(m -> System.out.println("FIX drop copy " + m));
+        }
+        System.out.println(book.getJournalMetrics());
+        if (book.getJournal().getArchiverMetrics() != null) {
+            System.out.println(book.getJournal().getArchiverMetrics());
+        }
     }
 
     // ================= RISK INFORMATION =================
-    private static void printRiskInfo(Scanner scanner, RiskEngine riskEngine) {
+    private static void printRiskInfo(Scanner scanner, RiskEngine riskEngine, Path limitsFile) {
         System.out.println("\n=== RISK MANAGEMENT ===");
         System.out.println("1. View trader positions");
         System.out.println("2. View daily volumes");
+        System.out.println("3. View trader limits");
+        System.out.println("4. Reload limits from " + limitsFile);
+        System.out.println("5. Kill switch status");
+        System.out.println("6. Kill trader");
+        System.out.println("7. Kill session");
+        System.out.println("8. Kill all trading");
+        System.out.println("9. Release kill switch");
+        System.out.println("10. View account credit");
         System.out.print("Choice: ");
 
         String choice = scanner.nextLine();
@@ -278,6 +574,12 @@ public class Main {
                 long sellPos = riskEngine.getPosition(traderId, Order.Side.SELL);
                 System.out.printf("Positions for %s: BUY=%,d, SELL=%,d, NET=%,d%n",
                         traderId, buyPos, sellPos, buyPos - sellPos);
+                System.out.printf("Open exposure for %s: BUY=%,d, SELL=%,d%n", traderId,
+                        riskEngine.getOpenExposure(traderId, Order.Side.BUY),
+                        riskEngine.getOpenExposure(traderId, Order.Side.SELL));
+                System.out.printf("Notional for %s: gross $%,.2f, net $%,.2f%n", traderId,
+                        riskEngine.getGrossNotional(traderId) / 100.0,
+                        riskEngine.getNetNotional(traderId) / 100.0);
                 break;
             case "2":
                 System.out.print("Trader ID: ");
@@ -285,11 +587,85 @@ public class Main {
                 long dailyVol = riskEngine.getDailyVolume(traderId);
                 System.out.printf("Daily volume for %s: %,d%n", traderId, dailyVol);
                 break;
+            case "3":
+                System.out.print("Trader ID: ");
+                traderId = scanner.nextLine();
+                System.out.printf("Limits for %s: %s%n", traderId, riskEngine.getTraderLimit(traderId));
+                break;
+            case "4":
+                try {
+                    riskEngine.loadLimits(limitsFile);
+                    System.out.println("✓ Risk limits reloaded");
+                } catch (IOException e) {
+                    System.out.println("Reload failed, current limits kept: " + e.getMessage());
+                }
+                break;
+            case "5":
+                KillSwitch killSwitch = riskEngine.getKillSwitch();
+                System.out.println("Global halt: " + killSwitch.isGlobalKilled());
+                System.out.println("Halted traders: " + riskEngine.getKilledTraders());
+                System.out.println("Halted sessions: " + riskEngine.getKilledSessions());
+                System.out.println("Auto-kill policy: " + killSwitch.getPolicy());
+                break;
+            case "6":
+                System.out.print("Trader ID: ");
+                traderId = scanner.nextLine().trim();
+                riskEngine.killTrader(traderId, "CLI");
+                System.out.println("✓ " + traderId + " halted, resting orders pulled");
+                break;
+            case "7":
+                System.out.print("Session name: ");
+                String session = scanner.nextLine().trim();
+                System.out.println(riskEngine.killSession(session, "CLI")
+                        ? "✓ Session halted, resting orders pulled" : "No open session " + session);
+                break;
+            case "8":
+                System.out.print("Halt ALL trading? (yes/no): ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+                    riskEngine.getKillSwitch().killAll("CLI");
+                    System.out.println("✓ All trading halted, resting orders pulled");
+                }
+                break;
+            case "9":
+                System.out.print("Trader ID, session name, or 'all': ");
+                String target = scanner.nextLine().trim();
+                if (target.equalsIgnoreCase("all")) {
+                    riskEngine.getKillSwitch().releaseAll();
+                } else if (!riskEngine.releaseSession(target)) {
+                    riskEngine.releaseTrader(target);
+                }
+                System.out.println("✓ Released " + target);
+                break;
+            case "10":
+                System.out.print("Trader ID or account: ");
+                String name = scanner.nextLine().trim();
+                String account = riskEngine.getAccountOf(name) != null ? riskEngine.getAccountOf(name) : name;
+                RiskEngine.AccountLimit accountLimit = riskEngine.getAccountLimit(account);
+                if (accountLimit == null) {
+                    System.out.println("No credit line for " + name);
+                    break;
+                }
+                System.out.printf("Account %s: used $%,.2f of $%,.2f%n", account,
+                        riskEngine.getAccountExposure(account) / 100.0, accountLimit.credit() / 100.0);
+                if (accountLimit.firm() != null) {
+                    System.out.printf("Firm %s: used $%,.2f of $%,.2f%n", accountLimit.firm(),
+                            riskEngine.getFirmExposure(accountLimit.firm()) / 100.0,
+                            riskEngine.getFirmLimit(accountLimit.firm()) / 100.0);
+                }
+                break;
             default:
                 System.out.println("Invalid choice");
         }
     }
 
+    // ================= PNL =================
+    private static void printPnl(Scanner scanner, PnlEngine pnlEngine, String symbol) {
+        System.out.print("Trader ID: ");
+        String traderId = scanner.nextLine().trim();
+        System.out.println(pnlEngine.getPnl(traderId, symbol));
+        System.out.println(pnlEngine.getTraderPnl(traderId));
+    }
+
     // ================= HELP =================
     private static void printHelp() {
         System.out.println("\nCommands:");
@@ -300,6 +676,10 @@ public class Main {
         System.out.println("modify   - Modify an order");
         System.out.println("metrics  - Show performance metrics");
         System.out.println("risk     - Risk management info");
+        System.out.println("pnl      - Trader PnL (realised / unrealised)");
+        System.out.println("trades   - Trade history and VWAP");
+        System.out.println("replication - Replication status");
+        System.out.println("promote  - Promote standby to primary");
         System.out.println("help     - Show help");
         System.out.println("exit     - Exit engine");
     }
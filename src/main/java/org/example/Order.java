@@ -8,8 +8,15 @@ public class Order {
     private final String userId;
     private final Side side;
     private final long price;
-    private long quantity;
+    private long quantity;        // leaves: still open in the book
+    private long cumQty;          // filled so far
+    private long fillNotional;    // sum of price * quantity over fills, in cents
     private final long timestamp;
+    private int traderIndex = -1; // dense risk-engine id, -1 until resolved
+    private int instrumentIndex;  // risk-engine instrument id, 0 = default symbol
+    private int sessionIndex = -1; // gateway session slot, negative when unthrottled (-1 for local orders)
+    private String clientOrderId;     // the client's id for the order (FIX ClOrdID), if any
+    private String origClientOrderId; // the id it replaced, if this is a replacement
 
     public Order(long id, String userId, Side side, long price, long quantity) {
         this.id = id;
@@ -26,5 +33,35 @@ public class Order {
     public long getPrice() { return price; }
     public long getQuantity() { return quantity; }
     public void setQuantity(long q) { this.quantity = q; }
+    public long getCumQty() { return cumQty; }
+    public long getOrderQty() { return cumQty + quantity; }
     public long getTimestamp() { return timestamp; }
+    public int getTraderIndex() { return traderIndex; }
+    public void setTraderIndex(int traderIndex) { this.traderIndex = traderIndex; }
+    public int getInstrumentIndex() { return instrumentIndex; }
+    public void setInstrumentIndex(int instrumentIndex) { this.instrumentIndex = instrumentIndex; }
+    public int getSessionIndex() { return sessionIndex; }
+    public void setSessionIndex(int sessionIndex) { this.sessionIndex = sessionIndex; }
+    public String getClientOrderId() { return clientOrderId; }
+    public void setClientOrderId(String clientOrderId) { this.clientOrderId = clientOrderId; }
+    public String getOrigClientOrderId() { return origClientOrderId; }
+    public void setOrigClientOrderId(String origClientOrderId) { this.origClientOrderId = origClientOrderId; }
+
+    /** Record a fill: {@code qty} moves from leaves to cum qty at {@code price} cents. */
+    public void fill(long price, long qty) {
+        quantity -= qty;
+        cumQty += qty;
+        fillNotional += price * qty;
+    }
+
+    /** Average fill price in hundredths of a cent (four decimals), 0 before the first fill. */
+    public long getAvgPx() {
+        return cumQty == 0 ? 0 : fillNotional * 100 / cumQty;
+    }
+
+    /** Take over the fills of the order this one replaces. */
+    public void carryFills(Order replaced) {
+        this.cumQty = replaced.cumQty;
+        this.fillNotional = replaced.fillNotional;
+    }
 }
@@ -1,32 +1,354 @@
 package org.example;
+import org.example.concurrent.SpscRing;
+import org.example.journal.JournalArchiver;
+import org.example.journal.JournalReader;
+import org.example.journal.JournalRecord;
+import org.example.journal.JournalReplicator;
+
 import java.io.*;
-import java.util.concurrent.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class OrderJournal {
-    private final String fileName = "order_journal.csv";
-    // This queue holds orders waiting to be written to disk
-    private final BlockingQueue<Order> queue = new LinkedBlockingQueue<>();
+    private static final Logger LOGGER = Logger.getLogger(OrderJournal.class.getName());
+
+    /** What the matching thread does when the writer falls a full ring behind. */
+    public enum OverflowPolicy { BLOCK, DROP }
+
+    public static final String DEFAULT_FILE = "order_journal.csv";
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long DEFAULT_SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = 50_000;
+    private static final Pattern SEGMENT_INDEX = Pattern.compile("\\.(\\d{6})\\.(csv|jz)$");
+
+    private final String fileName;
+    private final OverflowPolicy overflowPolicy;
+    private final long segmentBytes;
+
+    // Pre-allocated slots; the matching thread copies event fields in, the writer drains them
+    private final SpscRing<JournalRecord> ring;
+
+    // Segments closed during this engine session (sequences restart at 1 per session)
+    private final List<Path> sessionSegments = new CopyOnWriteArrayList<>();
+    private final JournalArchiver archiver;
+    private int nextSegmentIndex;
+
+    // Active segment, owned by the writer thread
+    private PrintWriter out;
+    private long activeBytes;
+    private long writtenSequence;
+
+    // Set once replication is enabled; only read by the writer thread
+    private volatile JournalReplicator replicator;
+
+    // Producer-side metrics (rare events only, never touched on the fast path)
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong backpressureStalls = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private volatile boolean stopped; // writer thread has exited
+
+    // Writer-side metrics
+    private volatile long batches;
+    private volatile int maxBatch;
 
     public OrderJournal() {
-        // Start a background thread to "consume" the queue
-        Thread writerThread = new Thread(() -> {
-            try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(fileName, true)))) {
-                while (true) {
-                    Order order = queue.take(); // Waits until an order is available
-                    out.printf("%d,%s,%s,%d,%d,%d\n",
-                            order.getId(), order.getUserId(), order.getSide(),
-                            order.getPrice(), order.getQuantity(), System.currentTimeMillis());
-                    out.flush(); // Ensure data is written
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+        this(DEFAULT_FILE);
+    }
+
+    public OrderJournal(String fileName) {
+        this(fileName, DEFAULT_CAPACITY, OverflowPolicy.BLOCK, DEFAULT_SEGMENT_BYTES, new JournalArchiver());
+    }
+
+    /**
+     * @param fileName     path of the active (uncompressed) segment; closed segments
+     *                     are renamed next to it as {@code <stem>.NNNNNN.csv}
+     * @param segmentBytes size at which the active segment is closed
+     * @param archiver     compresses closed segments in the background, or null to keep CSV
+     */
+    public OrderJournal(String fileName, int capacity, OverflowPolicy overflowPolicy,
+                        long segmentBytes, JournalArchiver archiver) {
+        this.fileName = fileName;
+        this.overflowPolicy = overflowPolicy;
+        this.segmentBytes = segmentBytes;
+        this.archiver = archiver;
+        this.ring = new SpscRing<>(capacity, JournalRecord::new);
+
+        try {
+            this.nextSegmentIndex = findNextSegmentIndex();
+            // A previous session's active file becomes a closed segment, so every
+            // session starts its sequence numbers in a fresh file
+            if (new File(fileName).length() > 0) {
+                archive(closeActiveSegment());
             }
-        });
+            archiveLeftoverSegments();
+            this.out = openActiveSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + fileName, e);
+        }
+
+        // Start a background thread to drain the ring in batches
+        Thread writerThread = new Thread(this::runWriter, "OrderJournal-Writer");
         writerThread.setDaemon(true); // Close thread when app stops
         writerThread.start();
     }
 
-    public void log(Order order) {
-        queue.offer(order); // Just drops it in the queue; takes almost 0ms
+    private void runWriter() {
+        try {
+            StringBuilder line = new StringBuilder(96);
+            while (true) {
+                JournalReplicator repl = replicator;
+                if (repl != null && repl.hasPendingFollowers()) {
+                    out.flush();
+                    repl.admitPendingFollowers(this);
+                }
+
+                long now = System.currentTimeMillis();
+                int drained = ring.drain(record -> {
+                    record.setTimestamp(now);
+                    line.setLength(0);
+                    record.appendCsv(line);
+                    out.append(line);
+                    activeBytes += line.length();
+                    writtenSequence = record.getSequence();
+                    if (repl != null) {
+                        repl.append(record);
+                    }
+                }, MAX_BATCH);
+
+                if (drained == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+
+                out.flush(); // One flush per batch instead of per order
+                batches++;
+                if (drained > maxBatch) {
+                    maxBatch = drained;
+                }
+
+                if (activeBytes >= segmentBytes) {
+                    out.close();
+                    Path closed = closeActiveSegment();
+                    sessionSegments.add(closed);
+                    archive(closed);
+                    out = openActiveSegment();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Journal writer stopped, further events are dropped", e);
+        } finally {
+            stopped = true;
+        }
+    }
+
+    // ================= SEGMENTS =================
+
+    private PrintWriter openActiveSegment() throws IOException {
+        activeBytes = new File(fileName).length();
+        return new PrintWriter(new BufferedWriter(new FileWriter(fileName, true), 1 << 16));
+    }
+
+    /** Rename the active file to the next closed-segment name. */
+    private Path closeActiveSegment() throws IOException {
+        Path active = Path.of(fileName);
+        Path closed = segmentPath(nextSegmentIndex++, "csv");
+        Files.move(active, closed);
+        return closed;
+    }
+
+    private void archive(Path segment) {
+        if (archiver != null) {
+            archiver.submit(segment);
+        }
+    }
+
+    /** Closed CSV segments that a previous run never got to compress. */
+    private void archiveLeftoverSegments() throws IOException {
+        if (archiver == null) return;
+        try (Stream<Path> files = Files.list(directory())) {
+            files.filter(p -> isSegmentOf(p) && p.toString().endsWith(".csv"))
+                    .filter(p -> !Files.exists(JournalArchiver.compressedPath(p)))
+                    .sorted()
+                    .forEach(archiver::submit);
+        }
+    }
+
+    private int findNextSegmentIndex() throws IOException {
+        int max = 0;
+        try (Stream<Path> files = Files.list(directory())) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                if (!isSegmentOf(p)) continue;
+                Matcher m = SEGMENT_INDEX.matcher(p.getFileName().toString());
+                if (m.find()) {
+                    max = Math.max(max, Integer.parseInt(m.group(1)));
+                }
+            }
+        }
+        return max + 1;
+    }
+
+    private boolean isSegmentOf(Path p) {
+        String name = p.getFileName().toString();
+        return name.startsWith(stem() + ".") && SEGMENT_INDEX.matcher(name).find();
+    }
+
+    private Path segmentPath(int index, String extension) {
+        return directory().resolve(String.format("%s.%06d.%s", stem(), index, extension));
+    }
+
+    private String stem() {
+        String name = Path.of(fileName).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private Path directory() {
+        Path parent = Path.of(fileName).toAbsolutePath().getParent();
+        return parent != null ? parent : Path.of(".");
+    }
+
+    /**
+     * Copy the order's current fields into the ring and return the event's
+     * journal sequence (or -1 if it was dropped). Must be called by one thread
+     * at a time (the order book calls it under its own lock).
+     */
+    public long log(Order order) {
+        JournalRecord slot = claimSlot();
+        if (slot == null) return -1;
+
+        long sequence = ring.published() + 1;
+        slot.setNewOrder(sequence, order);
+        ring.publish();
+        return sequence;
+    }
+
+    /**
+     * Journal the cancellation of a resting order. Same threading rules as {@link #log}.
+     */
+    public long logCancel(long orderId) {
+        JournalRecord slot = claimSlot();
+        if (slot == null) return -1;
+
+        long sequence = ring.published() + 1;
+        slot.setCancel(sequence, orderId);
+        ring.publish();
+        return sequence;
+    }
+
+    private JournalRecord claimSlot() {
+        if (stopped) {
+            droppedEvents.incrementAndGet();
+            return null;
+        }
+        JournalRecord slot = ring.claim();
+        if (slot == null) {
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                overflows.incrementAndGet();
+                return null;
+            }
+            backpressureStalls.incrementAndGet();
+            while ((slot = ring.claim()) == null) {
+                if (stopped) {
+                    droppedEvents.incrementAndGet();
+                    return null;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Stream the records of the current session with a sequence in
+     * ({@code afterSequence}, {@code upToSequence}]: closed segments first
+     * (compressed or not), then the active segment. Safe on any thread for
+     * sequences the writer has already flushed, but a segment closed while
+     * this runs can be missed, so callers that need every record check what
+     * they received and read again from there.
+     */
+    public void readSession(long afterSequence, long upToSequence, Consumer<JournalRecord> consumer)
+            throws IOException {
+        Consumer<JournalRecord> bounded = record -> {
+            if (record.getSequence() <= upToSequence) consumer.accept(record);
+        };
+        for (Path segment : sessionSegments) {
+            readSegment(segment, afterSequence, bounded);
+        }
+        new JournalReader(fileName).forEachAfter(afterSequence, bounded);
+    }
+
+    /** Sequence of the last record written; writer thread only, flushed whenever a follower is admitted. */
+    public long getWrittenSequence() {
+        return writtenSequence;
+    }
+
+    private void readSegment(Path csv, long afterSequence, Consumer<JournalRecord> consumer)
+            throws IOException {
+        // The archiver writes the .jz before deleting the CSV, so one of them always exists
+        Path compressed = JournalArchiver.compressedPath(csv);
+        if (!Files.exists(compressed)) {
+            try {
+                new JournalReader(csv.toString()).forEachAfter(afterSequence, consumer);
+                return;
+            } catch (FileNotFoundException e) {
+                // Compressed and removed while we were looking; fall through
+            }
+        }
+        new JournalReader(compressed.toString()).forEachAfter(afterSequence, consumer);
+    }
+
+    public void setReplicator(JournalReplicator replicator) {
+        this.replicator = replicator;
+    }
+
+    public JournalReplicator getReplicator() {
+        return replicator;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public JournalArchiver.ArchiverMetrics getArchiverMetrics() {
+        return archiver != null ? archiver.getMetrics() : null;
+    }
+
+    public JournalMetrics getMetrics() {
+        return new JournalMetrics(
+                ring.published(),
+                ring.consumed(),
+                overflows.get(),
+                backpressureStalls.get(),
+                droppedEvents.get(),
+                batches,
+                maxBatch,
+                ring.size(),
+                ring.capacity()
+        );
+    }
+
+    public record JournalMetrics(long appended, long written, long overflows,
+                                 long backpressureStalls, long dropped, long batches, int maxBatch,
+                                 int depth, int capacity) {
+        @Override
+        public String toString() {
+            return String.format(
+                    "Journal: appended %d, written %d, depth %d/%d, batches %d (max %d), " +
+                            "overflows %d, backpressure stalls %d, dropped after writer stopped %d",
+                    appended, written, depth, capacity, batches, maxBatch,
+                    overflows, backpressureStalls, dropped);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,275 @@
+package org.example;
+
+import org.example.concurrent.SpscRing;
+import org.example.metrics.LatencyHistogram;
+import org.example.risk.RiskEngine;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Two-stage order path: risk checks on their own threads, matching on one.
+ *
+ * Orders are routed to a risk stage by trader index, so all orders of a trader
+ * are checked on the same thread and the trader's exposure has a single
+ * writer. Rejected orders are answered from the risk stage and never touch
+ * the book; approved orders go over the stage's {@link SpscRing} to the
+ * matching thread, which only matches under the book lock.
+ *
+ * Every order carries timestamps through the stages so end-to-end latency,
+ * time spent in each stage and queue depths can be compared with the
+ * in-lock path ({@link EnhancedOrderBook#processOrder}).
+ */
+public class OrderPipeline implements Closeable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final EnhancedOrderBook book;
+    private final RiskEngine riskEngine;
+    private final RiskStage[] stages;
+    private final Thread matchingThread;
+    private volatile boolean running = true;
+
+    // Recorded by the matching thread only
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    private final LatencyHistogram matchQueueWait = new LatencyHistogram();
+    private final LatencyHistogram matching = new LatencyHistogram();
+    private final QueueDepth matchQueueDepth = new QueueDepth();
+
+    public OrderPipeline(EnhancedOrderBook book, int riskThreads, int queueCapacity) {
+        this.book = book;
+        this.riskEngine = book.getRiskEngine();
+        this.stages = new RiskStage[riskThreads];
+        for (int i = 0; i < riskThreads; i++) {
+            stages[i] = new RiskStage(i, queueCapacity);
+        }
+        matchingThread = new Thread(this::runMatching, "Pipeline-Matching");
+        matchingThread.setDaemon(true);
+        matchingThread.start();
+        for (RiskStage stage : stages) {
+            stage.thread.start();
+        }
+    }
+
+    public OrderPipeline(EnhancedOrderBook book, int riskThreads) {
+        this(book, riskThreads, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Queue an order. The future completes on the risk thread if the order is
+     * rejected, otherwise on the matching thread once it has been matched.
+     * Blocks the caller while the trader's risk stage is full.
+     */
+    public CompletableFuture<EnhancedOrderBook.OrderResponse> submit(Order order) {
+        int trader = order.getTraderIndex();
+        if (trader < 0) {
+            trader = riskEngine.internTrader(order.getUserId());
+            order.setTraderIndex(trader);
+        }
+        order.setInstrumentIndex(book.getInstrumentIndex());
+
+        Pending pending = new Pending(order, System.nanoTime());
+        RiskStage stage = stages[Math.floorMod(trader, stages.length)];
+        try {
+            stage.inbox.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.result.completeExceptionally(e);
+        }
+        return pending.result;
+    }
+
+    /** Submit and wait for the response, for gateways that answer synchronously. */
+    public EnhancedOrderBook.OrderResponse process(Order order) {
+        return submit(order).join();
+    }
+
+    // ================= RISK STAGE =================
+
+    private final class RiskStage {
+        final BlockingQueue<Pending> inbox;
+        final SpscRing<Slot> toMatcher;
+        final Thread thread;
+
+        // Recorded by this stage's thread only
+        final LatencyHistogram latency = new LatencyHistogram(); // submit -> check done
+        final QueueDepth inboxDepth = new QueueDepth();
+        final AtomicLong stalls = new AtomicLong();
+
+        RiskStage(int index, int capacity) {
+            this.inbox = new ArrayBlockingQueue<>(capacity);
+            this.toMatcher = new SpscRing<>(Integer.highestOneBit(Math.max(2, capacity)), Slot::new);
+            this.thread = new Thread(this::run, "Pipeline-Risk-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            try {
+                while (running) {
+                    Pending pending = inbox.poll(IDLE_PARK_NANOS, TimeUnit.NANOSECONDS);
+                    if (pending == null) continue;
+                    inboxDepth.sample(inbox.size() + 1);
+                    check(pending);
+                }
+            } catch (InterruptedException e) {
+                // shutting down
+            }
+        }
+
+        private void check(Pending pending) {
+            Order order = pending.order;
+            RiskEngine.RiskCheckResult result = riskEngine.checkOrder(order);
+            long checked = System.nanoTime();
+            latency.record(checked - pending.submitted);
+
+            if (!result.isApproved()) {
+                pending.result.complete(book.rejectPreChecked(order, result));
+                return;
+            }
+
+            Slot slot = toMatcher.claim();
+            if (slot == null) {
+                stalls.incrementAndGet();
+                while ((slot = toMatcher.claim()) == null) {
+                    LockSupport.unpark(matchingThread);
+                    Thread.onSpinWait();
+                }
+            }
+            slot.pending = pending;
+            slot.checked = checked;
+            toMatcher.publish();
+            LockSupport.unpark(matchingThread);
+        }
+    }
+
+    // ================= MATCHING STAGE =================
+
+    private void runMatching() {
+        while (running) {
+            int drained = 0;
+            for (RiskStage stage : stages) {
+                int depth = stage.toMatcher.size();
+                if (depth > 0) {
+                    matchQueueDepth.sample(depth);
+                    drained += stage.toMatcher.drain(this::match, MAX_BATCH);
+                }
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void match(Slot slot) {
+        Pending pending = slot.pending;
+        slot.pending = null;
+
+        long start = System.nanoTime();
+        matchQueueWait.record(start - slot.checked);
+        EnhancedOrderBook.OrderResponse response = book.processPreChecked(pending.order);
+        long done = System.nanoTime();
+        matching.record(done - start);
+        endToEnd.record(done - pending.submitted);
+
+        pending.result.complete(response);
+    }
+
+    // ================= METRICS =================
+
+    /** Approximate snapshot; histograms are read while their owners record. */
+    public PipelineMetrics getMetrics() {
+        LatencyHistogram risk = new LatencyHistogram();
+        long inboxDepth = 0;
+        long inboxMax = 0;
+        long stalls = 0;
+        int matchDepth = 0;
+        for (RiskStage stage : stages) {
+            risk.add(stage.latency);
+            inboxDepth += stage.inbox.size();
+            inboxMax = Math.max(inboxMax, stage.inboxDepth.max);
+            stalls += stage.stalls.get();
+            matchDepth += stage.toMatcher.size();
+        }
+        return new PipelineMetrics(stages.length, risk.toString(), matchQueueWait.toString(),
+                matching.toString(), endToEnd.toString(),
+                inboxDepth, inboxMax, matchDepth, matchQueueDepth.max, matchQueueDepth.mean(), stalls);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(matchingThread);
+        try {
+            for (RiskStage stage : stages) {
+                stage.thread.join();
+            }
+            matchingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ================= INNER CLASSES =================
+
+    private static final class Pending {
+        final Order order;
+        final long submitted;
+        final CompletableFuture<EnhancedOrderBook.OrderResponse> result = new CompletableFuture<>();
+
+        Pending(Order order, long submitted) {
+            this.order = order;
+            this.submitted = submitted;
+        }
+    }
+
+    /** Mutable ring slot carrying an approved order to the matching thread. */
+    private static final class Slot {
+        Pending pending;
+        long checked;
+    }
+
+    /** Depth samples taken by a queue's consumer. Single writer. */
+    private static final class QueueDepth {
+        volatile long max;
+        long samples;
+        long total;
+
+        void sample(long depth) {
+            samples++;
+            total += depth;
+            if (depth > max) max = depth;
+        }
+
+        double mean() {
+            return samples == 0 ? 0.0 : (double) total / samples;
+        }
+    }
+
+    public record PipelineMetrics(int riskThreads, String riskLatency, String matchQueueWait,
+                                  String matchingLatency, String endToEndLatency,
+                                  long riskQueueDepth, long riskQueueMaxDepth,
+                                  long matchQueueDepth, long matchQueueMaxDepth,
+                                  double matchQueueMeanDepth, long backpressureStalls) {
+        @Override
+        public String toString() {
+            return String.format("""
+                    Risk threads: %d
+                    Risk stage (submit -> checked): %s
+                    Match queue wait:               %s
+                    Matching (book lock):           %s
+                    End to end:                     %s
+                    Risk queue depth: %,d (max %,d)
+                    Match queue depth: %,d (max %,d, mean %.2f), stalls: %,d""",
+                    riskThreads, riskLatency, matchQueueWait, matchingLatency, endToEndLatency,
+                    riskQueueDepth, riskQueueMaxDepth, matchQueueDepth, matchQueueMaxDepth,
+                    matchQueueMeanDepth, backpressureStalls);
+        }
+    }
+}
@@ -1,4 +1,12 @@
 package org.example;
 
-public record Trade(long buyOrderId, long sellOrderId, long price, long quantity) {
+/**
+ * A single fill. {@code timestamp} is wall-clock epoch millis at match time.
+ */
+public record Trade(long buyOrderId, long sellOrderId, long price, long quantity,
+                    String buyUserId, String sellUserId, long timestamp) {
+
+    public Trade(long buyOrderId, long sellOrderId, long price, long quantity) {
+        this(buyOrderId, sellOrderId, price, quantity, null, null, System.currentTimeMillis());
+    }
 }
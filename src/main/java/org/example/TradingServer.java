@@ -1,5 +1,7 @@
 package org.example;
 
+import org.example.risk.OrderThrottle;
+import org.example.risk.RiskEngine;
 import java.io.*;
 import java.net.*;
 import java.util.concurrent.ExecutorService;
@@ -35,16 +37,38 @@ public class TradingServer {
     }
 
     private void handleClient(Socket socket) {
+        OrderThrottle throttle = book.getRiskEngine().getThrottle();
+        int session = throttle.openSession("tcp:" + socket.getRemoteSocketAddress());
+
         try (socket;
-             InputStream in = socket.getInputStream()) {
+             InputStream in = socket.getInputStream();
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()))) {
 
             OrderParser parser = OrderParser.getParser();
 
+            // A connection normally carries one trader; intern it once, not per order
+            String lastUserId = null;
+            int lastTraderIndex = -1;
+
             while (true) {
                 Order order = parser.parseWithReuse(in);
                 if (order == null) break;
 
-                EnhancedOrderBook.OrderResponse response = book.processOrder(order);
+                if (!order.getUserId().equals(lastUserId)) {
+                    lastUserId = order.getUserId();
+                    lastTraderIndex = book.getRiskEngine().internTrader(lastUserId);
+                }
+                order.setTraderIndex(lastTraderIndex);
+                order.setSessionIndex(session);
+
+                RiskEngine.RiskCheckResult throttled = throttle.tryOrder(lastTraderIndex, session);
+                EnhancedOrderBook.OrderResponse response = throttled.isApproved()
+                        ? book.submitOrder(order)
+                        : EnhancedOrderBook.OrderResponse.rejected(order.getId(),
+                                throttled.getRejectCode(), throttled.getRejectReason());
+                if (response.isAccepted() && !book.awaitReplication(response)) {
+                    logger.warning("Replica ack timed out for order " + order.getId());
+                }
 
                 String logMessage = String.format(
                         "Remote Order: %d from %s - %s",
@@ -57,12 +81,22 @@ public class TradingServer {
 
                 if (!response.isAccepted()) {
                     System.out.println("  Reason: " + response.getRejectReason());
+                    writeReject(out, response);
                 }
             }
 
         } catch (Exception e) {
             logger.log(Level.INFO, "Client disconnected", e);
             System.out.println("Client disconnected: " + e.getMessage());
+        } finally {
+            throttle.closeSession(session);
         }
     }
+
+    /** Tell the client why an order was refused: {@code REJECT,<orderId>,<code>,<reason>}. */
+    private void writeReject(Writer out, EnhancedOrderBook.OrderResponse response) throws IOException {
+        out.write("REJECT," + response.getOrderId() + "," + response.getRejectCode() + ","
+                + response.getRejectReason() + "\n");
+        out.flush();
+    }
 }
\ No newline at end of file
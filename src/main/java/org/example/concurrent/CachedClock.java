@@ -0,0 +1,33 @@
+package org.example.concurrent;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coarse monotonic clock for hot paths that only need ~100 µs resolution
+ * (rate limiting, staleness checks). A daemon thread refreshes a volatile
+ * {@link System#nanoTime()} sample, so readers pay one volatile load instead
+ * of a clock call.
+ */
+public final class CachedClock {
+    private static final long RESOLUTION_NANOS = 100_000;
+
+    private static volatile long nanos = System.nanoTime();
+
+    static {
+        Thread ticker = new Thread(() -> {
+            while (true) {
+                nanos = System.nanoTime();
+                LockSupport.parkNanos(RESOLUTION_NANOS);
+            }
+        }, "CachedClock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private CachedClock() {}
+
+    /** Last sampled {@link System#nanoTime()}, at most about 100 µs old. */
+    public static long nanoTime() {
+        return nanos;
+    }
+}
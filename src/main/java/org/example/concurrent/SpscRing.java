@@ -0,0 +1,104 @@
+package org.example.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pre-allocated single-producer / single-consumer ring of mutable slots.
+ *
+ * The producer claims a slot, copies the fields it needs into it and publishes;
+ * the consumer drains published slots in batches and releases them with a single
+ * ordered write. Slots are reused, so nothing is allocated per message.
+ *
+ * "Single producer" means one thread at a time: several threads may produce as
+ * long as they are serialised by a lock (e.g. the order book monitor), which
+ * provides the required happens-before between them.
+ */
+public final class SpscRing<S> {
+    private final Object[] slots;
+    private final int mask;
+
+    // Next sequence to publish (written by producer, read by consumer)
+    private final AtomicLong tail = new AtomicLong();
+    // Next sequence to consume (written by consumer, read by producer)
+    private final AtomicLong head = new AtomicLong();
+
+    // Producer-local cache of head, consumer-local cache of tail
+    private long cachedHead;
+    private long cachedTail;
+
+    public SpscRing(int capacity, Supplier<S> slotFactory) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new Object[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = slotFactory.get();
+        }
+    }
+
+    /**
+     * Claim the next free slot, or return null if the ring is full.
+     * The slot must be filled and then made visible with {@link #publish()}.
+     */
+    @SuppressWarnings("unchecked")
+    public S claim() {
+        long t = tail.get();
+        if (t - cachedHead >= slots.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= slots.length) {
+                return null;
+            }
+        }
+        return (S) slots[(int) (t & mask)];
+    }
+
+    /**
+     * Publish the slot returned by the last successful {@link #claim()}.
+     */
+    public void publish() {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    /**
+     * Hand up to {@code maxBatch} published slots to the handler, then release
+     * them all at once. Returns the number of slots consumed.
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<S> handler, int maxBatch) {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail) {
+                return 0;
+            }
+        }
+
+        int count = (int) Math.min(cachedTail - h, maxBatch);
+        for (int i = 0; i < count; i++) {
+            handler.accept((S) slots[(int) ((h + i) & mask)]);
+        }
+        head.lazySet(h + count);
+        return count;
+    }
+
+    /** Total number of slots ever published (the next producer sequence). */
+    public long published() {
+        return tail.get();
+    }
+
+    /** Total number of slots ever consumed. */
+    public long consumed() {
+        return head.get();
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.fix;
+
+import org.example.risk.RiskEngine;
+import quickfix.Message;
+import quickfix.field.Account;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * FIX Account <-> internal user id, with O(1) lookups both ways.
+ *
+ * Well-known accounts keep their fixed ids; any other account gets the next
+ * id above the highest one in use, so ids never collide and stay dense.
+ * Each entry also carries the account's {@link Account} field, encoded once
+ * at registration and set as is on every outgoing report, and the account's
+ * risk-engine trader index once it has traded.
+ */
+public final class AccountRegistry {
+    public static final String DEFAULT_ACCOUNT = "DEFAULT";
+
+    private final Map<String, Entry> byAccount = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byUserId = new ConcurrentHashMap<>();
+    private final Entry defaultEntry;
+    private long nextId = 1; // guarded by this
+
+    public AccountRegistry() {
+        defaultEntry = register(DEFAULT_ACCOUNT, 1);
+        register("TRADER1", 1001);
+        register("TRADER2", 1002);
+    }
+
+    /** Entry for {@code account}, assigning the next free id the first time it is seen. */
+    public Entry resolve(String account) {
+        Entry entry = byAccount.get(account);
+        return entry != null ? entry : register(account, 0);
+    }
+
+    /** Entry whose user id is {@code userId}, or the DEFAULT account's entry. */
+    public Entry byUserId(String userId) {
+        Entry entry = byUserId.get(userId);
+        return entry != null ? entry : defaultEntry;
+    }
+
+    /** Entry for {@code account} if registered, else null. */
+    public Entry lookup(String account) {
+        return byAccount.get(account);
+    }
+
+    public int size() {
+        return byAccount.size();
+    }
+
+    /** Register {@code account} under {@code id}, or under the next free id if {@code id} is 0. */
+    public synchronized Entry register(String account, long id) {
+        Entry existing = byAccount.get(account);
+        if (existing != null) return existing;
+
+        if (id == 0) id = nextId;
+        String userId = Long.toString(id);
+        if (byUserId.containsKey(userId)) {
+            throw new IllegalArgumentException("User id " + id + " is already assigned to "
+                    + byUserId.get(userId).account());
+        }
+        nextId = Math.max(nextId, id + 1);
+
+        Entry entry = new Entry(account, userId);
+        byUserId.put(userId, entry);
+        byAccount.put(account, entry); // publishes the pre-encoded field
+        return entry;
+    }
+
+    /** One registered account. */
+    public static final class Entry {
+        private final String account;
+        private final String userId;
+        private final Account field;
+        private volatile int traderIndex = -1;
+
+        Entry(String account, String userId) {
+            this.account = account;
+            this.userId = userId;
+            this.field = new Account(account);
+            // Serialising once makes the field cache its tag=value text, length and checksum
+            Message encoder = new Message();
+            encoder.setField(field);
+            encoder.toString();
+        }
+
+        public String account() { return account; }
+        public String userId() { return userId; }
+
+        /** Shared, pre-encoded Account field; never modify it. */
+        public Account field() { return field; }
+
+        /** Risk-engine trader index, interned the first time it is asked for. */
+        public int traderIndex(RiskEngine riskEngine) {
+            int index = traderIndex;
+            if (index < 0) {
+                index = riskEngine.internTrader(userId);
+                traderIndex = index;
+            }
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s", account, userId);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.fix;
+
+import quickfix.Responder;
+
+/**
+ * Wraps a session's {@link Responder} so its sender thread can write a
+ * whole batch of messages to the socket at once.
+ *
+ * Between {@link #begin} and {@link #end}, messages the owning thread sends
+ * are only appended to a buffer; {@link #end} writes the buffer in one go.
+ * A message from any other thread (heartbeats, resends, logout) first
+ * flushes what is buffered, so the wire order always matches the order in
+ * which QuickFIX/J assigned sequence numbers.
+ */
+final class BatchingResponder implements Responder {
+    private final Responder delegate;
+    private final StringBuilder buffer = new StringBuilder(16 * 1024);
+    private Thread owner; // guarded by this
+
+    BatchingResponder(Responder delegate) {
+        this.delegate = delegate;
+    }
+
+    /** Start buffering what the calling thread sends. */
+    synchronized void begin() {
+        owner = Thread.currentThread();
+    }
+
+    /** Stop buffering and write the batch. */
+    synchronized boolean end() {
+        owner = null;
+        return flush();
+    }
+
+    @Override
+    public synchronized boolean send(String data) {
+        if (owner == Thread.currentThread()) {
+            buffer.append(data);
+            return true; // already stored by QuickFIX/J, so resendable if the write fails
+        }
+        flush();
+        return delegate.send(data);
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        flush();
+        delegate.disconnect();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return delegate.getRemoteAddress();
+    }
+
+    private boolean flush() {
+        if (buffer.isEmpty()) return true;
+        String batch = buffer.toString();
+        buffer.setLength(0);
+        return delegate.send(batch);
+    }
+}
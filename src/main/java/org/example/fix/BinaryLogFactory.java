@@ -0,0 +1,249 @@
+package org.example.fix;
+
+import org.example.concurrent.SpscRing;
+import quickfix.ConfigError;
+import quickfix.FileLogFactory;
+import quickfix.FileUtil;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.RuntimeError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous binary FIX message log, one {@code .binlog} file per session
+ * in the session's {@code FileLogPath}.
+ *
+ * Session threads only copy a reference to the message text, its kind and a
+ * timestamp into a pre-allocated ring and return; one writer thread for all
+ * sessions appends the records and flushes once per batch. Writers are
+ * serialised by the ring's monitor for a few field stores, so the ring is
+ * used as its single producer. A full ring drops the record and counts it
+ * rather than stall order entry: the session store still holds every
+ * outgoing message. Files are decoded offline with {@link BinaryLogReader}.
+ *
+ * File layout: {@code [int magic][int version][UTF session id]}, then
+ * records of {@code [byte kind][long epoch millis][int length][bytes]}.
+ */
+public final class BinaryLogFactory implements LogFactory {
+    static final int MAGIC = 0x5146424C; // "QFBL"
+    static final int VERSION = 1;
+
+    static final byte INCOMING = 0;
+    static final byte OUTGOING = 1;
+    static final byte EVENT = 2;
+    static final byte ERROR = 3;
+
+    private static final Logger LOGGER = Logger.getLogger(BinaryLogFactory.class.getName());
+
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    private final SessionSettings settings;
+    private final SpscRing<Slot> ring = new SpscRing<>(RING_CAPACITY, Slot::new);
+    private final List<SessionLog> logs = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long written;
+    private volatile long batches;
+    private volatile boolean running = true;
+    private final Thread writerThread;
+
+    public BinaryLogFactory(SessionSettings settings) {
+        this.settings = settings;
+        writerThread = new Thread(this::runWriter, "FIX-BinaryLog-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "FIX-BinaryLog-Shutdown"));
+    }
+
+    @Override
+    public Log create(SessionID sessionId) {
+        try {
+            Path directory = Path.of(settings.getString(sessionId, FileLogFactory.SETTING_FILE_LOG_PATH));
+            Files.createDirectories(directory);
+            SessionLog log = new SessionLog(sessionId,
+                    directory.resolve(FileUtil.sessionIdFileName(sessionId) + ".binlog"));
+            logs.add(log);
+            return log;
+        } catch (ConfigError | IOException e) {
+            throw new RuntimeError(e);
+        }
+    }
+
+    // ================= SESSION THREADS =================
+
+    private void append(SessionLog log, byte kind, String text) {
+        long now = System.currentTimeMillis();
+        synchronized (ring) {
+            Slot slot = ring.claim();
+            if (slot == null) {
+                dropped.incrementAndGet();
+                return;
+            }
+            slot.log = log;
+            slot.kind = kind;
+            slot.millis = now;
+            slot.text = text;
+            ring.publish();
+        }
+    }
+
+    // ================= WRITER THREAD =================
+
+    private void runWriter() {
+        while (running || ring.size() > 0) {
+            int drained = ring.drain(this::write, MAX_BATCH);
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            for (SessionLog log : logs) {
+                log.flush();
+            }
+            written += drained;
+            batches++;
+        }
+    }
+
+    private void write(Slot slot) {
+        slot.log.write(slot.kind, slot.millis, slot.text);
+        slot.log = null;
+        slot.text = null;
+    }
+
+    /** Write what is queued and close the files. */
+    public void close() {
+        if (!running) return;
+        running = false;
+        try {
+            writerThread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SessionLog log : logs) {
+            log.close();
+        }
+    }
+
+    // ================= METRICS =================
+
+    public Metrics getMetrics() {
+        return new Metrics(logs.size(), written, batches, dropped.get());
+    }
+
+    public record Metrics(int sessions, long written, long batches, long dropped) {
+        @Override
+        public String toString() {
+            return String.format("FIX binary log: %d sessions, %,d records in %,d batches, %,d dropped",
+                    sessions, written, batches, dropped);
+        }
+    }
+
+    // ================= LOG =================
+
+    private static final class Slot {
+        SessionLog log;
+        byte kind;
+        long millis;
+        String text;
+    }
+
+    /** The {@link Log} handed to one session; its file is only touched by the writer thread. */
+    private final class SessionLog implements Log {
+        private final SessionID sessionId;
+        private final DataOutputStream out;
+        private boolean dirty;
+        private boolean failed;
+
+        SessionLog(SessionID sessionId, Path file) throws IOException {
+            this.sessionId = sessionId;
+            boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file.toFile(), true), 64 * 1024));
+            if (fresh) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(sessionId.toString());
+                out.flush();
+            }
+        }
+
+        @Override
+        public void clear() {
+            // Keep the history; a sequence reset shows up in the logged messages
+        }
+
+        @Override
+        public void onIncoming(String message) {
+            append(this, INCOMING, message);
+        }
+
+        @Override
+        public void onOutgoing(String message) {
+            append(this, OUTGOING, message);
+        }
+
+        @Override
+        public void onEvent(String text) {
+            append(this, EVENT, text);
+        }
+
+        @Override
+        public void onErrorEvent(String text) {
+            append(this, ERROR, text);
+        }
+
+        void write(byte kind, long millis, String text) {
+            if (failed) return;
+            try {
+                byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+                out.writeByte(kind);
+                out.writeLong(millis);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                dirty = true;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        void flush() {
+            if (!dirty || failed) return;
+            try {
+                out.flush();
+                dirty = false;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        void close() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(IOException e) {
+            failed = true;
+            LOGGER.log(Level.SEVERE, "Binary log of " + sessionId + " stopped", e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.fix;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Offline decoder for the {@code .binlog} files written by {@link BinaryLogFactory}.
+ *
+ * Prints one line per record: UTC time, direction and the message with SOH
+ * shown as '|'. A record cut short by a crash ends the file quietly.
+ *
+ * Usage: {@code BinaryLogReader <file>... [--messages]} ({@code --messages}
+ * skips session events)
+ */
+public class BinaryLogReader {
+    private static final DateTimeFormatter TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HH:mm:ss.SSS").withZone(ZoneOffset.UTC);
+    private static final String[] KIND_NAMES = {"IN   ", "OUT  ", "EVENT", "ERROR"};
+
+    /** One decoded record. */
+    public record Entry(byte kind, long millis, String text) {
+        public boolean isMessage() {
+            return kind == BinaryLogFactory.INCOMING || kind == BinaryLogFactory.OUTGOING;
+        }
+
+        @Override
+        public String toString() {
+            String name = kind >= 0 && kind < KIND_NAMES.length ? KIND_NAMES[kind] : "?" + kind;
+            return TIME.format(Instant.ofEpochMilli(millis)) + " " + name + " " + text.replace('\u0001', '|');
+        }
+    }
+
+    private final String file;
+    private String sessionId;
+
+    public BinaryLogReader(String file) {
+        this.file = file;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BinaryLogReader <file>... [--messages]");
+            return;
+        }
+
+        boolean messagesOnly = false;
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--messages")) {
+                messagesOnly = true;
+            } else {
+                files.add(arg);
+            }
+        }
+
+        for (String file : files) {
+            BinaryLogReader reader = new BinaryLogReader(file);
+            boolean skipEvents = messagesOnly;
+            long records = reader.forEach(entry -> {
+                if (!skipEvents || entry.isMessage()) System.out.println(entry);
+            });
+            System.out.printf("=== %s (%s): %,d records ===%n", file, reader.getSessionId(), records);
+        }
+    }
+
+    /** Hand every record to {@code handler} in file order; returns the number of records. */
+    public long forEach(Consumer<Entry> handler) throws IOException {
+        long records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            if (in.readInt() != BinaryLogFactory.MAGIC || in.readInt() != BinaryLogFactory.VERSION) {
+                throw new IOException(file + " is not a version " + BinaryLogFactory.VERSION + " FIX binary log");
+            }
+            sessionId = in.readUTF();
+            while (true) {
+                byte kind;
+                try {
+                    kind = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    long millis = in.readLong();
+                    int length = in.readInt();
+                    if (length < 0) break; // damaged tail
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    handler.accept(new Entry(kind, millis, new String(bytes, StandardCharsets.ISO_8859_1)));
+                    records++;
+                } catch (EOFException e) {
+                    break; // torn last record
+                }
+            }
+        }
+        return records;
+    }
+
+    /** Session id from the file header, once {@link #forEach} has run. */
+    public String getSessionId() {
+        return sessionId;
+    }
+}
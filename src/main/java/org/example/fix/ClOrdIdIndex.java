@@ -0,0 +1,282 @@
+package org.example.fix;
+
+import java.util.function.LongPredicate;
+
+/**
+ * ClOrdID -> internal order id for one FIX session.
+ *
+ * Only working orders are kept live. An order leaves the live table when it
+ * reaches a terminal state the gateway sees (filled on entry, rejected,
+ * cancelled, replaced under a new ClOrdID) and moves to a bounded window of
+ * recent ClOrdIDs, so a late cancel is answered "too late" rather than
+ * "unknown order". Orders filled passively are found by a clock sweep: each
+ * insert checks the next few live slots against the book and retires those
+ * that are no longer active, so dead entries are reclaimed at least as fast
+ * as new ones arrive.
+ *
+ * ClOrdIDs that are plain decimal numbers are stored as longs; only other
+ * ClOrdIDs keep a String. Not thread-safe: a session's requests are handled
+ * one at a time under its lock.
+ */
+public final class ClOrdIdIndex {
+    public static final int DEFAULT_MAX_LIVE = 1 << 20;
+    public static final int DEFAULT_HISTORY = 1 << 14;
+    public static final long NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int SWEEP_STEP = 2;
+
+    private final String session;
+    private final LongPredicate isActive;
+    private final int maxLive;
+    private final Table live;
+    private final Table recent;
+
+    // FIFO of recent keys; numeric keys have a null text entry
+    private final long[] historyNumeric;
+    private final String[] historyText;
+    private int historyHead;
+    private int historySize;
+
+    private int sweepCursor;
+    private long retired;
+    private long swept;
+
+    /**
+     * @param isActive tells whether an internal order id is still working in
+     *                 the book; used to find orders filled passively
+     */
+    public ClOrdIdIndex(String session, LongPredicate isActive, int maxLive, int history) {
+        this.session = session;
+        this.isActive = isActive;
+        this.maxLive = maxLive;
+        this.live = new Table(Math.min(INITIAL_CAPACITY, tableCapacity(maxLive)));
+        this.recent = new Table(tableCapacity(history));
+        this.historyNumeric = new long[history];
+        this.historyText = new String[history];
+    }
+
+    public ClOrdIdIndex(String session, LongPredicate isActive) {
+        this(session, isActive, DEFAULT_MAX_LIVE, DEFAULT_HISTORY);
+    }
+
+    /** Internal id of the working order {@code clOrdId}, or {@link #NOT_FOUND}. */
+    public long lookup(String clOrdId) {
+        long numeric = numericKey(clOrdId);
+        return live.get(numeric, numeric < 0 ? clOrdId : null);
+    }
+
+    /** True if {@code clOrdId} reached a terminal state recently. */
+    public boolean isRecent(String clOrdId) {
+        long numeric = numericKey(clOrdId);
+        return recent.get(numeric, numeric < 0 ? clOrdId : null) != NOT_FOUND;
+    }
+
+    /** True if no more working orders fit, after retiring any the book no longer has. */
+    public boolean isFull() {
+        if (live.size >= maxLive) {
+            sweep(live.keys.length); // full pass; only when the window is exhausted
+        }
+        return live.size >= maxLive;
+    }
+
+    /** Index a working order. The caller checks {@link #isFull} and duplicates first. */
+    public void add(String clOrdId, long orderId) {
+        sweep(SWEEP_STEP);
+        long numeric = numericKey(clOrdId);
+        String text = numeric < 0 ? clOrdId : null;
+        if (live.size + 1 > live.keys.length / 2) {
+            live.grow();
+        }
+        live.put(numeric, text, orderId);
+    }
+
+    /** Move {@code clOrdId} to the recent window; it may or may not be live. */
+    public void retire(String clOrdId, long orderId) {
+        long numeric = numericKey(clOrdId);
+        String text = numeric < 0 ? clOrdId : null;
+        live.remove(numeric, text);
+        remember(numeric, text, orderId);
+    }
+
+    public int liveSize() {
+        return live.size;
+    }
+
+    public int recentSize() {
+        return historySize;
+    }
+
+    // ================= EVICTION =================
+
+    /** Check the next {@code steps} live slots and retire orders the book no longer has. */
+    private void sweep(int steps) {
+        if (live.size == 0) return;
+        int mask = live.keys.length - 1;
+        for (int step = 0; step < steps; step++) {
+            int slot = sweepCursor & mask;
+            if (live.used[slot] && !isActive.test(live.values[slot])) {
+                long numeric = live.keys[slot];
+                String text = live.texts[slot];
+                long orderId = live.values[slot];
+                live.removeAt(slot); // a later entry may shift into this slot; look again next time
+                remember(numeric, text, orderId);
+                swept++;
+            } else {
+                sweepCursor = (slot + 1) & mask;
+            }
+        }
+    }
+
+    private void remember(long numeric, String text, long orderId) {
+        retired++;
+        if (recent.get(numeric, text) != NOT_FOUND) return;
+        if (historySize == historyNumeric.length) {
+            int oldest = historyHead;
+            recent.remove(historyNumeric[oldest], historyText[oldest]);
+            historyText[oldest] = null;
+            historyHead = (historyHead + 1) % historyNumeric.length;
+            historySize--;
+        }
+        int tail = (historyHead + historySize) % historyNumeric.length;
+        historyNumeric[tail] = numeric;
+        historyText[tail] = text;
+        historySize++;
+        recent.put(numeric, text, orderId);
+    }
+
+    /** Value of an all-digit ClOrdID that fits a long without loss, else -1. */
+    static long numericKey(String clOrdId) {
+        int length = clOrdId.length();
+        if (length == 0 || length > 18 || (clOrdId.charAt(0) == '0' && length > 1)) return -1;
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = clOrdId.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int tableCapacity(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries) * 2 - 1) * 2;
+    }
+
+    // ================= METRICS =================
+
+    public Metrics metrics() {
+        return new Metrics(session, live.size, live.keys.length, live.textCount, historySize, retired, swept);
+    }
+
+    public record Metrics(String session, int live, int liveSlots, int textKeys,
+                          int recent, long retired, long swept) {
+        @Override
+        public String toString() {
+            return String.format("%s: %,d live (%,d slots, %,d non-numeric), %,d recent, %,d retired (%,d by sweep)",
+                    session, live, liveSlots, textKeys, recent, retired, swept);
+        }
+    }
+
+    // ================= TABLE =================
+
+    /**
+     * Open-addressing map with linear probing and backward-shift deletion.
+     * A key is a non-negative long, or a String when {@code texts[slot]} is set.
+     */
+    private static final class Table {
+        long[] keys;
+        String[] texts;
+        long[] values;
+        boolean[] used;
+        int size;
+        int textCount;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            texts = new String[capacity];
+            values = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        long get(long numeric, String text) {
+            int mask = keys.length - 1;
+            for (int slot = hash(numeric, text) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (matches(slot, numeric, text)) return values[slot];
+            }
+            return NOT_FOUND;
+        }
+
+        void put(long numeric, String text, long value) {
+            int mask = keys.length - 1;
+            int slot = hash(numeric, text) & mask;
+            while (used[slot]) {
+                if (matches(slot, numeric, text)) {
+                    values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = numeric;
+            texts[slot] = text;
+            values[slot] = value;
+            size++;
+            if (text != null) textCount++;
+        }
+
+        void remove(long numeric, String text) {
+            int mask = keys.length - 1;
+            for (int slot = hash(numeric, text) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (matches(slot, numeric, text)) {
+                    removeAt(slot);
+                    return;
+                }
+            }
+        }
+
+        void removeAt(int slot) {
+            int mask = keys.length - 1;
+            if (texts[slot] != null) textCount--;
+            size--;
+            // Shift later entries of the probe run back so lookups never stop early
+            int hole = slot;
+            for (int next = (hole + 1) & mask; used[next]; next = (next + 1) & mask) {
+                int home = hash(keys[next], texts[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    texts[hole] = texts[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            used[hole] = false;
+            texts[hole] = null;
+        }
+
+        void grow() {
+            long[] oldKeys = keys;
+            String[] oldTexts = texts;
+            long[] oldValues = values;
+            boolean[] oldUsed = used;
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            texts = new String[capacity];
+            values = new long[capacity];
+            used = new boolean[capacity];
+            size = 0;
+            textCount = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldTexts[i], oldValues[i]);
+            }
+        }
+
+        private boolean matches(int slot, long numeric, String text) {
+            return text == null ? texts[slot] == null && keys[slot] == numeric : text.equals(texts[slot]);
+        }
+
+        private static int hash(long numeric, String text) {
+            long h = text == null ? numeric * 0x9E3779B97F4A7C15L : text.hashCode() * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
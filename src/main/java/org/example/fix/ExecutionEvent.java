@@ -0,0 +1,87 @@
+package org.example.fix;
+
+import org.example.Order;
+import org.example.Trade;
+import quickfix.field.ExecType;
+import quickfix.field.OrdStatus;
+import quickfix.field.Side;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What an ExecutionReport should say, captured on the order-entry or
+ * matching thread.
+ *
+ * Prices are in cents, the average price in hundredths of a cent and
+ * quantities in shares, exactly as the book holds them; turning them into
+ * FIX text is left to the session's {@link ExecutionReportBuilder}. A zero
+ * order quantity or price, no last fill, a null account and a {@link #NONE}
+ * reject reason are left out of the report.
+ *
+ * The ExecID is drawn when the event is captured, so every report built from
+ * one event (the owner's and its drop copies) carries the same ExecID.
+ */
+record ExecutionEvent(long execId, char execType, char ordStatus, String clOrdId, String origClOrdId,
+                      long orderId, char side, long orderQty, long price,
+                      long cumQty, long leavesQty, long avgPx, long lastQty, long lastPx,
+                      AccountRegistry.Entry account, int ordRejReason, String text,
+                      long transactMillis) {
+
+    static final int NONE = -1;
+
+    // Unique across sessions and, being seeded from the clock, across restarts
+    private static final AtomicLong NEXT_EXEC_ID = new AtomicLong(System.currentTimeMillis() * 1_000);
+
+    /** The order is working: a new order, or the replacement of {@code origClOrdId}. */
+    static ExecutionEvent accepted(Order order, AccountRegistry.Entry account) {
+        String origClOrdId = order.getOrigClientOrderId();
+        return of(order, origClOrdId != null ? ExecType.REPLACED : ExecType.NEW, workingStatus(order),
+                order.getClientOrderId(), origClOrdId, order.getQuantity(), 0, 0, account,
+                NONE, null, System.currentTimeMillis());
+    }
+
+    /**
+     * One fill of {@code order}, aggressive or passive; the order already
+     * includes it. Orders entered outside FIX go by their internal order id.
+     */
+    static ExecutionEvent fill(Order order, Trade trade, AccountRegistry.Entry account) {
+        String clOrdId = order.getClientOrderId() != null ? order.getClientOrderId() : Long.toString(order.getId());
+        return of(order, ExecType.TRADE, order.getQuantity() == 0 ? OrdStatus.FILLED : workingStatus(order),
+                clOrdId, null, order.getQuantity(), trade.quantity(), trade.price(),
+                account, NONE, null, trade.timestamp());
+    }
+
+    /** The order was refused before it reached the book. */
+    static ExecutionEvent rejected(Order order, String clOrdId, AccountRegistry.Entry account,
+                                   int ordRejReason, String text) {
+        return of(order, ExecType.REJECTED, OrdStatus.REJECTED, clOrdId, null, 0, 0, 0,
+                account, ordRejReason, text, System.currentTimeMillis());
+    }
+
+    /** The order was cancelled at the client's request. */
+    static ExecutionEvent cancelled(Order order, String clOrdId, String origClOrdId,
+                                    AccountRegistry.Entry account) {
+        return of(order, ExecType.CANCELED, OrdStatus.CANCELED, clOrdId, origClOrdId, 0, 0, 0,
+                account, NONE, null, System.currentTimeMillis());
+    }
+
+    /** The book cancelled the order on its own (kill switch, failed replace); {@code text} says why. */
+    static ExecutionEvent pulled(Order order, AccountRegistry.Entry account, String text) {
+        return of(order, ExecType.CANCELED, OrdStatus.CANCELED, order.getClientOrderId(), null, 0, 0, 0,
+                account, NONE, text, System.currentTimeMillis());
+    }
+
+    private static ExecutionEvent of(Order order, char execType, char ordStatus, String clOrdId,
+                                     String origClOrdId, long leavesQty, long lastQty, long lastPx,
+                                     AccountRegistry.Entry account, int ordRejReason, String text,
+                                     long transactMillis) {
+        return new ExecutionEvent(NEXT_EXEC_ID.incrementAndGet(), execType, ordStatus, clOrdId, origClOrdId, order.getId(),
+                order.getSide() == Order.Side.BUY ? Side.BUY : Side.SELL,
+                order.getOrderQty(), order.getPrice(), order.getCumQty(), leavesQty, order.getAvgPx(),
+                lastQty, lastPx, account, ordRejReason, text, transactMillis);
+    }
+
+    private static char workingStatus(Order order) {
+        return order.getCumQty() > 0 ? OrdStatus.PARTIALLY_FILLED : OrdStatus.NEW;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.fix;
+
+import quickfix.IntField;
+import quickfix.StringField;
+import quickfix.field.*;
+import quickfix.fix44.ExecutionReport;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Turns {@link ExecutionEvent}s into ExecutionReports on a session's sender
+ * thread.
+ *
+ * The same report and field objects are filled in for every event, and the
+ * TransactTime text is rebuilt only when the millisecond changes, so a
+ * report costs little more than its number-to-text conversions. The report
+ * returned by {@link #build} is only valid until the next call. Not
+ * thread-safe: each {@link SessionSender} owns one.
+ */
+final class ExecutionReportBuilder {
+    private static final String SYMBOL = "TEST";
+    private static final int AVG_PX_SCALE = 4; // Order.getAvgPx() is in hundredths of a cent
+    private static final DateTimeFormatter SECOND =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HH:mm:ss.").withZone(ZoneOffset.UTC);
+
+    private final ExecutionReport report = new ExecutionReport();
+
+    private final OrderID orderId = new OrderID();
+    private final ExecID execId = new ExecID();
+    private final ExecType execType = new ExecType();
+    private final OrdStatus ordStatus = new OrdStatus();
+    private final Side side = new Side();
+    private final ClOrdID clOrdId = new ClOrdID();
+    private final OrigClOrdID origClOrdId = new OrigClOrdID();
+    private final StringField leavesQty = new StringField(LeavesQty.FIELD);
+    private final StringField cumQty = new StringField(CumQty.FIELD);
+    private final StringField avgPx = new StringField(AvgPx.FIELD);
+    private final StringField orderQty = new StringField(OrderQty.FIELD);
+    private final StringField price = new StringField(Price.FIELD);
+    private final StringField lastQty = new StringField(LastQty.FIELD);
+    private final StringField lastPx = new StringField(LastPx.FIELD);
+    private final StringField transactTime = new StringField(TransactTime.FIELD);
+    private final IntField ordRejReason = new IntField(OrdRejReason.FIELD);
+    private final Text text = new Text();
+
+    // "yyyyMMdd-HH:mm:ss.SSS", rewritten in place as time moves on
+    private final char[] timestamp = new char[21];
+    private long timestampSecond = Long.MIN_VALUE;
+    private long timestampMillis = Long.MIN_VALUE;
+    private String timestampText;
+
+    ExecutionReportBuilder() {
+        report.set(new Symbol(SYMBOL));
+    }
+
+    /** Fill the shared report from {@code event}. */
+    ExecutionReport build(ExecutionEvent event) {
+        orderId.setValue(Long.toString(event.orderId()));
+        execId.setValue(Long.toString(event.execId()));
+        execType.setValue(event.execType());
+        ordStatus.setValue(event.ordStatus());
+        side.setValue(event.side());
+        clOrdId.setValue(event.clOrdId());
+        leavesQty.setValue(FixDecimal.format(event.leavesQty(), 0));
+        cumQty.setValue(FixDecimal.format(event.cumQty(), 0));
+        avgPx.setValue(FixDecimal.format(event.avgPx(), AVG_PX_SCALE));
+        transactTime.setValue(timestamp(event.transactMillis()));
+
+        report.set(orderId);
+        report.set(execId);
+        report.set(execType);
+        report.set(ordStatus);
+        report.set(side);
+        report.set(clOrdId);
+        report.setField(leavesQty);
+        report.setField(cumQty);
+        report.setField(avgPx);
+        report.setField(transactTime);
+
+        if (event.origClOrdId() != null) {
+            origClOrdId.setValue(event.origClOrdId());
+            report.set(origClOrdId);
+        } else {
+            report.removeField(OrigClOrdID.FIELD);
+        }
+        setOrRemove(orderQty, event.orderQty() != 0 ? FixDecimal.format(event.orderQty(), 0) : null);
+        setOrRemove(price, event.price() != 0 ? FixDecimal.formatPrice(event.price()) : null);
+        setOrRemove(lastQty, event.lastQty() != 0 ? FixDecimal.format(event.lastQty(), 0) : null);
+        setOrRemove(lastPx, event.lastQty() != 0 ? FixDecimal.formatPrice(event.lastPx()) : null);
+
+        if (event.account() != null) {
+            report.set(event.account().field());
+        } else {
+            report.removeField(Account.FIELD);
+        }
+        if (event.ordRejReason() != ExecutionEvent.NONE) {
+            ordRejReason.setValue(event.ordRejReason());
+            report.setField(ordRejReason);
+        } else {
+            report.removeField(OrdRejReason.FIELD);
+        }
+        if (event.text() != null) {
+            text.setValue(event.text());
+            report.set(text);
+        } else {
+            report.removeField(Text.FIELD);
+        }
+        return report;
+    }
+
+    private void setOrRemove(StringField field, String value) {
+        if (value != null) {
+            field.setValue(value);
+            report.setField(field);
+        } else {
+            report.removeField(field.getField());
+        }
+    }
+
+    /** UTC timestamp text of {@code millis}; the date part is formatted once a second. */
+    private String timestamp(long millis) {
+        if (millis == timestampMillis) return timestampText;
+        long second = Math.floorDiv(millis, 1_000);
+        if (second != timestampSecond) {
+            SECOND.format(Instant.ofEpochSecond(second)).getChars(0, 18, timestamp, 0);
+            timestampSecond = second;
+        }
+        int fraction = Math.floorMod(millis, 1_000);
+        timestamp[18] = (char) ('0' + fraction / 100);
+        timestamp[19] = (char) ('0' + fraction / 10 % 10);
+        timestamp[20] = (char) ('0' + fraction % 10);
+        timestampMillis = millis;
+        timestampText = new String(timestamp);
+        return timestampText;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.fix;
+
+/**
+ * Allocation-free decoding of FIX decimal fields (Price, OrderQty, ...) into
+ * fixed-point longs.
+ *
+ * The value is read character by character straight from the field text, so
+ * there is no {@code double} round trip and no {@code BigDecimal}. Values that
+ * cannot be represented exactly at the requested scale are refused instead
+ * of being truncated: "100.255" is not a price in cents, while "100.2500" is.
+ */
+public final class FixDecimal {
+
+    /** Returned for malformed, unrepresentable or out-of-range values. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final int PRICE_SCALE = 2; // cents
+
+    private FixDecimal() {}
+
+    /**
+     * Parse {@code text} as a count of 10^-{@code scale} units, e.g. scale 2
+     * turns "101.25" into 10125. Returns {@link #INVALID} if the text is not a
+     * FIX decimal, has non-zero digits beyond {@code scale}, or overflows.
+     */
+    public static long parse(CharSequence text, int scale) {
+        int length = text.length();
+        if (length == 0) return INVALID;
+
+        int i = 0;
+        boolean negative = false;
+        char first = text.charAt(0);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == length) return INVALID;
+        }
+
+        long value = 0;
+        int fractionDigits = -1; // -1 until the decimal point is seen
+        boolean anyDigit = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                if (fractionDigits >= 0) return INVALID;
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) return INVALID;
+            anyDigit = true;
+
+            if (fractionDigits >= 0 && fractionDigits >= scale) {
+                if (digit != 0) return INVALID; // precision beyond the scale
+                continue;
+            }
+            if (value > (Long.MAX_VALUE - digit) / 10) return INVALID;
+            value = value * 10 + digit;
+            if (fractionDigits >= 0) fractionDigits++;
+        }
+        if (!anyDigit) return INVALID;
+
+        for (int d = Math.max(fractionDigits, 0); d < scale; d++) {
+            if (value > Long.MAX_VALUE / 10) return INVALID;
+            value *= 10;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a price into cents and check it is positive and on the
+     * instrument's tick grid. Returns {@link #INVALID} otherwise.
+     */
+    public static long parsePrice(CharSequence text, long tickSize) {
+        long cents = parse(text, PRICE_SCALE);
+        if (cents == INVALID || cents <= 0 || cents % tickSize != 0) return INVALID;
+        return cents;
+    }
+
+    /** Parse a whole, positive quantity. Returns {@link #INVALID} otherwise. */
+    public static long parseQuantity(CharSequence text) {
+        long quantity = parse(text, 0);
+        return quantity > 0 ? quantity : INVALID;
+    }
+
+    /**
+     * Format a count of 10^-{@code scale} units as FIX decimal text, the
+     * inverse of {@link #parse}: 10125 at scale 2 is "101.25". Trailing
+     * fraction zeros are dropped, so 10100 is "101".
+     */
+    public static String format(long value, int scale) {
+        if (scale == 0 || value == Long.MIN_VALUE) return Long.toString(value);
+        char[] digits = new char[21 + scale];
+        int pos = digits.length;
+        long remaining = Math.abs(value);
+        boolean significant = false;
+        for (int d = 0; d < scale; d++) {
+            int digit = (int) (remaining % 10);
+            remaining /= 10;
+            if (digit != 0 || significant) {
+                digits[--pos] = (char) ('0' + digit);
+                significant = true;
+            }
+        }
+        if (significant) digits[--pos] = '.';
+        do {
+            digits[--pos] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) digits[--pos] = '-';
+        return new String(digits, pos, digits.length - pos);
+    }
+
+    /** Format a price in cents, e.g. 10125 as "101.25". */
+    public static String formatPrice(long cents) {
+        return format(cents, PRICE_SCALE);
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.fix;
+
+import org.example.concurrent.SpscRing;
+import org.example.metrics.LatencyHistogram;
+import quickfix.BooleanField;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.CopyMsgIndicator;
+import quickfix.fix44.ExecutionReport;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Drop-copy FIX session: receives a report, flagged CopyMsgIndicator=Y, of
+ * every fill in the book, whichever gateway entered the order. Fills of FIX
+ * orders carry the same ExecID as the report their owner received.
+ *
+ * The matching thread only stores a reference to the fill's
+ * {@link ExecutionEvent}, shared with the owner's session, in a
+ * pre-allocated ring and returns. The drop-copy session's own thread builds
+ * and sends the reports in batches, so a slow or disconnected middle office
+ * never holds up matching or the trading sessions. The ring is bounded: when
+ * it is full a copy is dropped and counted rather than block the book.
+ *
+ * Reports are sent whether or not the session is logged on. QuickFIX/J
+ * stores every one under its sequence number, so a drop-copy client that
+ * reconnects sees the gap and recovers it with a ResendRequest, served from
+ * the session store. The session therefore keeps its sequence numbers across
+ * logons (ResetOnLogon=N).
+ */
+public final class FixDropCopy {
+    public static final String SETTING = "DropCopy";
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final Logger LOGGER = Logger.getLogger(FixDropCopy.class.getName());
+
+    private static final int MAX_BATCH = 64;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final SessionID sessionId;
+    private final SpscRing<Slot> ring;
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Used by the drop-copy thread only
+    private final ExecutionReportBuilder reports = new ExecutionReportBuilder();
+    private final BooleanField copyMsgIndicator = new BooleanField(CopyMsgIndicator.FIELD, true);
+    private final LatencyHistogram copyLatency = new LatencyHistogram(); // fill -> written
+    private volatile long sent;
+    private volatile long stored;
+    private volatile long batches;
+
+    public FixDropCopy(SessionID sessionId, int capacity) {
+        this.sessionId = sessionId;
+        this.ring = new SpscRing<>(capacity, Slot::new);
+        Thread thread = new Thread(this::run, "FIX-DropCopy-" + sessionId);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public FixDropCopy(SessionID sessionId) {
+        this(sessionId, DEFAULT_CAPACITY);
+    }
+
+    public SessionID getSessionId() {
+        return sessionId;
+    }
+
+    // ================= MATCHING THREAD =================
+
+    /** Queue a copy of {@code fill}; called with the order book's monitor held. Never blocks. */
+    void publish(ExecutionEvent fill) {
+        Slot slot = ring.claim();
+        if (slot == null) {
+            if (dropped.incrementAndGet() == 1) {
+                LOGGER.severe(() -> "[FIX] Drop copy " + sessionId + " is full, dropping fills");
+            }
+            return;
+        }
+        slot.fill = fill;
+        slot.published = System.nanoTime();
+        ring.publish();
+    }
+
+    // ================= DROP-COPY THREAD =================
+
+    /** The session logged on: wrap the new connection's responder for batched writes. */
+    public void onLogon() {
+        Session session = Session.lookupSession(sessionId);
+        if (session == null) return;
+        if (session.getResponder() != null && !(session.getResponder() instanceof BatchingResponder)) {
+            session.setResponder(new BatchingResponder(session.getResponder()));
+        }
+    }
+
+    private void run() {
+        while (true) {
+            if (ring.size() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            Session session = Session.lookupSession(sessionId);
+            BatchingResponder responder = session != null && session.getResponder() instanceof BatchingResponder b
+                    ? b : null;
+            if (responder != null) responder.begin();
+            try {
+                ring.drain(slot -> copy(session, slot), MAX_BATCH);
+            } finally {
+                if (responder != null) responder.end();
+            }
+            batches++;
+        }
+    }
+
+    private void copy(Session session, Slot slot) {
+        try {
+            ExecutionReport report = reports.build(slot.fill);
+            report.getHeader().setField(copyMsgIndicator);
+            if (session != null && session.send(report)) {
+                sent++;
+            } else {
+                stored++; // not logged on; stored for resend if the session exists
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warning(() -> "[FIX] Drop copy " + sessionId + " could not send a fill: " + e);
+        }
+        copyLatency.record(System.nanoTime() - slot.published);
+        slot.fill = null;
+    }
+
+    // ================= METRICS =================
+
+    /** Approximate snapshot; the histogram is read while the drop-copy thread records. */
+    public Metrics getMetrics() {
+        return new Metrics(sessionId.toString(), ring.size(), sent, stored, dropped.get(), batches,
+                copyLatency.toString());
+    }
+
+    public record Metrics(String session, int queueDepth, long sent, long storedForResend, long dropped,
+                          long batches, String copyLatency) {
+        @Override
+        public String toString() {
+            return String.format("%s: queue %,d, sent %,d, stored for resend %,d, dropped %,d, %,d batches%n"
+                            + "  fill -> written: %s",
+                    session, queueDepth, sent, storedForResend, dropped, batches, copyLatency);
+        }
+    }
+
+    private static final class Slot {
+        ExecutionEvent fill;
+        long published;
+    }
+}
@@ -0,0 +1,348 @@
+package org.example.fix;
+
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
+import quickfix.FieldConvertError;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.field.OrdType;
+import quickfix.mina.SessionConnector;
+import quickfix.mina.acceptor.AbstractSocketAcceptor;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Order-entry fast path in front of QuickFIX/J.
+ *
+ * Installed as a MINA filter right after the FIX codec, it sees every framed
+ * inbound message as text. NewOrderSingle, OrderCancelRequest and
+ * OrderCancelReplaceRequest are decoded in one pass with a tag lookup table
+ * into the session's reusable {@link FixOrderCommand} and handed to the
+ * gateway directly, skipping QuickFIX/J's message objects and its event
+ * queue. Everything else, and any order message the fast path cannot take
+ * safely, continues down the chain to QuickFIX/J unchanged.
+ *
+ * QuickFIX/J still owns the session layer. A message is only taken when the
+ * session is logged on, QuickFIX/J has nothing queued, the MsgSeqNum is
+ * exactly the next expected one, the message is not a PossDup, its header,
+ * CompIDs and checksum are correct, SendingTime is within the session's
+ * MaxLatency (when CheckLatency is on), TransactTime is a valid timestamp and
+ * OrdType is a value of the session's data dictionary; the fast path then
+ * advances the target sequence number and logs the message itself. Gaps,
+ * resends and rejects are left to QuickFIX/J, which sees the message that
+ * failed a check. Other fields are checked only as far as the gateway uses
+ * them, not against the full data dictionary.
+ *
+ * QuickFIX/J only counts traffic it processed itself as received, so at
+ * least one in-sync message every {@link #RECEIVED_REFRESH_NANOS} is left to
+ * it. That keeps the session's last-received time current, and its heartbeat
+ * monitor from sending TestRequests to a counterparty that is only busy.
+ *
+ * Disabled ({@code FastPath=N}) the filter only timestamps arrivals, so the
+ * gateway's latency histograms compare both paths from the same point.
+ */
+public class FixFastPath extends IoFilterAdapter {
+    public static final String FILTER_NAME = "FixFastPath";
+    /** Session setting that enables the fast path (Y/N, default N). */
+    public static final String SETTING = "FastPath";
+
+    private static final Logger LOGGER = Logger.getLogger(FixFastPath.class.getName());
+    private static final char SOH = '\u0001';
+    private static final long RECEIVED_REFRESH_NANOS = 1_000_000_000L;
+
+    // ================= TAG TABLE =================
+
+    static final int BEGIN_STRING = 0;   // 8
+    static final int CHECKSUM = 1;       // 10
+    static final int ACCOUNT = 2;        // 1
+    static final int CL_ORD_ID = 3;      // 11
+    static final int MSG_SEQ_NUM = 4;    // 34
+    static final int MSG_TYPE = 5;       // 35
+    static final int ORDER_QTY = 6;      // 38
+    static final int ORD_TYPE = 7;       // 40
+    static final int ORIG_CL_ORD_ID = 8; // 41
+    static final int POSS_DUP = 9;       // 43
+    static final int PRICE = 10;         // 44
+    static final int SENDER_COMP_ID = 11; // 49
+    static final int SENDING_TIME = 12;  // 52
+    static final int SIDE = 13;          // 54
+    static final int SYMBOL = 14;        // 55
+    static final int TARGET_COMP_ID = 15; // 56
+    static final int TRANSACT_TIME = 16; // 60
+    static final int SLOT_COUNT = 17;
+
+    /** Slot + 1 for each tag the fast path reads, 0 for tags it skips. */
+    private static final byte[] SLOT_BY_TAG = new byte[64];
+
+    static {
+        int[][] tags = {
+                {8, BEGIN_STRING}, {10, CHECKSUM}, {1, ACCOUNT}, {11, CL_ORD_ID},
+                {34, MSG_SEQ_NUM}, {35, MSG_TYPE}, {38, ORDER_QTY}, {40, ORD_TYPE},
+                {41, ORIG_CL_ORD_ID}, {43, POSS_DUP}, {44, PRICE}, {49, SENDER_COMP_ID},
+                {52, SENDING_TIME}, {54, SIDE}, {55, SYMBOL}, {56, TARGET_COMP_ID},
+                {60, TRANSACT_TIME}};
+        for (int[] tag : tags) {
+            SLOT_BY_TAG[tag[0]] = (byte) (tag[1] + 1);
+        }
+    }
+
+    private final FixGateway gateway;
+    private final AbstractSocketAcceptor acceptor;
+    private final boolean enabled;
+    // SendingTime accuracy per session, from CheckLatency / MaxLatency
+    private final Map<SessionID, Long> maxLatencyMillis = new HashMap<>();
+
+    public FixFastPath(FixGateway gateway, AbstractSocketAcceptor acceptor, SessionSettings settings,
+                       boolean enabled) throws ConfigError, FieldConvertError {
+        this.gateway = gateway;
+        this.acceptor = acceptor;
+        this.enabled = enabled;
+        for (Iterator<SessionID> sessions = settings.sectionIterator(); sessions.hasNext(); ) {
+            SessionID sessionId = sessions.next();
+            boolean checkLatency = !settings.isSetting(sessionId, Session.SETTING_CHECK_LATENCY)
+                    || settings.getBool(sessionId, Session.SETTING_CHECK_LATENCY);
+            long maxLatency = settings.isSetting(sessionId, Session.SETTING_MAX_LATENCY)
+                    ? settings.getLong(sessionId, Session.SETTING_MAX_LATENCY)
+                    : Session.DEFAULT_MAX_LATENCY;
+            maxLatencyMillis.put(sessionId, checkLatency ? maxLatency * 1_000 : Long.MAX_VALUE);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ================= FILTER =================
+
+    @Override
+    public void messageReceived(NextFilter nextFilter, IoSession ioSession, Object message) throws Exception {
+        long received = System.nanoTime();
+        Session session = (Session) ioSession.getAttribute(SessionConnector.QF_SESSION);
+        if (message instanceof String text && session != null && tryFastPath(session, text, received)) {
+            return;
+        }
+        nextFilter.messageReceived(ioSession, message);
+    }
+
+    private boolean tryFastPath(Session session, String text, long received) {
+        SessionID sessionId = session.getSessionID();
+        FixGateway.SessionContext context = gateway.context(sessionId);
+        synchronized (context) {
+            FixOrderCommand command = context.command;
+            if (enabled && gateway.acceptsOrders(sessionId) && decode(text, command)
+                    && isInSync(session, sessionId, command) && isValid(session, sessionId, command)
+                    && received - context.lastQuickFixNanos < RECEIVED_REFRESH_NANOS) {
+                try {
+                    session.setNextTargetMsgSeqNum(command.msgSeqNum + 1);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "[FIX] Fast path could not store sequence number, using QuickFIX/J", e);
+                    return false;
+                }
+                session.getLog().onIncoming(text);
+                command.setReceived(received, true);
+                gateway.handle(command, sessionId);
+                return true;
+            }
+            if (!enabled) {
+                command.msgSeqNum = decodeSeqNum(text);
+            }
+            context.stampIngress(command.msgSeqNum, received);
+            context.lastQuickFixNanos = received;
+            return false;
+        }
+    }
+
+    /** Session-level conditions under which QuickFIX/J would accept the message as is. */
+    private boolean isInSync(Session session, SessionID sessionId, FixOrderCommand command) {
+        return session.isLoggedOn()
+                && acceptor.getQueueSize() == 0
+                && command.msgSeqNum == session.getExpectedTargetNum()
+                && command.fieldEquals(BEGIN_STRING, sessionId.getBeginString())
+                && command.fieldEquals(SENDER_COMP_ID, sessionId.getTargetCompID())
+                && command.fieldEquals(TARGET_COMP_ID, sessionId.getSenderCompID());
+    }
+
+    /** The checks QuickFIX/J's validation would make on the fields the decoder does not use itself. */
+    private boolean isValid(Session session, SessionID sessionId, FixOrderCommand command) {
+        long latency = Math.abs(System.currentTimeMillis() - command.sendingTime);
+        if (latency > maxLatencyMillis.getOrDefault(sessionId, Session.DEFAULT_MAX_LATENCY * 1_000L)) {
+            return false;
+        }
+        if (command.msgType == 'F' || !session.isUsingDataDictionary()) return true;
+        DataDictionary dictionary = session.getDataDictionary();
+        return dictionary == null
+                || dictionary.isFieldValue(OrdType.FIELD, cut(command.source, command, ORD_TYPE));
+    }
+
+    // ================= DECODER =================
+
+    /**
+     * Decode a framed FIX message into {@code command}. Returns true only for
+     * a well-formed D, F or G with a correct checksum, every field the gateway
+     * needs, and no PossDupFlag; the session checks are the caller's.
+     * {@link FixOrderCommand#getMsgSeqNum()} is set whenever tag 34 was read.
+     */
+    public static boolean decode(String text, FixOrderCommand command) {
+        int[] start = command.fieldStart;
+        int[] end = command.fieldEnd;
+        Arrays.fill(start, -1);
+        command.source = text;
+        command.msgSeqNum = 0;
+
+        int length = text.length();
+        int sum = 0;
+        int i = 0;
+        while (i < length) {
+            int fieldSum = sum;
+            int tag = 0;
+            char c;
+            while (i < length && (c = text.charAt(i)) != '=') {
+                int digit = c - '0';
+                if (digit < 0 || digit > 9 || tag > 99_999) return false;
+                tag = tag * 10 + digit;
+                sum += c;
+                i++;
+            }
+            if (i == length || tag == 0) return false;
+            sum += '=';
+            int valueStart = ++i;
+            while (i < length && (c = text.charAt(i)) != SOH) {
+                sum += c;
+                i++;
+            }
+            if (i == length || i == valueStart) return false;
+            int valueEnd = i++;
+            sum += SOH;
+
+            int slot = tag < SLOT_BY_TAG.length ? SLOT_BY_TAG[tag] - 1 : -1;
+            if (slot < 0) continue;
+            if (start[slot] >= 0) return false; // repeated field
+            start[slot] = valueStart;
+            end[slot] = valueEnd;
+            if (slot == MSG_SEQ_NUM) {
+                command.msgSeqNum = parseInt(text, valueStart, valueEnd);
+            } else if (slot == CHECKSUM) {
+                if (i != length || parseInt(text, valueStart, valueEnd) != (fieldSum & 0xFF)) return false;
+            }
+        }
+        return start[CHECKSUM] >= 0 && readOrderFields(text, command);
+    }
+
+    private static boolean readOrderFields(String text, FixOrderCommand command) {
+        int[] start = command.fieldStart;
+        int[] end = command.fieldEnd;
+        if (end[MSG_TYPE] - start[MSG_TYPE] != 1 || start[MSG_SEQ_NUM] < 0 || command.msgSeqNum <= 0) return false;
+        char msgType = text.charAt(start[MSG_TYPE]);
+        boolean newOrder = msgType == 'D';
+        boolean replace = msgType == 'G';
+        if (!newOrder && !replace && msgType != 'F') return false;
+
+        if (start[POSS_DUP] >= 0 && text.charAt(start[POSS_DUP]) == 'Y') return false;
+        if (start[BEGIN_STRING] < 0 || start[SENDER_COMP_ID] < 0 || start[TARGET_COMP_ID] < 0
+                || start[SENDING_TIME] < 0 || start[TRANSACT_TIME] < 0 || start[CL_ORD_ID] < 0
+                || end[SIDE] - start[SIDE] != 1) return false;
+        if (!newOrder && start[ORIG_CL_ORD_ID] < 0) return false;
+        if ((newOrder || replace) && (start[PRICE] < 0 || start[ORDER_QTY] < 0 || start[ORD_TYPE] < 0)) return false;
+
+        long sendingTime = parseUtcMillis(text, start[SENDING_TIME], end[SENDING_TIME]);
+        if (sendingTime < 0 || parseUtcMillis(text, start[TRANSACT_TIME], end[TRANSACT_TIME]) < 0) return false;
+
+        command.msgType = msgType;
+        command.sendingTime = sendingTime;
+        command.clOrdId = text.substring(start[CL_ORD_ID], end[CL_ORD_ID]);
+        command.origClOrdId = cut(text, command, ORIG_CL_ORD_ID);
+        command.account = cut(text, command, ACCOUNT);
+        command.symbol = cut(text, command, SYMBOL);
+        command.side = text.charAt(start[SIDE]);
+        setSlice(command.priceText, text, command, PRICE);
+        setSlice(command.quantityText, text, command, ORDER_QTY);
+        return true;
+    }
+
+    private static String cut(String text, FixOrderCommand command, int slot) {
+        int from = command.fieldStart[slot];
+        return from < 0 ? null : text.substring(from, command.fieldEnd[slot]);
+    }
+
+    private static void setSlice(FixOrderCommand.Slice slice, String text, FixOrderCommand command, int slot) {
+        int from = command.fieldStart[slot];
+        if (from < 0) {
+            slice.set(null);
+        } else {
+            slice.set(text, from, command.fieldEnd[slot]);
+        }
+    }
+
+    /** Non-negative integer in text[from, to), or -1. */
+    private static int parseInt(String text, int from, int to) {
+        if (to - from > 9) return -1;
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * UTCTimestamp ({@code YYYYMMDD-HH:MM:SS[.fraction]}) in text[from, to)
+     * as epoch milliseconds, or -1 if malformed.
+     */
+    static long parseUtcMillis(String text, int from, int to) {
+        int length = to - from;
+        if (length < 17 || text.charAt(from + 8) != '-' || text.charAt(from + 11) != ':'
+                || text.charAt(from + 14) != ':') return -1;
+        if (length > 17 && (text.charAt(from + 17) != '.' || length == 18 || length > 30)) return -1;
+        int year = parseInt(text, from, from + 4);
+        int month = parseInt(text, from + 4, from + 6);
+        int day = parseInt(text, from + 6, from + 8);
+        int hour = parseInt(text, from + 9, from + 11);
+        int minute = parseInt(text, from + 12, from + 14);
+        int second = parseInt(text, from + 15, from + 17);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) return -1;
+        int millis = 0;
+        int digits = 0;
+        for (int i = from + 18; i < to; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            if (digits < 3) {
+                millis = millis * 10 + digit;
+                digits++;
+            }
+        }
+        for (; digits < 3; digits++) {
+            millis *= 10;
+        }
+        return (daysFromCivil(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second) * 1_000L + millis;
+    }
+
+    /** Days since 1970-01-01 of a proleptic Gregorian date. */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+
+    /** MsgSeqNum of a message the decoder did not run on, for the QuickFIX/J path's timestamp. */
+    private static int decodeSeqNum(String text) {
+        int at = text.indexOf("\u000134=");
+        if (at < 0) return 0;
+        int from = at + 4;
+        int to = text.indexOf(SOH, from);
+        return to < 0 ? 0 : parseInt(text, from, to);
+    }
+}
@@ -1,13 +1,22 @@
 package org.example.fix;
 
 import org.example.EnhancedOrderBook;
+import org.example.ExecutionListener;
 import org.example.Order;
 import org.example.Trade;
+import org.example.metrics.LatencyHistogram;
+import org.example.risk.OrderThrottle;
+import org.example.risk.RiskEngine;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import quickfix.Application;
 import quickfix.ConfigError;
@@ -15,11 +24,14 @@ import quickfix.DefaultMessageFactory;
 import quickfix.DoNotSend;
 import quickfix.FieldConvertError;
 import quickfix.FieldNotFound;
+import quickfix.FileLogFactory;
 import quickfix.FileStoreFactory;
 import quickfix.IncorrectDataFormat;
 import quickfix.IncorrectTagValue;
+import quickfix.LogFactory;
 import quickfix.Message;
 import quickfix.MessageFactory;
+import quickfix.MessageStoreFactory;
 import quickfix.ScreenLogFactory;
 import quickfix.Session;
 import quickfix.SessionID;
@@ -30,45 +42,126 @@ import quickfix.UnsupportedMessageType;
 import quickfix.field.*;
 import quickfix.fix44.*;
 
-public class FixGateway implements Application {
+public class FixGateway implements Application, ExecutionListener {
+    public static final String SETTING_MESSAGE_STORE = "MessageStore";
+    public static final String SETTING_MESSAGE_LOG = "MessageLog";
+
     private final EnhancedOrderBook orderBook;
-    private SessionID sessionId;
-    private final Map<String, String> accountToUserIdMap = new ConcurrentHashMap<>();
+    private final AccountRegistry accounts = new AccountRegistry();
+    private final Map<SessionID, Integer> sessionSlots = new ConcurrentHashMap<>();
+    private final OrderThrottle throttle;
+    private final Map<SessionID, SessionContext> contexts = new ConcurrentHashMap<>();
+    private final Map<Integer, SessionContext> contextsBySlot = new ConcurrentHashMap<>();
+    private final AtomicInteger unthrottledSlots = new AtomicInteger(-1);
+    private volatile FixFastPath fastPath;
+    private volatile BinaryLogFactory binaryLog; // null unless MessageLog=binary
+    private volatile FixMarketData marketData;
+    private final List<FixDropCopy> dropCopies = new CopyOnWriteArrayList<>();
+
+    // Arrival to response sent, per path; recorded under the histogram's lock
+    private final LatencyHistogram fastPathLatency = new LatencyHistogram();
+    private final LatencyHistogram quickFixLatency = new LatencyHistogram();
 
     public FixGateway(EnhancedOrderBook orderBook) {
         this.orderBook = orderBook;
-        // Initialize some default account mappings
-        accountToUserIdMap.put("DEFAULT", "1");
-        accountToUserIdMap.put("TRADER1", "1001");
-        accountToUserIdMap.put("TRADER2", "1002");
+        this.throttle = orderBook.getRiskEngine().getThrottle();
     }
 
     public void start() throws ConfigError, FieldConvertError {
         SessionSettings settings = new SessionSettings("fix-config.cfg");
-        FileStoreFactory storeFactory = new FileStoreFactory(settings);
-        ScreenLogFactory logFactory = new ScreenLogFactory(settings);
+        MessageStoreFactory storeFactory = createStoreFactory(settings);
+        LogFactory logFactory = createLogFactory(settings);
         MessageFactory messageFactory = new DefaultMessageFactory();
+        createDropCopies(settings);
 
         SocketAcceptor acceptor = new SocketAcceptor(
                 this, storeFactory, settings, logFactory, messageFactory);
 
+        // Runs after the FIX codec on every connection; with FastPath=N it only timestamps
+        boolean fastPathEnabled = settings.isSetting(FixFastPath.SETTING) && settings.getBool(FixFastPath.SETTING);
+        FixFastPath filter = new FixFastPath(this, acceptor, settings, fastPathEnabled);
+        acceptor.setIoFilterChainBuilder(chain -> chain.addLast(FixFastPath.FILTER_NAME, filter));
+        fastPath = filter;
+        System.out.println("[FIX] Order-entry fast path " + (fastPathEnabled ? "enabled" : "disabled"));
+
+        long conflationMillis = settings.isSetting(FixMarketData.SETTING_CONFLATION)
+                ? settings.getLong(FixMarketData.SETTING_CONFLATION)
+                : FixMarketData.DEFAULT_CONFLATION_MILLIS;
+        FixMarketData depth = new FixMarketData(orderBook.getSymbol(), conflationMillis, id -> context(id).sender);
+        orderBook.setDepthListener(depth);
+        marketData = depth;
+        System.out.println("[FIX] Market data conflation: " + conflationMillis + "ms");
+
+        orderBook.setExecutionListener(this);
         System.out.println("Starting FIX Gateway on port 9876...");
         acceptor.start();
     }
 
+    /** {@code MessageStore=file|mapped}; file (QuickFIX/J's FileStore) if not set. */
+    private MessageStoreFactory createStoreFactory(SessionSettings settings) throws ConfigError {
+        String type = settings.isSetting(SETTING_MESSAGE_STORE) ? settings.getString(SETTING_MESSAGE_STORE) : "file";
+        System.out.println("[FIX] Session store: " + type);
+        return switch (type.toLowerCase()) {
+            case "file" -> new FileStoreFactory(settings);
+            case "mapped" -> new MappedMessageStoreFactory(settings);
+            default -> throw new ConfigError("Unknown " + SETTING_MESSAGE_STORE + ": " + type);
+        };
+    }
+
+    /** {@code MessageLog=screen|file|binary}; screen if not set. */
+    private LogFactory createLogFactory(SessionSettings settings) throws ConfigError {
+        String type = settings.isSetting(SETTING_MESSAGE_LOG) ? settings.getString(SETTING_MESSAGE_LOG) : "screen";
+        System.out.println("[FIX] Message log: " + type);
+        return switch (type.toLowerCase()) {
+            case "screen" -> new ScreenLogFactory(settings);
+            case "file" -> new FileLogFactory(settings);
+            case "binary" -> binaryLog = new BinaryLogFactory(settings);
+            default -> throw new ConfigError("Unknown " + SETTING_MESSAGE_LOG + ": " + type);
+        };
+    }
+
+    /** A {@link FixDropCopy} for every session configured with {@code DropCopy=Y}. */
+    private void createDropCopies(SessionSettings settings) throws ConfigError, FieldConvertError {
+        for (Iterator<SessionID> sessions = settings.sectionIterator(); sessions.hasNext(); ) {
+            SessionID sessionId = sessions.next();
+            if (settings.isSetting(sessionId, FixDropCopy.SETTING) && settings.getBool(sessionId, FixDropCopy.SETTING)) {
+                dropCopies.add(new FixDropCopy(sessionId));
+                System.out.println("[FIX] Drop copy session: " + sessionId);
+            }
+        }
+    }
+
     @Override
     public void onCreate(SessionID sessionId) {
-        this.sessionId = sessionId;
+        if (!acceptsOrders(sessionId)) {
+            System.out.println("[FIX] Session created: " + sessionId + " (drop copy)");
+            return; // no throttle slot: it never enters orders
+        }
+        int slot = sessionSlots.computeIfAbsent(sessionId, id -> {
+            int opened = throttle.openSession(id.toString());
+            // Out of throttle slots: any negative slot is unthrottled, but fills still need a route
+            return opened >= 0 ? opened : unthrottledSlots.decrementAndGet();
+        });
+        contextsBySlot.put(slot, context(sessionId));
         System.out.println("[FIX] Session created: " + sessionId);
     }
 
     @Override
     public void onLogon(SessionID sessionId) {
+        context(sessionId).sender.onLogon();
+        FixDropCopy dropCopy = dropCopyOf(sessionId);
+        if (dropCopy != null) {
+            dropCopy.onLogon();
+        }
         System.out.println("[FIX] Logon successful: " + sessionId);
     }
 
     @Override
     public void onLogout(SessionID sessionId) {
+        FixMarketData depth = marketData;
+        if (depth != null) {
+            depth.onLogout(sessionId);
+        }
         System.out.println("[FIX] Logout: " + sessionId);
     }
 
@@ -108,22 +201,32 @@ public class FixGateway implements Application {
     @Override
     public void fromApp(Message message, SessionID sessionID)
             throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue, IncorrectDataFormat {
-        crack(message, sessionID);
+        long entered = System.nanoTime();
+        SessionContext context = context(sessionID);
+        synchronized (context) {
+            crack(message, sessionID, context, entered);
+        }
     }
 
-    private void crack(Message message, SessionID sessionId)
+    private void crack(Message message, SessionID sessionId, SessionContext context, long entered)
             throws FieldNotFound, UnsupportedMessageType {
         String msgType = message.getHeader().getString(MsgType.FIELD);
 
+        if (!acceptsOrders(sessionId)) {
+            sendBusinessMessageReject(message, sessionId, "Drop copy session does not accept orders");
+            return;
+        }
         switch (msgType) {
             case MsgType.ORDER_SINGLE:
-                processNewOrderSingle((NewOrderSingle) message, sessionId);
-                break;
             case MsgType.ORDER_CANCEL_REQUEST:
-                processOrderCancelRequest((OrderCancelRequest) message, sessionId);
-                break;
             case MsgType.ORDER_CANCEL_REPLACE_REQUEST:
-                processOrderCancelReplaceRequest((OrderCancelReplaceRequest) message, sessionId);
+                FixOrderCommand command = context.command;
+                command.fromMessage(message);
+                command.setReceived(context.ingressTime(command.getMsgSeqNum(), entered), false);
+                handle(command, sessionId);
+                break;
+            case MsgType.MARKET_DATA_REQUEST:
+                marketData.onRequest(message, sessionId);
                 break;
             default:
                 System.out.println("[FIX] Unsupported message type: " + msgType);
@@ -131,37 +234,93 @@ public class FixGateway implements Application {
         }
     }
 
-    private void processNewOrderSingle(NewOrderSingle order, SessionID sessionId)
-            throws FieldNotFound {
+    /**
+     * Handle a decoded order-entry request from either path. Called with the
+     * session's {@link SessionContext} locked, so requests of a session are
+     * handled one at a time and in sequence-number order.
+     */
+    void handle(FixOrderCommand command, SessionID sessionId) {
+        context(sessionId).retirePulled();
+        switch (command.getMsgType()) {
+            case 'D' -> processNewOrderSingle(command, sessionId);
+            case 'F' -> processOrderCancelRequest(command, sessionId);
+            case 'G' -> processOrderCancelReplaceRequest(command, sessionId);
+            default -> throw new IllegalArgumentException("Not an order-entry message: " + command.getMsgType());
+        }
+        LatencyHistogram histogram = command.isFastPath() ? fastPathLatency : quickFixLatency;
+        synchronized (histogram) {
+            histogram.record(System.nanoTime() - command.getReceivedNanos());
+        }
+    }
+
+    private void processNewOrderSingle(FixOrderCommand order, SessionID sessionId) {
         try {
-            String clOrdId = order.getClOrdID().getValue();
-            String symbol = order.isSetSymbol() ? order.getSymbol().getValue() : "UNKNOWN";
-            char side = order.getSide().getValue();
+            String clOrdId = order.getClOrdId();
+            String symbol = order.getSymbol() != null ? order.getSymbol() : "UNKNOWN";
+            char side = order.getSide();
 
-            double orderQty = order.getOrderQty().getValue();
-            double price = order.getPrice().getValue();
-            BigDecimal quantityBD = BigDecimal.valueOf(orderQty);
-            BigDecimal priceBD = BigDecimal.valueOf(price);
+            // Decode the raw field text straight to cents and shares
+            CharSequence priceText = order.getPriceText();
+            CharSequence quantityText = order.getQuantityText();
+            long price = FixDecimal.parsePrice(priceText, tickSize());
+            long quantity = FixDecimal.parseQuantity(quantityText);
 
-            String account = order.isSetAccount() ? order.getAccount().getValue() : "DEFAULT";
-            String userId = convertAccountToUserId(account);
+            AccountRegistry.Entry entry = accounts.resolve(
+                    order.getAccount() != null ? order.getAccount() : AccountRegistry.DEFAULT_ACCOUNT);
+            String account = entry.account();
+            String userId = entry.userId();
 
             System.out.printf("[FIX] NewOrderSingle: %s %s %s @ %s Qty=%s Account=%s UserId=%s%n",
                     clOrdId, side == Side.BUY ? "BUY" : "SELL",
-                    symbol, priceBD, quantityBD, account, userId);
+                    symbol, priceText, quantityText, account, userId);
+
+            String invalid = invalidPriceOrQuantity(price, priceText, quantity, quantityText);
+            if (invalid != null) {
+                Order rejected = new Order(System.nanoTime(), userId,
+                        side == Side.BUY ? Order.Side.BUY : Order.Side.SELL, 0, 0);
+                sendRejectReport(clOrdId, rejected, invalid, sessionId);
+                return;
+            }
 
             Order internalOrder = new Order(
                     System.nanoTime(),
                     userId,  // Using String userId
                     side == Side.BUY ? Order.Side.BUY : Order.Side.SELL,
-                    priceBD.multiply(BigDecimal.valueOf(100)).longValue(),
-                    quantityBD.longValue()
+                    price,
+                    quantity
             );
+            internalOrder.setTraderIndex(entry.traderIndex(orderBook.getRiskEngine()));
+            internalOrder.setSessionIndex(sessionSlot(sessionId));
+            internalOrder.setClientOrderId(clOrdId);
+
+            RiskEngine.RiskCheckResult throttled =
+                    throttle.tryOrder(internalOrder.getTraderIndex(), internalOrder.getSessionIndex());
+            if (!throttled.isApproved()) {
+                sendRejectReport(clOrdId, internalOrder, throttled.getRejectReason(), sessionId);
+                return;
+            }
 
-            OrderIdMapping.storeMapping(clOrdId, internalOrder.getId());
+            ClOrdIdIndex orders = context(sessionId).orders;
+            String indexReject = orders.lookup(clOrdId) != ClOrdIdIndex.NOT_FOUND
+                    ? "Duplicate ClOrdID " + clOrdId
+                    : orders.isFull() ? "Too many working orders on this session" : null;
+            if (indexReject != null) {
+                sendRejectReport(clOrdId, internalOrder, indexReject, sessionId);
+                return;
+            }
 
-            EnhancedOrderBook.OrderResponse response = orderBook.processOrder(internalOrder);
-            sendExecutionReport(clOrdId, internalOrder, response, sessionId);
+            EnhancedOrderBook.OrderResponse response = orderBook.submitOrder(internalOrder);
+            if (response.isAccepted() && !orderBook.awaitReplication(response)) {
+                System.err.println("[FIX] Replica ack timed out for " + clOrdId + ", confirming anyway");
+            }
+            if (isWorking(response)) {
+                orders.add(clOrdId, internalOrder.getId());
+            } else {
+                orders.retire(clOrdId, internalOrder.getId());
+            }
+            if (!response.isAccepted()) {
+                sendRejectReport(clOrdId, internalOrder, response.getRejectReason(), sessionId);
+            } // accepted: the ack and fills were reported from the book, see onAccepted/onFill
 
         } catch (Exception e) {
             System.err.println("[FIX] Error processing NewOrderSingle: " + e.getMessage());
@@ -169,23 +328,32 @@ public class FixGateway implements Application {
         }
     }
 
-    private void processOrderCancelRequest(OrderCancelRequest cancelRequest, SessionID sessionId)
-            throws FieldNotFound {
+    private void processOrderCancelRequest(FixOrderCommand cancelRequest, SessionID sessionId) {
         try {
-            String clOrdId = cancelRequest.getClOrdID().getValue();
-            String origClOrdId = cancelRequest.getOrigClOrdID().getValue();
+            String clOrdId = cancelRequest.getClOrdId();
+            String origClOrdId = cancelRequest.getOrigClOrdId();
 
-            Long internalOrderId = OrderIdMapping.getInternalId(origClOrdId);
-            if (internalOrderId == null) {
+            ClOrdIdIndex orders = context(sessionId).orders;
+            long internalOrderId = orders.lookup(origClOrdId);
+            if (internalOrderId == ClOrdIdIndex.NOT_FOUND) {
+                sendUnknownOrderReject(orders, clOrdId, origClOrdId, sessionId);
+                return;
+            }
+
+            RiskEngine.RiskCheckResult throttled =
+                    throttle.tryCancel(traderIndexOf(internalOrderId), sessionSlot(sessionId));
+            if (!throttled.isApproved()) {
                 sendOrderCancelReject(clOrdId, origClOrdId,
-                        CxlRejReason.UNKNOWN_ORDER, "Order not found", sessionId);
+                        CxlRejReason.OTHER, throttled.getRejectReason(), sessionId);
                 return;
             }
 
-            boolean cancelled = orderBook.cancelOrder(internalOrderId);
+            Order cancelled = orderBook.cancel(internalOrderId);
+            orders.retire(origClOrdId, internalOrderId); // cancelled, or already done
 
-            if (cancelled) {
-                sendCancelExecutionReport(clOrdId, origClOrdId, sessionId);
+            if (cancelled != null) {
+                send(ExecutionEvent.cancelled(cancelled, clOrdId, origClOrdId,
+                        accounts.byUserId(cancelled.getUserId())), sessionId);
             } else {
                 sendOrderCancelReject(clOrdId, origClOrdId,
                         CxlRejReason.TOO_LATE_TO_CANCEL, "Unable to cancel order", sessionId);
@@ -196,36 +364,60 @@ public class FixGateway implements Application {
         }
     }
 
-    private void processOrderCancelReplaceRequest(OrderCancelReplaceRequest replaceRequest,
-                                                  SessionID sessionId) throws FieldNotFound {
+    private void processOrderCancelReplaceRequest(FixOrderCommand replaceRequest, SessionID sessionId) {
         try {
-            String clOrdId = replaceRequest.getClOrdID().getValue();
-            String origClOrdId = replaceRequest.getOrigClOrdID().getValue();
+            String clOrdId = replaceRequest.getClOrdId();
+            String origClOrdId = replaceRequest.getOrigClOrdId();
+
+            CharSequence priceText = replaceRequest.getPriceText();
+            CharSequence quantityText = replaceRequest.getQuantityText();
+            long price = FixDecimal.parsePrice(priceText, tickSize());
+            long quantity = FixDecimal.parseQuantity(quantityText);
+
+            ClOrdIdIndex orders = context(sessionId).orders;
+            long internalOrderId = orders.lookup(origClOrdId);
+            if (internalOrderId == ClOrdIdIndex.NOT_FOUND) {
+                sendUnknownOrderReject(orders, clOrdId, origClOrdId, sessionId);
+                return;
+            }
+            if (orders.lookup(clOrdId) != ClOrdIdIndex.NOT_FOUND) {
+                sendOrderCancelReject(clOrdId, origClOrdId,
+                        CxlRejReason.DUPLICATE_CLORDID_RECEIVED, "Duplicate ClOrdID " + clOrdId, sessionId);
+                return;
+            }
 
-            double price = replaceRequest.getPrice().getValue();
-            double orderQty = replaceRequest.getOrderQty().getValue();
-            BigDecimal priceBD = BigDecimal.valueOf(price);
-            BigDecimal quantityBD = BigDecimal.valueOf(orderQty);
+            String invalid = invalidPriceOrQuantity(price, priceText, quantity, quantityText);
+            if (invalid != null) {
+                sendOrderCancelReject(clOrdId, origClOrdId, CxlRejReason.OTHER, invalid, sessionId);
+                return;
+            }
 
-            Long internalOrderId = OrderIdMapping.getInternalId(origClOrdId);
-            if (internalOrderId == null) {
+            RiskEngine.RiskCheckResult throttled =
+                    throttle.tryOrder(traderIndexOf(internalOrderId), sessionSlot(sessionId));
+            if (!throttled.isApproved()) {
                 sendOrderCancelReject(clOrdId, origClOrdId,
-                        CxlRejReason.UNKNOWN_ORDER, "Order not found", sessionId);
+                        CxlRejReason.OTHER, throttled.getRejectReason(), sessionId);
                 return;
             }
 
             EnhancedOrderBook.OrderResponse response = orderBook.modifyOrder(
-                    internalOrderId,
-                    priceBD.multiply(BigDecimal.valueOf(100)).longValue(),
-                    quantityBD.longValue()
-            );
+                    internalOrderId, price, quantity, clOrdId);
 
             if (response.isAccepted()) {
-                sendReplaceExecutionReport(clOrdId, origClOrdId, sessionId);
-                OrderIdMapping.storeMapping(clOrdId, internalOrderId);
+                orders.retire(origClOrdId, internalOrderId);
+                if (isWorking(response)) {
+                    orders.add(clOrdId, internalOrderId);
+                } else {
+                    orders.retire(clOrdId, internalOrderId);
+                }
             } else {
+                // A replacement that failed its risk check took the original with it
+                boolean working = orderBook.isActive(internalOrderId);
+                if (!working) {
+                    orders.retire(origClOrdId, internalOrderId);
+                }
                 sendOrderCancelReject(clOrdId, origClOrdId,
-                        CxlRejReason.OTHER,
+                        working ? OrdStatus.REJECTED : OrdStatus.CANCELED, CxlRejReason.OTHER,
                         "Modify failed: " + response.getRejectReason(), sessionId);
             }
 
@@ -234,111 +426,139 @@ public class FixGateway implements Application {
         }
     }
 
-    private void sendExecutionReport(String clOrdId, Order order,
-                                     EnhancedOrderBook.OrderResponse response, SessionID sessionId) {
-        try {
-            double leavesQty = order.getQuantity() - getCumQty(order, response);
-            double cumQty = (double) getCumQty(order, response);
-
-            ExecutionReport report = new ExecutionReport(
-                    new OrderID(Long.toString(order.getId())),
-                    new ExecID(Long.toString(System.nanoTime())),
-                    new ExecType(determineExecType(response)),
-                    new OrdStatus(determineOrdStatus(response)),
-                    new Side(order.getSide() == Order.Side.BUY ? Side.BUY : Side.SELL),
-                    new LeavesQty(leavesQty),
-                    new CumQty(cumQty),
-                    new AvgPx(0.0)
-            );
+    // ================= EXECUTIONS =================
 
-            report.set(new ClOrdID(clOrdId));
-            report.set(new Symbol("TEST"));
-            report.set(new OrderQty((double) order.getQuantity()));
-            report.set(new Price(order.getPrice() / 100.0));
-            report.set(new TransactTime(LocalDateTime.now()));
+    /**
+     * Ack of a FIX order that reached the book, or of its replacement. Sent
+     * from the matching thread, so it is queued ahead of the order's fills.
+     */
+    @Override
+    public void onAccepted(Order order) {
+        SessionContext context = ownerOf(order);
+        if (context != null) {
+            context.sender.send(ExecutionEvent.accepted(order, accounts.byUserId(order.getUserId())));
+        }
+    }
 
-            // Get account from userId
-            String account = getAccountFromUserId(order.getUserId());
-            report.set(new Account(account));
+    /**
+     * One report per fill, for the aggressor and the resting order alike. Every
+     * fill in the book, whichever gateway entered the order, is also copied to
+     * the drop copies, with the same ExecID as the owner's report.
+     */
+    @Override
+    public void onFill(Order order, Trade trade) {
+        SessionContext context = ownerOf(order);
+        if (context == null && dropCopies.isEmpty()) return;
+        ExecutionEvent fill = ExecutionEvent.fill(order, trade, accounts.byUserId(order.getUserId()));
+        if (context != null) {
+            context.sender.send(fill);
+        }
+        for (FixDropCopy dropCopy : dropCopies) {
+            dropCopy.publish(fill);
+        }
+    }
 
-            if (!response.getTrades().isEmpty()) {
-                Trade lastTrade = response.getTrades().get(response.getTrades().size() - 1);
-                report.set(new LastQty((double) lastTrade.quantity()));
-                report.set(new LastPx(lastTrade.price() / 100.0));
-            }
+    /**
+     * Unsolicited cancel of a FIX order. The ClOrdID is retired by the session
+     * on its next request: its index is only touched under the session lock,
+     * which the matching thread must not take.
+     */
+    @Override
+    public void onCancelled(Order order, String reason) {
+        SessionContext context = ownerOf(order);
+        if (context != null) {
+            context.sender.send(ExecutionEvent.pulled(order, accounts.byUserId(order.getUserId()), reason));
+            context.retireLater(order.getClientOrderId(), order.getId());
+        }
+    }
 
-            Session.sendToTarget(report, sessionId);
+    /** Context of the FIX session that entered {@code order}, or null for other gateways' orders. */
+    private SessionContext ownerOf(Order order) {
+        return order.getClientOrderId() != null ? contextsBySlot.get(order.getSessionIndex()) : null;
+    }
 
-        } catch (Exception e) {
-            System.err.println("[FIX] Error sending ExecutionReport: " + e.getMessage());
-        }
+    /** False for drop-copy sessions, which only receive. */
+    boolean acceptsOrders(SessionID sessionId) {
+        return dropCopyOf(sessionId) == null;
     }
 
-    private void sendCancelExecutionReport(String clOrdId, String origClOrdId, SessionID sessionId) {
-        try {
-            ExecutionReport report = new ExecutionReport(
-                    new OrderID(origClOrdId),
-                    new ExecID(Long.toString(System.nanoTime())),
-                    new ExecType(ExecType.CANCELED),
-                    new OrdStatus(OrdStatus.CANCELED),
-                    new Side(Side.BUY),
-                    new LeavesQty(0.0),
-                    new CumQty(0.0),
-                    new AvgPx(0.0)
-            );
+    private FixDropCopy dropCopyOf(SessionID sessionId) {
+        for (FixDropCopy dropCopy : dropCopies) {
+            if (dropCopy.getSessionId().equals(sessionId)) return dropCopy;
+        }
+        return null;
+    }
 
-            report.set(new ClOrdID(clOrdId));
-            report.set(new OrigClOrdID(origClOrdId));
-            report.set(new Symbol("TEST"));
-            report.set(new TransactTime(LocalDateTime.now()));
+    /** Hand a message to the session's sender; never blocks on the counterparty. */
+    private void send(Message message, SessionID sessionId) {
+        context(sessionId).sender.send(message);
+    }
 
-            Session.sendToTarget(report, sessionId);
+    /** Accepted and still resting in the book, so its ClOrdID stays live. */
+    private boolean isWorking(EnhancedOrderBook.OrderResponse response) {
+        return response.isAccepted() && !"FILLED".equals(response.getStatus());
+    }
 
-        } catch (Exception e) {
-            System.err.println("[FIX] Error sending Cancel ExecutionReport: " + e.getMessage());
+    /** Cancel/replace of a ClOrdID that is not working: too late if it finished recently. */
+    private void sendUnknownOrderReject(ClOrdIdIndex orders, String clOrdId, String origClOrdId,
+                                        SessionID sessionId) {
+        if (orders.isRecent(origClOrdId)) {
+            sendOrderCancelReject(clOrdId, origClOrdId,
+                    CxlRejReason.TOO_LATE_TO_CANCEL, "Order already done", sessionId);
+        } else {
+            sendOrderCancelReject(clOrdId, origClOrdId,
+                    CxlRejReason.UNKNOWN_ORDER, "Order not found", sessionId);
         }
     }
 
-    private void sendReplaceExecutionReport(String clOrdId, String origClOrdId, SessionID sessionId) {
-        try {
-            ExecutionReport report = new ExecutionReport(
-                    new OrderID(clOrdId),
-                    new ExecID(Long.toString(System.nanoTime())),
-                    new ExecType(ExecType.REPLACED),
-                    new OrdStatus(OrdStatus.REPLACED),
-                    new Side(Side.BUY),
-                    new LeavesQty(0.0),
-                    new CumQty(0.0),
-                    new AvgPx(0.0)
-            );
+    private long tickSize() {
+        return orderBook.getRiskEngine().getTickSize(orderBook.getInstrumentIndex());
+    }
 
-            report.set(new ClOrdID(clOrdId));
-            report.set(new OrigClOrdID(origClOrdId));
-            report.set(new Symbol("TEST"));
-            report.set(new TransactTime(LocalDateTime.now()));
+    /** Reject reason for a price or quantity that did not decode, or null if both are valid. */
+    private String invalidPriceOrQuantity(long price, CharSequence priceText,
+                                          long quantity, CharSequence quantityText) {
+        if (price == FixDecimal.INVALID) {
+            return String.format("Price %s is not a positive multiple of the %d cent tick", priceText, tickSize());
+        }
+        if (quantity == FixDecimal.INVALID) {
+            return "Quantity " + quantityText + " is not a positive whole number";
+        }
+        return null;
+    }
 
-            Session.sendToTarget(report, sessionId);
+    /** Queue the report of an order refused before it reached the book. */
+    private void sendRejectReport(String clOrdId, Order order, String reason, SessionID sessionId) {
+        send(ExecutionEvent.rejected(order, clOrdId, accounts.byUserId(order.getUserId()),
+                OrdRejReason.ORDER_EXCEEDS_LIMIT, reason), sessionId);
+    }
 
-        } catch (Exception e) {
-            System.err.println("[FIX] Error sending Replace ExecutionReport: " + e.getMessage());
-        }
+    /** Hand a report to the session's sender, which builds it; never blocks. */
+    private void send(ExecutionEvent event, SessionID sessionId) {
+        context(sessionId).sender.send(event);
     }
 
     private void sendOrderCancelReject(String clOrdId, String origClOrdId,
                                        int rejectReason, String text, SessionID sessionId) {
+        sendOrderCancelReject(clOrdId, origClOrdId, OrdStatus.REJECTED, rejectReason, text, sessionId);
+    }
+
+    /** {@code ordStatus} is the order's state after the reject, e.g. CANCELED if it is gone. */
+    private void sendOrderCancelReject(String clOrdId, String origClOrdId, char ordStatus,
+                                       int rejectReason, String text, SessionID sessionId) {
         try {
             OrderCancelReject reject = new OrderCancelReject(
                     new OrderID(origClOrdId),
                     new ClOrdID(clOrdId),
                     new OrigClOrdID(origClOrdId),
-                    new OrdStatus(OrdStatus.REJECTED),
+                    new OrdStatus(ordStatus),
                     new CxlRejResponseTo(CxlRejResponseTo.ORDER_CANCEL_REQUEST)
             );
 
             reject.set(new CxlRejReason(rejectReason));
             reject.set(new Text(text));
 
-            Session.sendToTarget(reject, sessionId);
+            send(reject, sessionId);
 
         } catch (Exception e) {
             System.err.println("[FIX] Error sending OrderCancelReject: " + e.getMessage());
@@ -352,79 +572,171 @@ public class FixGateway implements Application {
             reject.set(new BusinessRejectReason(BusinessRejectReason.UNSUPPORTED_MESSAGE_TYPE));
             reject.set(new Text(reason));
 
-            Session.sendToTarget(reject, sessionId);
+            send(reject, sessionId);
 
         } catch (Exception e) {
             System.err.println("[FIX] Error sending BusinessMessageReject: " + e.getMessage());
         }
     }
 
-    private char determineExecType(EnhancedOrderBook.OrderResponse response) {
-        switch (response.getStatus()) {
-            case "FILLED": return ExecType.FILL;
-            case "PARTIAL": return ExecType.PARTIAL_FILL;
-            case "NEW": return ExecType.NEW;
-            case "REJECTED": return ExecType.REJECTED;
-            default: return ExecType.NEW;
-        }
-    }
-
-    private char determineOrdStatus(EnhancedOrderBook.OrderResponse response) {
-        switch (response.getStatus()) {
-            case "FILLED": return OrdStatus.FILLED;
-            case "PARTIAL": return OrdStatus.PARTIALLY_FILLED;
-            case "NEW": return OrdStatus.NEW;
-            case "REJECTED": return OrdStatus.REJECTED;
-            default: return OrdStatus.NEW;
-        }
-    }
-
-    private long getCumQty(Order order, EnhancedOrderBook.OrderResponse response) {
-        return response.getTrades().stream()
-                .mapToLong(Trade::quantity)
-                .sum();
-    }
-
     private void handleTestRequest(Message message, SessionID sessionId) throws FieldNotFound {
         try {
             TestRequest testRequest = new TestRequest();
             String testReqId = message.getString(TestReqID.FIELD);
             testRequest.set(new TestReqID(testReqId));
 
-            Session.sendToTarget(testRequest, sessionId);
+            send(testRequest, sessionId);
 
         } catch (Exception e) {
             System.err.println("[FIX] Error handling TestRequest: " + e.getMessage());
         }
     }
 
-    private String convertAccountToUserId(String account) {
-        return accountToUserIdMap.computeIfAbsent(account,
-                acc -> String.valueOf(Math.abs(acc.hashCode()) & 0x7FFFFFFF));
+    /**
+     * Trader index of the resting order a cancel/replace targets, or -1 if it
+     * is no longer resting (session throttle only). The request's Account tag
+     * is ignored, so a session can only spend its own traders' budget.
+     */
+    private int traderIndexOf(long internalOrderId) {
+        Order order = orderBook.getActiveOrder(internalOrderId);
+        if (order == null) return -1;
+        return order.getTraderIndex() >= 0
+                ? order.getTraderIndex()
+                : orderBook.getRiskEngine().internTrader(order.getUserId());
+    }
+
+    private int sessionSlot(SessionID sessionId) {
+        Integer slot = sessionSlots.get(sessionId);
+        return slot != null ? slot : -1;
+    }
+
+    public AccountRegistry getAccounts() {
+        return accounts;
+    }
+
+    // ================= FAST PATH =================
+
+    SessionContext context(SessionID sessionId) {
+        return contexts.computeIfAbsent(sessionId,
+                id -> new SessionContext(new ClOrdIdIndex(id.toString(), orderBook::isActive),
+                        new SessionSender(id)));
+    }
+
+    /** Binary message log counters, or null when another log is configured. */
+    public BinaryLogFactory.Metrics getMessageLogMetrics() {
+        BinaryLogFactory log = binaryLog;
+        return log != null ? log.getMetrics() : null;
+    }
+
+    /** Market data subscriptions and messages sent, or null before {@link #start()}. */
+    public FixMarketData.Metrics getMarketDataMetrics() {
+        FixMarketData depth = marketData;
+        return depth != null ? depth.getMetrics() : null;
+    }
+
+    /** Queue depth, copies sent and copy latency of every drop-copy session. */
+    public List<FixDropCopy.Metrics> getDropCopyMetrics() {
+        List<FixDropCopy.Metrics> metrics = new ArrayList<>();
+        for (FixDropCopy dropCopy : dropCopies) {
+            metrics.add(dropCopy.getMetrics());
+        }
+        return metrics;
+    }
+
+    /** Outbound queue depth and send latency of every session. */
+    public List<SessionSender.SenderMetrics> getSenderMetrics() {
+        List<SessionSender.SenderMetrics> metrics = new ArrayList<>();
+        for (SessionContext context : contexts.values()) {
+            metrics.add(context.sender.getMetrics());
+        }
+        return metrics;
+    }
+
+    /** ClOrdID index sizes of every session; approximate while sessions are trading. */
+    public List<ClOrdIdIndex.Metrics> getOrderIndexMetrics() {
+        List<ClOrdIdIndex.Metrics> metrics = new ArrayList<>();
+        for (SessionContext context : contexts.values()) {
+            metrics.add(context.orders.metrics());
+        }
+        return metrics;
+    }
+
+    /** Latency of both order-entry paths, measured from arrival at the fast-path filter. */
+    public FastPathMetrics getFastPathMetrics() {
+        FixFastPath filter = fastPath;
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram quickFix = new LatencyHistogram();
+        synchronized (fastPathLatency) {
+            fast.add(fastPathLatency);
+        }
+        synchronized (quickFixLatency) {
+            quickFix.add(quickFixLatency);
+        }
+        return new FastPathMetrics(filter != null && filter.isEnabled(), fast.toString(), quickFix.toString());
     }
 
-    private String getAccountFromUserId(String userId) {
-        // Reverse lookup
-        return accountToUserIdMap.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(userId))
-                .map(Map.Entry::getKey)
-                .findFirst()
-                .orElse("DEFAULT");
+    public record FastPathMetrics(boolean enabled, String fastPathLatency, String quickFixLatency) {
+        @Override
+        public String toString() {
+            return String.format("""
+                    FIX fast path: %s
+                    FIX fast path (arrival -> response): %s
+                    FIX QuickFIX/J (arrival -> response): %s""",
+                    enabled ? "enabled" : "disabled", fastPathLatency, quickFixLatency);
+        }
     }
 
-    private static class OrderIdMapping {
-        private static final Map<String, Long> clOrdIdToInternalId = new ConcurrentHashMap<>();
+    /**
+     * Per-session state shared by the fast path and the QuickFIX/J callbacks.
+     * Its monitor orders a session's order-entry requests across both paths.
+     */
+    static final class SessionContext {
+        private static final int INGRESS_SLOTS = 64;
+
+        final FixOrderCommand command = new FixOrderCommand();
+        final ClOrdIdIndex orders;
+        final SessionSender sender;
+
+        // When the fast path last left a message to QuickFIX/J, which counts it as received
+        long lastQuickFixNanos;
+
+        // Arrival times of messages passed on to QuickFIX/J, by MsgSeqNum
+        private final int[] ingressSeq = new int[INGRESS_SLOTS];
+        private final long[] ingressNanos = new long[INGRESS_SLOTS];
 
-        static void storeMapping(String clOrdId, Long internalId) {
-            clOrdIdToInternalId.put(clOrdId, internalId);
+        // ClOrdIDs of orders the book cancelled on its own, retired under the session lock
+        private final Queue<PulledOrder> pulled = new ConcurrentLinkedQueue<>();
+
+        SessionContext(ClOrdIdIndex orders, SessionSender sender) {
+            this.orders = orders;
+            this.sender = sender;
+        }
+
+        void retireLater(String clOrdId, long orderId) {
+            pulled.add(new PulledOrder(clOrdId, orderId));
         }
 
-        static Long getInternalId(String clOrdId) {
-            return clOrdIdToInternalId.get(clOrdId);
+        /** Retire the ClOrdIDs queued by {@link #retireLater}; call with this context locked. */
+        void retirePulled() {
+            PulledOrder order;
+            while ((order = pulled.poll()) != null) {
+                orders.retire(order.clOrdId(), order.orderId());
+            }
         }
 
-        static void removeMapping(String clOrdId) {
-            clOrdIdToInternalId.remove(clOrdId);
+        void stampIngress(int msgSeqNum, long nanos) {
+            if (msgSeqNum <= 0) return;
+            int slot = msgSeqNum & (INGRESS_SLOTS - 1);
+            ingressSeq[slot] = msgSeqNum;
+            ingressNanos[slot] = nanos;
         }
+
+        /** Arrival time stamped for {@code msgSeqNum}, or {@code fallback} if none. */
+        long ingressTime(int msgSeqNum, long fallback) {
+            int slot = msgSeqNum & (INGRESS_SLOTS - 1);
+            return msgSeqNum > 0 && ingressSeq[slot] == msgSeqNum ? ingressNanos[slot] : fallback;
+        }
+
+        private record PulledOrder(String clOrdId, long orderId) {}
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,404 @@
+package org.example.fix;
+
+import org.example.DepthListener;
+import org.example.Order;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.field.*;
+import quickfix.fix44.MarketDataIncrementalRefresh;
+import quickfix.fix44.MarketDataRequestReject;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Depth of the gateway's book over FIX: MarketDataRequest (V) subscriptions
+ * answered with a MarketDataSnapshotFullRefresh (W), then refreshed as the
+ * book changes.
+ *
+ * The book reports level changes as quantity deltas, which are applied to a
+ * copy of its levels here and only bump a version on the matching thread.
+ * A publisher thread wakes every conflation interval and, for each
+ * subscription whose levels may have changed, compares the top of the copy
+ * with what that subscription was last sent: incremental subscribers get one
+ * MarketDataIncrementalRefresh (X) with the new, changed and deleted
+ * levels, full-refresh subscribers one W. However busy the book, a
+ * subscription gets at most one message per interval, and intermediate
+ * states in between are conflated away. Messages go through the session's
+ * {@link SessionSender}, behind its execution reports.
+ *
+ * Bids and offers only; a request for other entry types, another symbol or
+ * more than {@link #MAX_SUBSCRIPTIONS_PER_SESSION} subscriptions is refused
+ * with a MarketDataRequestReject (Y).
+ */
+public final class FixMarketData implements DepthListener {
+    public static final String SETTING_CONFLATION = "MarketDataConflationMillis";
+    public static final long DEFAULT_CONFLATION_MILLIS = 50;
+    public static final int MAX_LEVELS = 50; // MarketDepth=0 (full book) is served this deep
+    public static final int MAX_SUBSCRIPTIONS_PER_SESSION = 8;
+
+    private final String symbol;
+    private final long conflationNanos;
+    private final Function<SessionID, SessionSender> senders;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Copy of the book's levels, guarded by this
+    private final TreeMap<Long, Level> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, Level> asks = new TreeMap<>();
+    private volatile long version;
+
+    private final AtomicLong levelChanges = new AtomicLong();
+    private volatile long snapshots;
+    private volatile long incrementals;
+    private volatile boolean running = true;
+    private final Thread publisher;
+
+    public FixMarketData(String symbol, long conflationMillis, Function<SessionID, SessionSender> senders) {
+        this.symbol = symbol;
+        this.conflationNanos = TimeUnit.MILLISECONDS.toNanos(conflationMillis);
+        this.senders = senders;
+        this.publisher = new Thread(this::runPublisher, "FIX-MarketData");
+        publisher.setDaemon(true);
+        publisher.start();
+    }
+
+    // ================= MATCHING THREAD =================
+
+    @Override
+    public synchronized void onLevelChange(Order.Side side, long price, long quantityDelta) {
+        TreeMap<Long, Level> levels = side == Order.Side.BUY ? bids : asks;
+        Level level = levels.get(price);
+        if (level == null) {
+            level = new Level();
+            levels.put(price, level);
+        }
+        level.quantity += quantityDelta;
+        if (level.quantity <= 0) {
+            levels.remove(price);
+        }
+        version++;
+        levelChanges.incrementAndGet();
+    }
+
+    // ================= REQUESTS =================
+
+    /** Handle a MarketDataRequest; called with the session's context locked. */
+    public void onRequest(Message request, SessionID sessionId) throws FieldNotFound {
+        String mdReqId = request.getString(MDReqID.FIELD);
+        char requestType = request.getChar(SubscriptionRequestType.FIELD);
+
+        if (requestType == SubscriptionRequestType.DISABLE_PREVIOUS_SNAPSHOT_UPDATE_REQUEST) {
+            subscriptions.removeIf(s -> s.sessionId.equals(sessionId) && s.mdReqId.equals(mdReqId));
+            return;
+        }
+        if (requestType != SubscriptionRequestType.SNAPSHOT
+                && requestType != SubscriptionRequestType.SNAPSHOT_UPDATES) {
+            reject(mdReqId, MDReqRejReason.UNSUPPORTED_SUBSCRIPTIONREQUESTTYPE, sessionId);
+            return;
+        }
+
+        for (Group related : request.getGroups(NoRelatedSym.FIELD)) {
+            if (!symbol.equals(related.getString(Symbol.FIELD))) {
+                reject(mdReqId, MDReqRejReason.UNKNOWN_SYMBOL, sessionId);
+                return;
+            }
+        }
+        boolean wantsBids = false;
+        boolean wantsOffers = false;
+        for (Group entryType : request.getGroups(NoMDEntryTypes.FIELD)) {
+            switch (entryType.getChar(MDEntryType.FIELD)) {
+                case MDEntryType.BID -> wantsBids = true;
+                case MDEntryType.OFFER -> wantsOffers = true;
+                default -> {
+                    reject(mdReqId, MDReqRejReason.UNSUPPORTED_MDENTRYTYPE, sessionId);
+                    return;
+                }
+            }
+        }
+
+        int depth = request.getInt(MarketDepth.FIELD);
+        int levels = depth <= 0 ? MAX_LEVELS : Math.min(depth, MAX_LEVELS);
+        boolean incremental = !request.isSetField(MDUpdateType.FIELD)
+                || request.getInt(MDUpdateType.FIELD) == MDUpdateType.INCREMENTAL_REFRESH;
+
+        Subscription subscription = new Subscription(sessionId, mdReqId, levels, wantsBids, wantsOffers, incremental);
+        if (requestType == SubscriptionRequestType.SNAPSHOT_UPDATES) {
+            int active = 0;
+            for (Subscription s : subscriptions) {
+                if (!s.sessionId.equals(sessionId)) continue;
+                if (s.mdReqId.equals(mdReqId)) {
+                    reject(mdReqId, MDReqRejReason.DUPLICATE_MDREQID, sessionId);
+                    return;
+                }
+                active++;
+            }
+            if (active >= MAX_SUBSCRIPTIONS_PER_SESSION) {
+                reject(mdReqId, MDReqRejReason.INSUFFICIENT_BANDWIDTH, sessionId);
+                return;
+            }
+        }
+
+        // Queue the snapshot before the subscription is visible, so its updates follow it
+        Depth current = snapshot(levels);
+        subscription.sentVersion = current.version;
+        senders.apply(sessionId).send(subscription.snapshot(current));
+        snapshots++;
+        if (requestType == SubscriptionRequestType.SNAPSHOT_UPDATES) {
+            subscriptions.add(subscription);
+        }
+    }
+
+    /** Drop the session's subscriptions; a client subscribes again after logon. */
+    public void onLogout(SessionID sessionId) {
+        subscriptions.removeIf(s -> s.sessionId.equals(sessionId));
+    }
+
+    private void reject(String mdReqId, char reason, SessionID sessionId) {
+        MarketDataRequestReject reject = new MarketDataRequestReject(new MDReqID(mdReqId));
+        reject.set(new MDReqRejReason(reason));
+        senders.apply(sessionId).send(reject);
+    }
+
+    // ================= PUBLISHER THREAD =================
+
+    private void runPublisher() {
+        while (running) {
+            LockSupport.parkNanos(conflationNanos);
+            long latest = version;
+            Depth current = null;
+            for (Subscription subscription : subscriptions) {
+                if (subscription.sentVersion == latest) continue;
+                if (current == null) current = snapshot(MAX_LEVELS);
+                Message update = subscription.update(current);
+                subscription.sentVersion = current.version;
+                if (update != null) {
+                    senders.apply(subscription.sessionId).send(update);
+                    if (subscription.incremental) incrementals++; else snapshots++;
+                }
+            }
+        }
+    }
+
+    /** Copy the top {@code levels} of each side and the version they reflect. */
+    private synchronized Depth snapshot(int levels) {
+        Depth depth = new Depth(levels, version);
+        depth.bidCount = copy(bids, depth.bidPrices, depth.bidQuantities);
+        depth.askCount = copy(asks, depth.askPrices, depth.askQuantities);
+        return depth;
+    }
+
+    private static int copy(TreeMap<Long, Level> levels, long[] prices, long[] quantities) {
+        int count = 0;
+        for (Map.Entry<Long, Level> level : levels.entrySet()) {
+            if (count == prices.length) break;
+            prices[count] = level.getKey();
+            quantities[count] = level.getValue().quantity;
+            count++;
+        }
+        return count;
+    }
+
+    public void close() {
+        running = false;
+        LockSupport.unpark(publisher);
+    }
+
+    // ================= METRICS =================
+
+    public Metrics getMetrics() {
+        return new Metrics(subscriptions.size(), levelChanges.get(), snapshots, incrementals);
+    }
+
+    public record Metrics(int subscriptions, long levelChanges, long snapshots, long incrementals) {
+        @Override
+        public String toString() {
+            return String.format("FIX market data: %d subscriptions, %,d level changes -> %,d snapshots + %,d incrementals",
+                    subscriptions, levelChanges, snapshots, incrementals);
+        }
+    }
+
+    // ================= STATE =================
+
+    private static final class Level {
+        long quantity;
+    }
+
+    /** Top of the book at one version; best price first on both sides. */
+    private static final class Depth {
+        final long version;
+        final long[] bidPrices;
+        final long[] bidQuantities;
+        final long[] askPrices;
+        final long[] askQuantities;
+        int bidCount;
+        int askCount;
+
+        Depth(int levels, long version) {
+            this.version = version;
+            bidPrices = new long[levels];
+            bidQuantities = new long[levels];
+            askPrices = new long[levels];
+            askQuantities = new long[levels];
+        }
+    }
+
+    /** One MDReqID of one session, with the levels it was last sent. Publisher thread only once added. */
+    private final class Subscription {
+        final SessionID sessionId;
+        final String mdReqId;
+        final int levels;
+        final boolean bids;
+        final boolean offers;
+        final boolean incremental;
+        long sentVersion;
+
+        // Levels as last sent
+        final long[] bidPrices;
+        final long[] bidQuantities;
+        final long[] askPrices;
+        final long[] askQuantities;
+        int bidCount;
+        int askCount;
+
+        Subscription(SessionID sessionId, String mdReqId, int levels,
+                     boolean bids, boolean offers, boolean incremental) {
+            this.sessionId = sessionId;
+            this.mdReqId = mdReqId;
+            this.levels = levels;
+            this.bids = bids;
+            this.offers = offers;
+            this.incremental = incremental;
+            bidPrices = new long[levels];
+            bidQuantities = new long[levels];
+            askPrices = new long[levels];
+            askQuantities = new long[levels];
+        }
+
+        /** Full refresh of the subscribed levels; also becomes the last-sent state. */
+        MarketDataSnapshotFullRefresh snapshot(Depth depth) {
+            MarketDataSnapshotFullRefresh refresh = new MarketDataSnapshotFullRefresh();
+            refresh.set(new MDReqID(mdReqId));
+            refresh.set(new Symbol(symbol));
+            if (bids) {
+                bidCount = Math.min(levels, depth.bidCount);
+                System.arraycopy(depth.bidPrices, 0, bidPrices, 0, bidCount);
+                System.arraycopy(depth.bidQuantities, 0, bidQuantities, 0, bidCount);
+                for (int i = 0; i < bidCount; i++) {
+                    refresh.addGroup(snapshotEntry(MDEntryType.BID, bidPrices[i], bidQuantities[i], i + 1));
+                }
+            }
+            if (offers) {
+                askCount = Math.min(levels, depth.askCount);
+                System.arraycopy(depth.askPrices, 0, askPrices, 0, askCount);
+                System.arraycopy(depth.askQuantities, 0, askQuantities, 0, askCount);
+                for (int i = 0; i < askCount; i++) {
+                    refresh.addGroup(snapshotEntry(MDEntryType.OFFER, askPrices[i], askQuantities[i], i + 1));
+                }
+            }
+            return refresh;
+        }
+
+        /** What changed since the last message, or null if the subscribed levels did not. */
+        Message update(Depth depth) {
+            if (!incremental) {
+                return changed(depth) ? snapshot(depth) : null;
+            }
+            MarketDataIncrementalRefresh refresh = new MarketDataIncrementalRefresh();
+            refresh.set(new MDReqID(mdReqId));
+            int entries = 0;
+            if (bids) {
+                entries += diff(refresh, MDEntryType.BID, bidPrices, bidQuantities, bidCount,
+                        depth.bidPrices, depth.bidQuantities, Math.min(levels, depth.bidCount));
+                bidCount = Math.min(levels, depth.bidCount);
+                System.arraycopy(depth.bidPrices, 0, bidPrices, 0, bidCount);
+                System.arraycopy(depth.bidQuantities, 0, bidQuantities, 0, bidCount);
+            }
+            if (offers) {
+                entries += diff(refresh, MDEntryType.OFFER, askPrices, askQuantities, askCount,
+                        depth.askPrices, depth.askQuantities, Math.min(levels, depth.askCount));
+                askCount = Math.min(levels, depth.askCount);
+                System.arraycopy(depth.askPrices, 0, askPrices, 0, askCount);
+                System.arraycopy(depth.askQuantities, 0, askQuantities, 0, askCount);
+            }
+            return entries > 0 ? refresh : null;
+        }
+
+        private boolean changed(Depth depth) {
+            return (bids && !same(bidPrices, bidQuantities, bidCount,
+                    depth.bidPrices, depth.bidQuantities, Math.min(levels, depth.bidCount)))
+                    || (offers && !same(askPrices, askQuantities, askCount,
+                    depth.askPrices, depth.askQuantities, Math.min(levels, depth.askCount)));
+        }
+
+        /** Add delete, new and change entries turning the sent levels into the current ones. */
+        private int diff(MarketDataIncrementalRefresh refresh, char type,
+                         long[] sentPrices, long[] sentQuantities, int sentCount,
+                         long[] prices, long[] quantities, int count) {
+            int entries = 0;
+            for (int i = 0; i < sentCount; i++) {
+                if (indexOf(prices, count, sentPrices[i]) < 0) {
+                    refresh.addGroup(incrementalEntry(MDUpdateAction.DELETE, type, sentPrices[i], 0));
+                    entries++;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int sent = indexOf(sentPrices, sentCount, prices[i]);
+                if (sent < 0) {
+                    refresh.addGroup(incrementalEntry(MDUpdateAction.NEW, type, prices[i], quantities[i]));
+                    entries++;
+                } else if (sentQuantities[sent] != quantities[i]) {
+                    refresh.addGroup(incrementalEntry(MDUpdateAction.CHANGE, type, prices[i], quantities[i]));
+                    entries++;
+                }
+            }
+            return entries;
+        }
+
+        private Group incrementalEntry(char action, char type, long price, long quantity) {
+            MarketDataIncrementalRefresh.NoMDEntries entry = new MarketDataIncrementalRefresh.NoMDEntries();
+            entry.set(new MDUpdateAction(action));
+            entry.set(new MDEntryType(type));
+            entry.set(new Symbol(symbol));
+            entry.setString(MDEntryPx.FIELD, FixDecimal.formatPrice(price));
+            if (action != MDUpdateAction.DELETE) {
+                entry.setString(MDEntrySize.FIELD, FixDecimal.format(quantity, 0));
+            }
+            return entry;
+        }
+    }
+
+    private static Group snapshotEntry(char type, long price, long quantity, int position) {
+        MarketDataSnapshotFullRefresh.NoMDEntries entry = new MarketDataSnapshotFullRefresh.NoMDEntries();
+        entry.set(new MDEntryType(type));
+        entry.setString(MDEntryPx.FIELD, FixDecimal.formatPrice(price));
+        entry.setString(MDEntrySize.FIELD, FixDecimal.format(quantity, 0));
+        entry.set(new MDEntryPositionNo(position));
+        return entry;
+    }
+
+    private static boolean same(long[] prices, long[] quantities, int count,
+                                long[] otherPrices, long[] otherQuantities, int otherCount) {
+        if (count != otherCount) return false;
+        for (int i = 0; i < count; i++) {
+            if (prices[i] != otherPrices[i] || quantities[i] != otherQuantities[i]) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(long[] prices, int count, long price) {
+        for (int i = 0; i < count; i++) {
+            if (prices[i] == price) return i;
+        }
+        return -1;
+    }
+}
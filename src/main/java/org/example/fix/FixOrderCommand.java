@@ -0,0 +1,132 @@
+package org.example.fix;
+
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.field.Account;
+import quickfix.field.ClOrdID;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.OrderQty;
+import quickfix.field.OrigClOrdID;
+import quickfix.field.Price;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+
+/**
+ * One order-entry request (35=D, F or G), reused from message to message.
+ *
+ * Filled either by {@link FixFastPath#decode} straight from the framed
+ * message text or from a parsed QuickFIX/J message, so the gateway handles
+ * both paths with the same code. Price and quantity stay views over the
+ * source text and are decoded by {@link FixDecimal} without copying; only the
+ * identifiers the gateway keeps (ClOrdID, Account, ...) become strings.
+ */
+public final class FixOrderCommand {
+    // Field offsets recorded by the fast-path decoder, indexed by FixFastPath slot
+    final int[] fieldStart = new int[FixFastPath.SLOT_COUNT];
+    final int[] fieldEnd = new int[FixFastPath.SLOT_COUNT];
+    String source;
+
+    char msgType;
+    int msgSeqNum;
+    String clOrdId;
+    String origClOrdId;
+    String account;
+    String symbol;
+    char side;
+    long sendingTime; // epoch millis, set by the fast-path decoder only
+    final Slice priceText = new Slice();
+    final Slice quantityText = new Slice();
+
+    private long receivedNanos;
+    private boolean fastPath;
+
+    /** Fill from a message QuickFIX/J has parsed and validated. */
+    void fromMessage(Message message) throws FieldNotFound {
+        source = null;
+        msgType = message.getHeader().getString(MsgType.FIELD).charAt(0);
+        msgSeqNum = message.getHeader().getInt(MsgSeqNum.FIELD);
+        clOrdId = message.getString(ClOrdID.FIELD);
+        origClOrdId = optional(message, OrigClOrdID.FIELD);
+        account = optional(message, Account.FIELD);
+        symbol = optional(message, Symbol.FIELD);
+        side = message.isSetField(Side.FIELD) ? message.getChar(Side.FIELD) : 0;
+        priceText.set(optional(message, Price.FIELD));
+        quantityText.set(optional(message, OrderQty.FIELD));
+        fastPath = false;
+    }
+
+    private static String optional(Message message, int tag) throws FieldNotFound {
+        return message.isSetField(tag) ? message.getString(tag) : null;
+    }
+
+    void setReceived(long receivedNanos, boolean fastPath) {
+        this.receivedNanos = receivedNanos;
+        this.fastPath = fastPath;
+    }
+
+    /** True if the value of a decoded field equals {@code expected}, compared in place. */
+    boolean fieldEquals(int slot, String expected) {
+        int length = fieldEnd[slot] - fieldStart[slot];
+        return fieldStart[slot] >= 0 && length == expected.length()
+                && source.regionMatches(fieldStart[slot], expected, 0, length);
+    }
+
+    public char getMsgType() { return msgType; }
+    public int getMsgSeqNum() { return msgSeqNum; }
+    public String getClOrdId() { return clOrdId; }
+    /** Null for a NewOrderSingle. */
+    public String getOrigClOrdId() { return origClOrdId; }
+    /** Null if the Account tag was not sent. */
+    public String getAccount() { return account; }
+    /** Null if the Symbol tag was not sent. */
+    public String getSymbol() { return symbol; }
+    public char getSide() { return side; }
+    /** Raw Price text; empty if the tag was not sent. */
+    public CharSequence getPriceText() { return priceText; }
+    /** Raw OrderQty text; empty if the tag was not sent. */
+    public CharSequence getQuantityText() { return quantityText; }
+    public long getReceivedNanos() { return receivedNanos; }
+    public boolean isFastPath() { return fastPath; }
+
+    /** Reusable view of part of a string; a string is only cut for {@link #toString}. */
+    static final class Slice implements CharSequence {
+        private String text = "";
+        private int start;
+        private int end;
+
+        void set(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        void set(String text) {
+            if (text == null) {
+                set("", 0, 0);
+            } else {
+                set(text, 0, text.length());
+            }
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return text.substring(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return text.substring(start, end);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.fix;
+
+import quickfix.MessageStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * QuickFIX/J session store in one memory-mapped file per session.
+ *
+ * A 64-byte header holds the creation time, both next sequence numbers and
+ * the end of the data; outgoing messages are appended after it as
+ * {@code [int seqNum][int length][bytes]} and found again for resends
+ * through an in-memory index by sequence number, rebuilt on open. Every
+ * update is a store into mapped memory, with no system call and no fsync, so
+ * the store survives a process crash but leaves power-loss durability to the
+ * OS flushing dirty pages. The file grows by remapping at twice the size.
+ *
+ * A record counts once the header's end moves past it, so a crash mid-write
+ * loses at most the message being stored, which a resend then gap-fills.
+ */
+public final class MappedMessageStore implements MessageStore, Closeable {
+    public static final int DEFAULT_SIZE = 64 * 1024 * 1024;
+
+    /** Messages above this sequence number are not kept (the index is a flat array). */
+    public static final int MAX_INDEXED_SEQ = 1 << 26;
+
+    private static final int MAGIC = 0x51464D53; // "QFMS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    // Header layout
+    private static final int MAGIC_AT = 0;
+    private static final int VERSION_AT = 4;
+    private static final int CREATION_TIME_AT = 8;
+    private static final int NEXT_SENDER_AT = 16;
+    private static final int NEXT_TARGET_AT = 20;
+    private static final int END_AT = 24;
+
+    private final Path file;
+    private final Charset charset;
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private int end;
+
+    // File offset of each stored message by sequence number, 0 if absent
+    private int[] offsets = new int[1024];
+    private int highestSeq;
+
+    public MappedMessageStore(Path file, int initialSize, Charset charset) throws IOException {
+        this.file = file;
+        this.charset = charset;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map(Math.max(channel.size(), Math.max(initialSize, HEADER_BYTES)));
+
+        int magic = map.getInt(MAGIC_AT);
+        if (magic == 0) {
+            map.putInt(MAGIC_AT, MAGIC);
+            map.putInt(VERSION_AT, VERSION);
+            reset();
+        } else if (magic != MAGIC || map.getInt(VERSION_AT) != VERSION) {
+            channel.close();
+            throw new IOException(file + " is not a version " + VERSION + " mapped message store");
+        }
+        load();
+    }
+
+    // ================= MESSAGES =================
+
+    @Override
+    public synchronized boolean set(int sequence, String message) throws IOException {
+        if (sequence <= 0 || sequence >= MAX_INDEXED_SEQ) return false;
+        byte[] bytes = message.getBytes(charset);
+        int recordEnd = end + RECORD_HEADER_BYTES + bytes.length;
+        if (recordEnd < 0 || recordEnd > map.capacity()) {
+            grow((long) end + RECORD_HEADER_BYTES + bytes.length);
+        }
+        map.putInt(end, sequence);
+        map.putInt(end + 4, bytes.length);
+        map.put(end + RECORD_HEADER_BYTES, bytes);
+        index(sequence, end);
+        end = recordEnd;
+        map.putInt(END_AT, end); // commits the record
+        return true;
+    }
+
+    @Override
+    public synchronized void get(int startSequence, int endSequence, Collection<String> messages) {
+        int last = Math.min(endSequence, highestSeq);
+        for (int sequence = Math.max(startSequence, 1); sequence <= last; sequence++) {
+            int at = offsets[sequence];
+            if (at == 0) continue;
+            byte[] bytes = new byte[map.getInt(at + 4)];
+            map.get(at + RECORD_HEADER_BYTES, bytes);
+            messages.add(new String(bytes, charset));
+        }
+    }
+
+    // ================= SEQUENCE NUMBERS =================
+
+    @Override
+    public synchronized int getNextSenderMsgSeqNum() {
+        return map.getInt(NEXT_SENDER_AT);
+    }
+
+    @Override
+    public synchronized int getNextTargetMsgSeqNum() {
+        return map.getInt(NEXT_TARGET_AT);
+    }
+
+    @Override
+    public synchronized void setNextSenderMsgSeqNum(int next) {
+        map.putInt(NEXT_SENDER_AT, next);
+    }
+
+    @Override
+    public synchronized void setNextTargetMsgSeqNum(int next) {
+        map.putInt(NEXT_TARGET_AT, next);
+    }
+
+    @Override
+    public synchronized void incrNextSenderMsgSeqNum() {
+        map.putInt(NEXT_SENDER_AT, map.getInt(NEXT_SENDER_AT) + 1);
+    }
+
+    @Override
+    public synchronized void incrNextTargetMsgSeqNum() {
+        map.putInt(NEXT_TARGET_AT, map.getInt(NEXT_TARGET_AT) + 1);
+    }
+
+    @Override
+    public synchronized Date getCreationTime() {
+        return new Date(map.getLong(CREATION_TIME_AT));
+    }
+
+    @Override
+    public synchronized void reset() {
+        map.putLong(CREATION_TIME_AT, System.currentTimeMillis());
+        map.putInt(NEXT_SENDER_AT, 1);
+        map.putInt(NEXT_TARGET_AT, 1);
+        end = HEADER_BYTES;
+        map.putInt(END_AT, end);
+        Arrays.fill(offsets, 0, Math.min(highestSeq + 1, offsets.length), 0);
+        highestSeq = 0;
+    }
+
+    /** Rebuild the index from the file; this process is its only writer. */
+    @Override
+    public synchronized void refresh() {
+        load();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MappedMessageStore[%s: %,d of %,d bytes used, next sender %d, next target %d]",
+                file, end, map.capacity(), getNextSenderMsgSeqNum(), getNextTargetMsgSeqNum());
+    }
+
+    // ================= FILE =================
+
+    /** Index the records up to the committed end; stops at the first damaged one. */
+    private void load() {
+        Arrays.fill(offsets, 0);
+        highestSeq = 0;
+        int committed = Math.min(map.getInt(END_AT), map.capacity());
+        int at = HEADER_BYTES;
+        while (at + RECORD_HEADER_BYTES <= committed) {
+            int sequence = map.getInt(at);
+            int length = map.getInt(at + 4);
+            int next = at + RECORD_HEADER_BYTES + length;
+            if (sequence <= 0 || sequence >= MAX_INDEXED_SEQ || length < 0 || next < at || next > committed) {
+                break;
+            }
+            index(sequence, at);
+            at = next;
+        }
+        end = at;
+        map.putInt(END_AT, end);
+    }
+
+    private void index(int sequence, int offset) {
+        if (sequence >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(sequence + 1, offsets.length * 2));
+        }
+        offsets[sequence] = offset;
+        highestSeq = Math.max(highestSeq, sequence);
+    }
+
+    private void grow(long needed) throws IOException {
+        if (needed > MAX_SIZE) {
+            throw new IOException(file + " is full (" + map.capacity() + " bytes)");
+        }
+        long size = map.capacity();
+        while (size < needed) {
+            size = Math.min(size * 2, MAX_SIZE);
+        }
+        map(size);
+    }
+
+    private void map(long size) throws IOException {
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.fix;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.FileStoreFactory;
+import quickfix.FileUtil;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.RuntimeError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Creates a {@link MappedMessageStore} per session in the session's
+ * {@code FileStorePath}, sized by {@code MappedStoreSize} (bytes, grown on
+ * demand).
+ */
+public final class MappedMessageStoreFactory implements MessageStoreFactory {
+    public static final String SETTING_SIZE = "MappedStoreSize";
+
+    private final SessionSettings settings;
+
+    public MappedMessageStoreFactory(SessionSettings settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public MessageStore create(SessionID sessionId) {
+        try {
+            Path directory = Path.of(settings.getString(sessionId, FileStoreFactory.SETTING_FILE_STORE_PATH));
+            int size = settings.isSetting(sessionId, SETTING_SIZE)
+                    ? (int) settings.getLong(sessionId, SETTING_SIZE)
+                    : MappedMessageStore.DEFAULT_SIZE;
+            Files.createDirectories(directory);
+            return new MappedMessageStore(directory.resolve(FileUtil.sessionIdFileName(sessionId) + ".mstore"),
+                    size, CharsetSupport.getCharsetInstance());
+        } catch (ConfigError | FieldConvertError | IOException e) {
+            throw new RuntimeError(e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.fix;
+
+import org.example.metrics.LatencyHistogram;
+import quickfix.Message;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Outbound queue of one FIX session, drained by its own virtual thread.
+ *
+ * Order handling only enqueues; serialising, storing and writing the message
+ * happen on the sender thread, so a slow session delays nobody else.
+ * ExecutionReports are queued as compact {@link ExecutionEvent}s and built
+ * there too. The thread drains up to {@link #MAX_BATCH} messages at a time
+ * and, once logged on, writes each batch to the socket in one go. The
+ * queue never blocks or drops: a session whose backlog passes
+ * {@code maxDepth} is logged out as a slow consumer. Messages queued behind
+ * the logout are still sent, so QuickFIX/J stores them with their sequence
+ * numbers and the counterparty can recover them on reconnect.
+ */
+public class SessionSender {
+    public static final int DEFAULT_MAX_DEPTH = 1 << 16;
+    public static final int MAX_BATCH = 64;
+
+    private static final Logger LOGGER = Logger.getLogger(SessionSender.class.getName());
+
+    private final SessionID sessionId;
+    private final int maxDepth;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong slowConsumerLogouts = new AtomicLong();
+    private volatile boolean loggingOut;
+    private volatile int maxObservedDepth;
+
+    // Used by the sender thread only
+    private final ExecutionReportBuilder reports = new ExecutionReportBuilder();
+    private final List<Pending> batch = new ArrayList<>(MAX_BATCH);
+    private final LatencyHistogram sendLatency = new LatencyHistogram(); // enqueue -> written
+    private volatile long sent;
+    private volatile long failed;
+    private volatile long batches;
+
+    public SessionSender(SessionID sessionId, int maxDepth) {
+        this.sessionId = sessionId;
+        this.maxDepth = maxDepth;
+        Thread.ofVirtual().name("FIX-Sender-" + sessionId).start(this::run);
+    }
+
+    public SessionSender(SessionID sessionId) {
+        this(sessionId, DEFAULT_MAX_DEPTH);
+    }
+
+    /** Queue a message for this session. Never blocks. */
+    public void send(Message message) {
+        enqueue(new Pending(message, null, System.nanoTime()));
+    }
+
+    /** Queue an ExecutionReport, built on the sender thread. Never blocks. */
+    void send(ExecutionEvent event) {
+        enqueue(new Pending(null, event, System.nanoTime()));
+    }
+
+    private void enqueue(Pending pending) {
+        int backlog = depth.incrementAndGet();
+        if (backlog > maxObservedDepth) maxObservedDepth = backlog;
+        queue.add(pending);
+        if (backlog > maxDepth && !loggingOut) {
+            logOutSlowConsumer(backlog);
+        }
+    }
+
+    /**
+     * The session logged on again: a new backlog may trigger another logout,
+     * and the new connection's responder is wrapped for batched writes.
+     */
+    public void onLogon() {
+        loggingOut = false;
+        Session session = Session.lookupSession(sessionId);
+        if (session == null) return;
+        Responder responder = session.getResponder();
+        if (responder != null && !(responder instanceof BatchingResponder)) {
+            session.setResponder(new BatchingResponder(responder));
+        }
+    }
+
+    private void logOutSlowConsumer(int backlog) {
+        Session session = Session.lookupSession(sessionId);
+        if (session == null) return;
+        loggingOut = true;
+        slowConsumerLogouts.incrementAndGet();
+        LOGGER.warning(() -> "[FIX] " + sessionId + " is a slow consumer (" + backlog
+                + " messages queued), logging out");
+        session.logout("Slow consumer: outbound queue overflow");
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                depth.addAndGet(-batch.size());
+                sendBatch(Session.lookupSession(sessionId));
+                long written = System.nanoTime();
+                for (Pending pending : batch) {
+                    sendLatency.record(written - pending.enqueued);
+                }
+                batch.clear();
+                batches++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendBatch(Session session) {
+        BatchingResponder responder = session != null && session.getResponder() instanceof BatchingResponder b
+                ? b : null;
+        if (responder != null) responder.begin();
+        try {
+            for (Pending pending : batch) {
+                try {
+                    Message message = pending.event != null ? reports.build(pending.event) : pending.message;
+                    if (session != null && session.send(message)) {
+                        sent++;
+                    } else {
+                        failed++; // not written now; QuickFIX/J has stored it for resend if the session exists
+                    }
+                } catch (RuntimeException e) {
+                    failed++;
+                    LOGGER.warning(() -> "[FIX] " + sessionId + " could not send a message: " + e);
+                }
+            }
+        } finally {
+            if (responder != null) responder.end();
+        }
+    }
+
+    /** Approximate snapshot; the histogram is read while the sender records. */
+    public SenderMetrics getMetrics() {
+        return new SenderMetrics(sessionId.toString(), depth.get(), maxObservedDepth, sent, failed,
+                batches, slowConsumerLogouts.get(), sendLatency.toString());
+    }
+
+    /** A ready message or an ExecutionReport still to be built. */
+    private record Pending(Message message, ExecutionEvent event, long enqueued) {}
+
+    public record SenderMetrics(String session, int queueDepth, int maxQueueDepth, long sent,
+                                long notSent, long batches, long slowConsumerLogouts, String sendLatency) {
+        @Override
+        public String toString() {
+            return String.format("%s: queue %,d (max %,d), sent %,d, not sent %,d, %,d batches (%.1f per batch), "
+                            + "slow-consumer logouts %,d%n  enqueue -> written: %s",
+                    session, queueDepth, maxQueueDepth, sent, notSent, batches,
+                    batches == 0 ? 0.0 : (double) (sent + notSent) / batches, slowConsumerLogouts, sendLatency);
+        }
+    }
+}
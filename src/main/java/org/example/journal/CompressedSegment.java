@@ -0,0 +1,420 @@
+package org.example.journal;
+
+import org.example.Order;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed, seekable form of a closed journal segment ({@code .jz}).
+ *
+ * Records are grouped into blocks of up to {@link #BLOCK_RECORDS}. Inside a
+ * block every field is stored as its own column: sequence, order id, timestamp
+ * and price as zig-zag varint deltas, user ids through a per-block dictionary,
+ * then the whole block is deflated. A block index at the end of the file holds
+ * the sequence and timestamp range of every block, so readers can seek to a
+ * sequence or a point in time and inflate only the blocks they need.
+ *
+ * Layout: {@code MAGIC, VERSION, block*, index, long indexOffset, MAGIC}.
+ */
+public final class CompressedSegment implements Closeable {
+    public static final String EXTENSION = ".jz";
+    public static final int BLOCK_RECORDS = 4096;
+
+    private static final int MAGIC = 0x484A5A31; // "HJZ1"
+    private static final int VERSION = 1;
+    private static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final Order.Side[] SIDES = Order.Side.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockInfo[] blocks;
+
+    private CompressedSegment(Path path, FileChannel channel, BlockInfo[] blocks) {
+        this.path = path;
+        this.channel = channel;
+        this.blocks = blocks;
+    }
+
+    // ================= WRITING =================
+
+    /**
+     * Compress a CSV segment into {@code target}. Returns the number of records
+     * written.
+     */
+    public static long compress(Path source, Path target, int level) throws IOException {
+        BlockEncoder encoder = new BlockEncoder(level);
+        List<BlockInfo> index = new ArrayList<>();
+
+        try (CountingOutput out = new CountingOutput(new BufferedOutputStream(
+                new FileOutputStream(target.toFile()), 1 << 16))) {
+            out.data.writeInt(MAGIC);
+            out.data.writeInt(VERSION);
+
+            long total = new JournalReader(source.toString()).forEach(record -> {
+                encoder.add(record);
+                if (encoder.count == BLOCK_RECORDS) {
+                    try {
+                        index.add(encoder.flushTo(out));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            if (encoder.count > 0) {
+                index.add(encoder.flushTo(out));
+            }
+
+            long indexOffset = out.position;
+            out.data.writeInt(index.size());
+            for (BlockInfo block : index) {
+                block.writeTo(out.data);
+            }
+            out.data.writeLong(indexOffset);
+            out.data.writeInt(MAGIC);
+            return total;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            encoder.deflater.end();
+        }
+    }
+
+    // ================= READING =================
+
+    public static CompressedSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer footer = readFully(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+            long indexOffset = footer.getLong();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException("Not a compressed journal segment: " + path);
+            }
+
+            ByteBuffer header = readFully(channel, 0, 2 * Integer.BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Unsupported segment header: " + path);
+            }
+
+            ByteBuffer indexBuffer = readFully(channel, indexOffset, (int) (size - FOOTER_BYTES - indexOffset));
+            BlockInfo[] blocks = new BlockInfo[indexBuffer.getInt()];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = BlockInfo.readFrom(indexBuffer);
+            }
+            return new CompressedSegment(path, channel, blocks);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long forEach(Consumer<JournalRecord> consumer) throws IOException {
+        return forEachAfter(Long.MIN_VALUE, consumer);
+    }
+
+    /**
+     * Deliver records with a sequence above {@code afterSequence}, skipping
+     * (without inflating) every block that ends at or before it.
+     */
+    public long forEachAfter(long afterSequence, Consumer<JournalRecord> consumer) throws IOException {
+        long count = 0;
+        JournalRecord record = new JournalRecord();
+        for (BlockInfo block : blocks) {
+            if (block.lastSequence <= afterSequence) continue;
+            count += decodeBlock(block, record, r -> r.getSequence() > afterSequence, consumer);
+        }
+        return count;
+    }
+
+    /**
+     * Deliver records stamped at or after {@code fromMillis}, skipping every
+     * block whose newest record is older.
+     */
+    public long forEachFrom(long fromMillis, Consumer<JournalRecord> consumer) throws IOException {
+        long count = 0;
+        JournalRecord record = new JournalRecord();
+        for (BlockInfo block : blocks) {
+            if (block.maxTimestamp < fromMillis) continue;
+            count += decodeBlock(block, record, r -> r.getTimestamp() >= fromMillis, consumer);
+        }
+        return count;
+    }
+
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    public long getRecordCount() {
+        long total = 0;
+        for (BlockInfo block : blocks) total += block.count;
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long decodeBlock(BlockInfo block, JournalRecord record,
+                             Predicate<JournalRecord> filter,
+                             Consumer<JournalRecord> consumer) throws IOException {
+        ByteBuffer compressed = readFully(channel, block.offset, block.compressedLength);
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int n = 0;
+            while (n < raw.length) {
+                int got = inflater.inflate(raw, n, raw.length - n);
+                if (got == 0 && (inflater.finished() || inflater.needsInput())) break;
+                n += got;
+            }
+            if (n != raw.length) {
+                throw new IOException("Truncated block at offset " + block.offset + " in " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at offset " + block.offset + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        int count = readVarInt(in);
+        String[] dictionary = new String[readVarInt(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        byte[] types = new byte[count];
+        in.get(types);
+        long[] sequences = readDeltas(in, count);
+        long[] orderIds = readDeltas(in, count);
+        long[] timestamps = readDeltas(in, count);
+
+        long delivered = 0;
+        long price = 0;
+        for (int i = 0; i < count; i++) {
+            char type = (char) types[i];
+            if (type == JournalRecord.NEW) {
+                String userId = dictionary[readVarInt(in)];
+                Order.Side side = SIDES[in.get()];
+                price += zigZagDecode(readVarLong(in));
+                long quantity = readVarLong(in);
+                record.set(sequences[i], type, orderIds[i], userId, side, price, quantity, timestamps[i]);
+            } else {
+                record.set(sequences[i], type, orderIds[i], null, null, 0, 0, timestamps[i]);
+            }
+            if (filter.test(record)) {
+                consumer.accept(record);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private static long[] readDeltas(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += zigZagDecode(readVarLong(in));
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of segment");
+            }
+        }
+        return buffer.flip();
+    }
+
+    // ================= VARINT ENCODING =================
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // ================= INNER CLASSES =================
+
+    /** Accumulates one block of records column by column. */
+    private static final class BlockEncoder {
+        private final Deflater deflater;
+        private final byte[] types = new byte[BLOCK_RECORDS];
+        private final long[] sequences = new long[BLOCK_RECORDS];
+        private final long[] orderIds = new long[BLOCK_RECORDS];
+        private final long[] timestamps = new long[BLOCK_RECORDS];
+        private final int[] userIndexes = new int[BLOCK_RECORDS];
+        private final byte[] sides = new byte[BLOCK_RECORDS];
+        private final long[] prices = new long[BLOCK_RECORDS];
+        private final long[] quantities = new long[BLOCK_RECORDS];
+        private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+        private int count;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        BlockEncoder(int level) {
+            this.deflater = new Deflater(level);
+        }
+
+        void add(JournalRecord record) {
+            types[count] = (byte) record.getType();
+            sequences[count] = record.getSequence();
+            orderIds[count] = record.getOrderId();
+            timestamps[count] = record.getTimestamp();
+            maxTimestamp = Math.max(maxTimestamp, record.getTimestamp());
+            if (record.getType() == JournalRecord.NEW) {
+                userIndexes[count] = dictionary.computeIfAbsent(record.getUserId(), k -> dictionary.size());
+                sides[count] = (byte) record.getSide().ordinal();
+                prices[count] = record.getPrice();
+                quantities[count] = record.getQuantity();
+            }
+            count++;
+        }
+
+        BlockInfo flushTo(CountingOutput out) throws IOException {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(count * 16);
+            writeVarLong(raw, count);
+            writeVarLong(raw, dictionary.size());
+            for (String userId : dictionary.keySet()) {
+                byte[] bytes = userId.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(raw, bytes.length);
+                raw.write(bytes);
+            }
+            raw.write(types, 0, count);
+            writeDeltas(raw, sequences);
+            writeDeltas(raw, orderIds);
+            writeDeltas(raw, timestamps);
+
+            long previousPrice = 0;
+            for (int i = 0; i < count; i++) {
+                if (types[i] != JournalRecord.NEW) continue;
+                writeVarLong(raw, userIndexes[i]);
+                raw.write(sides[i]);
+                writeVarLong(raw, zigZagEncode(prices[i] - previousPrice));
+                previousPrice = prices[i];
+                writeVarLong(raw, quantities[i]);
+            }
+
+            byte[] input = raw.toByteArray();
+            deflater.reset();
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(64, input.length / 2)];
+            long offset = out.position;
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.data.write(buffer, 0, n);
+                compressedLength += n;
+            }
+
+            BlockInfo info = new BlockInfo(sequences[0], sequences[count - 1], timestamps[0],
+                    maxTimestamp, count, offset, compressedLength, input.length);
+            count = 0;
+            maxTimestamp = Long.MIN_VALUE;
+            dictionary.clear();
+            return info;
+        }
+
+        private void writeDeltas(ByteArrayOutputStream raw, long[] values) {
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                writeVarLong(raw, zigZagEncode(values[i] - previous));
+                previous = values[i];
+            }
+        }
+    }
+
+    /** Block index entry. */
+    private record BlockInfo(long firstSequence, long lastSequence, long firstTimestamp,
+                             long maxTimestamp, int count, long offset,
+                             int compressedLength, int rawLength) {
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(firstSequence);
+            out.writeLong(lastSequence);
+            out.writeLong(firstTimestamp);
+            out.writeLong(maxTimestamp);
+            out.writeInt(count);
+            out.writeLong(offset);
+            out.writeInt(compressedLength);
+            out.writeInt(rawLength);
+        }
+
+        static BlockInfo readFrom(ByteBuffer in) {
+            return new BlockInfo(in.getLong(), in.getLong(), in.getLong(), in.getLong(),
+                    in.getInt(), in.getLong(), in.getInt(), in.getInt());
+        }
+    }
+
+    /** DataOutputStream with a long byte position. */
+    private static final class CountingOutput implements Closeable {
+        private final DataOutputStream data;
+        private long position;
+
+        CountingOutput(OutputStream out) {
+            this.data = new DataOutputStream(new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    position += len;
+                }
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            data.close();
+        }
+    }
+}
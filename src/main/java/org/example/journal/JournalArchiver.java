@@ -0,0 +1,126 @@
+package org.example.journal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses closed journal segments in the background.
+ *
+ * Runs on its own single low-priority daemon thread with a bounded queue, so
+ * the journal writer only ever pays for a non-blocking hand-off. If the queue
+ * is full the segment is simply left uncompressed (still readable) and picked
+ * up again by the next startup scan. A segment is only deleted after its
+ * compressed copy has been written, re-opened and its record count verified.
+ */
+public class JournalArchiver {
+    private static final Logger LOGGER = Logger.getLogger(JournalArchiver.class.getName());
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private final ThreadPoolExecutor executor;
+    private final int compressionLevel;
+
+    private final AtomicLong segmentsCompressed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public JournalArchiver() {
+        this(DEFAULT_QUEUE_CAPACITY, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public JournalArchiver(int queueCapacity, int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "Journal-Archiver");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue a closed CSV segment for compression. Never blocks; returns false
+     * if the queue is full.
+     */
+    public boolean submit(Path segment) {
+        try {
+            executor.execute(() -> compress(segment));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            LOGGER.warning("Archiver queue full, leaving " + segment + " uncompressed");
+            return false;
+        }
+    }
+
+    private void compress(Path segment) {
+        Path target = compressedPath(segment);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            long sourceBytes = Files.size(segment);
+            long records = CompressedSegment.compress(segment, temp, compressionLevel);
+
+            try (CompressedSegment check = CompressedSegment.open(temp)) {
+                if (check.getRecordCount() != records) {
+                    throw new IOException(String.format("Verification failed: wrote %d records, read back %d",
+                            records, check.getRecordCount()));
+                }
+            }
+
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(segment);
+
+            segmentsCompressed.incrementAndGet();
+            bytesIn.addAndGet(sourceBytes);
+            bytesOut.addAndGet(Files.size(target));
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Failed to compress journal segment " + segment, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /** The {@code .jz} path a CSV segment is compressed to. */
+    public static Path compressedPath(Path segment) {
+        String name = segment.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        return segment.resolveSibling(stem + CompressedSegment.EXTENSION);
+    }
+
+    public ArchiverMetrics getMetrics() {
+        return new ArchiverMetrics(segmentsCompressed.get(), executor.getQueue().size(),
+                bytesIn.get(), bytesOut.get(), rejected.get(), failures.get());
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public record ArchiverMetrics(long segmentsCompressed, int queued, long bytesIn, long bytesOut,
+                                  long rejected, long failures) {
+        public double getRatio() {
+            return bytesOut > 0 ? (double) bytesIn / bytesOut : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Archiver: %d segments compressed (%.1fx), %d queued, " +
+                    "%d rejected, %d failed", segmentsCompressed, getRatio(), queued, rejected, failures);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.journal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Sequential reader for journal segments written by {@code OrderJournal}:
+ * plain CSV segments, or compressed {@code .jz} segments produced by the
+ * {@link JournalArchiver}.
+ *
+ * Every record is decoded into one reused {@link JournalRecord}; consumers
+ * that keep records must copy the fields they need. Malformed CSV lines (e.g.
+ * a torn last line after a crash) are skipped and counted.
+ */
+public class JournalReader {
+    private final String fileName;
+    private long skippedLines;
+
+    public JournalReader(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /** Read the whole segment. Returns the number of records delivered. */
+    public long forEach(Consumer<JournalRecord> consumer) throws IOException {
+        return forEachAfter(Long.MIN_VALUE, consumer);
+    }
+
+    /**
+     * Read records with a sequence above {@code afterSequence}. Compressed
+     * segments seek through their block index; CSV segments are scanned.
+     */
+    public long forEachAfter(long afterSequence, Consumer<JournalRecord> consumer) throws IOException {
+        if (fileName.endsWith(CompressedSegment.EXTENSION)) {
+            try (CompressedSegment segment = CompressedSegment.open(Path.of(fileName))) {
+                return segment.forEachAfter(afterSequence, consumer);
+            }
+        }
+
+        long count = 0;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(fileName), StandardCharsets.UTF_8), 1 << 16)) {
+            JournalRecord record = new JournalRecord();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (record.parseCsv(line)) {
+                    if (record.getSequence() > afterSequence) {
+                        consumer.accept(record);
+                        count++;
+                    }
+                } else if (!line.isBlank()) {
+                    skippedLines++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+}
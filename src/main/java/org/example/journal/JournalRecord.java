@@ -0,0 +1,196 @@
+package org.example.journal;
+
+import org.example.Order;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * One journaled engine event (a new order or a cancel).
+ *
+ * Instances are mutable and reused: the journal ring pre-allocates them, and
+ * readers and replication followers decode every event into the same instance.
+ * A modify is journaled as a CANCEL followed by a NEW with the same order id,
+ * which is exactly how {@code EnhancedOrderBook.modifyOrder} executes it.
+ */
+public final class JournalRecord {
+    public static final char NEW = 'N';
+    public static final char CANCEL = 'C';
+
+    private long sequence;
+    private char type;
+    private long orderId;
+    private String userId;
+    private Order.Side side;
+    private long price;
+    private long quantity;
+    private long timestamp;
+
+    public void setNewOrder(long sequence, Order order) {
+        this.sequence = sequence;
+        this.type = NEW;
+        this.orderId = order.getId();
+        this.userId = order.getUserId();
+        this.side = order.getSide();
+        this.price = order.getPrice();
+        this.quantity = order.getQuantity();
+    }
+
+    public void setCancel(long sequence, long orderId) {
+        this.sequence = sequence;
+        this.type = CANCEL;
+        this.orderId = orderId;
+        this.userId = null;
+        this.side = null;
+        this.price = 0;
+        this.quantity = 0;
+    }
+
+    /** Fill every field at once (used by segment decoders). */
+    void set(long sequence, char type, long orderId, String userId, Order.Side side,
+             long price, long quantity, long timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.orderId = orderId;
+        this.userId = userId;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.timestamp = timestamp;
+    }
+
+    /** Copy every field of {@code other} into this (reused) record. */
+    void copyFrom(JournalRecord other) {
+        set(other.sequence, other.type, other.orderId, other.userId, other.side,
+                other.price, other.quantity, other.timestamp);
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /** Build a fresh engine order from a NEW record. */
+    public Order toOrder() {
+        return new Order(orderId, userId, side, price, quantity);
+    }
+
+    // ================= CSV (journal file) =================
+
+    /**
+     * Format: {@code seq,type,orderId,userId,side,price,qty,timestamp}.
+     * Cancel records leave the order fields empty.
+     */
+    public void appendCsv(StringBuilder out) {
+        out.append(sequence).append(',').append(type).append(',').append(orderId).append(',');
+        if (type == NEW) {
+            out.append(userId).append(',')
+                    .append(side).append(',')
+                    .append(price).append(',')
+                    .append(quantity).append(',');
+        } else {
+            out.append(",,,,");
+        }
+        out.append(timestamp).append('\n');
+    }
+
+    /**
+     * Parse one journal line. Also accepts the legacy six-column format
+     * ({@code orderId,userId,side,price,qty,timestamp}) written before events
+     * were sequenced; such lines are read as NEW with sequence 0.
+     * Returns false for blank or malformed lines.
+     */
+    public boolean parseCsv(String line) {
+        String[] f = line.split(",", -1);
+        try {
+            if (f.length == 6) {
+                sequence = 0;
+                type = NEW;
+                orderId = Long.parseLong(f[0]);
+                userId = f[1];
+                side = Order.Side.valueOf(f[2]);
+                price = Long.parseLong(f[3]);
+                quantity = Long.parseLong(f[4]);
+                timestamp = Long.parseLong(f[5]);
+                return true;
+            }
+            if (f.length != 8 || f[1].length() != 1) {
+                return false;
+            }
+
+            sequence = Long.parseLong(f[0]);
+            type = f[1].charAt(0);
+            orderId = Long.parseLong(f[2]);
+            timestamp = Long.parseLong(f[7]);
+            if (type == NEW) {
+                userId = f[3];
+                side = Order.Side.valueOf(f[4]);
+                price = Long.parseLong(f[5]);
+                quantity = Long.parseLong(f[6]);
+            } else if (type == CANCEL) {
+                userId = null;
+                side = null;
+                price = 0;
+                quantity = 0;
+            } else {
+                return false;
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // ================= BINARY (replication stream) =================
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeByte(type);
+        out.writeLong(sequence);
+        out.writeLong(orderId);
+        out.writeLong(timestamp);
+        if (type == NEW) {
+            out.writeUTF(userId);
+            out.writeByte(side.ordinal());
+            out.writeLong(price);
+            out.writeLong(quantity);
+        }
+    }
+
+    public void readFrom(DataInputStream in) throws IOException {
+        type = (char) in.readByte();
+        sequence = in.readLong();
+        orderId = in.readLong();
+        timestamp = in.readLong();
+        if (type == NEW) {
+            userId = in.readUTF();
+            side = Order.Side.values()[in.readByte()];
+            price = in.readLong();
+            quantity = in.readLong();
+        } else if (type == CANCEL) {
+            userId = null;
+            side = null;
+            price = 0;
+            quantity = 0;
+        } else {
+            throw new IOException("Unknown journal record type: " + (int) type);
+        }
+    }
+
+    // Getters
+    public long getSequence() { return sequence; }
+    public char getType() { return type; }
+    public long getOrderId() { return orderId; }
+    public String getUserId() { return userId; }
+    public Order.Side getSide() { return side; }
+    public long getPrice() { return price; }
+    public long getQuantity() { return quantity; }
+    public long getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(96);
+        appendCsv(sb);
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.journal;
+
+import org.example.EnhancedOrderBook;
+import org.example.Order;
+import org.example.TradeListener;
+import org.example.metrics.LatencyHistogram;
+import org.example.risk.RiskEngine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays a recorded journal through a fresh {@link EnhancedOrderBook} and
+ * {@link RiskEngine} as fast as possible, for offline load reproduction and
+ * profiling.
+ *
+ * The journal is decoded into flat arrays up front, and every pass builds its
+ * orders before the clock starts, so the measured loop is only engine calls:
+ * no sleeps, no journaling, no console output from the trade listener.
+ * A CANCEL immediately followed by a NEW for the same order id is replayed as
+ * one modify (the cancel and the replacement, timed together), which is how
+ * the engine journals a modify.
+ *
+ * Segments (CSV or compressed {@code .jz}) are loaded in the order given.
+ *
+ * Usage: {@code JournalReplay <segment>... [--warmup <passes>] [--passes <passes>]}
+ */
+public class JournalReplay {
+
+    private static final byte CMD_NEW = 0;
+    private static final byte CMD_CANCEL = 1;
+    private static final byte CMD_MODIFY = 2;
+    private static final String[] CMD_NAMES = {"NEW", "CANCEL", "MODIFY"};
+
+    // Decoded journal, one entry per command
+    private int size;
+    private byte[] commands = new byte[1024];
+    private long[] orderIds = new long[1024];
+    private String[] userIds = new String[1024];
+    private Order.Side[] sides = new Order.Side[1024];
+    private long[] prices = new long[1024];
+    private long[] quantities = new long[1024];
+
+    // Pending CANCEL that may turn out to be the first half of a modify
+    private boolean cancelPending;
+    private long pendingCancelId;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: JournalReplay <segment>... [--warmup <passes>] [--passes <passes>]");
+            return;
+        }
+
+        int warmup = 2;
+        int passes = 1;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--passes" -> passes = Integer.parseInt(args[++i]);
+                default -> files.add(args[i]);
+            }
+        }
+
+        JournalReplay replay = new JournalReplay();
+        for (String file : files) {
+            JournalReader reader = new JournalReader(file);
+            long records = replay.load(reader);
+            System.out.printf("Loaded %,d records from %s (%,d malformed lines skipped)%n",
+                    records, file, reader.getSkippedLines());
+        }
+        System.out.printf("=== JOURNAL REPLAY: %,d commands ===%n", replay.size);
+
+        for (int i = 0; i < warmup; i++) {
+            replay.runPass();
+        }
+        System.out.printf("Warmup: %d passes%n", warmup);
+
+        for (int i = 1; i <= passes; i++) {
+            System.out.printf("%n--- Pass %d ---%n", i);
+            replay.runPass().print();
+        }
+    }
+
+    // ================= LOADING =================
+
+    public long load(JournalReader reader) throws IOException {
+        long records = reader.forEach(this::add);
+        flushPendingCancel();
+        return records;
+    }
+
+    private void add(JournalRecord record) {
+        if (record.getType() == JournalRecord.CANCEL) {
+            flushPendingCancel();
+            cancelPending = true;
+            pendingCancelId = record.getOrderId();
+            return;
+        }
+
+        byte command = CMD_NEW;
+        if (cancelPending) {
+            cancelPending = false;
+            if (pendingCancelId == record.getOrderId()) {
+                command = CMD_MODIFY;
+            } else {
+                append(CMD_CANCEL, pendingCancelId, null, null, 0, 0);
+            }
+        }
+        append(command, record.getOrderId(), record.getUserId(), record.getSide(),
+                record.getPrice(), record.getQuantity());
+    }
+
+    private void flushPendingCancel() {
+        if (cancelPending) {
+            cancelPending = false;
+            append(CMD_CANCEL, pendingCancelId, null, null, 0, 0);
+        }
+    }
+
+    private void append(byte command, long orderId, String userId, Order.Side side,
+                        long price, long quantity) {
+        if (size == commands.length) {
+            int capacity = size * 2;
+            commands = Arrays.copyOf(commands, capacity);
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            userIds = Arrays.copyOf(userIds, capacity);
+            sides = Arrays.copyOf(sides, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        commands[size] = command;
+        orderIds[size] = orderId;
+        userIds[size] = userId;
+        sides[size] = side;
+        prices[size] = price;
+        quantities[size] = quantity;
+        size++;
+    }
+
+    // ================= REPLAY =================
+
+    public ReplayResult runPass() {
+        long[] fills = new long[1];
+        TradeListener countingListener = trade -> fills[0]++;
+        EnhancedOrderBook book = new EnhancedOrderBook(countingListener, new RiskEngine(), null);
+
+        // Orders are mutable (matching decrements quantity), so build fresh ones each pass
+        Order[] orders = new Order[size];
+        for (int i = 0; i < size; i++) {
+            if (commands[i] != CMD_CANCEL) {
+                orders[i] = new Order(orderIds[i], userIds[i], sides[i], prices[i], quantities[i]);
+            }
+        }
+
+        LatencyHistogram[] latency = new LatencyHistogram[CMD_NAMES.length];
+        for (int i = 0; i < latency.length; i++) {
+            latency[i] = new LatencyHistogram();
+        }
+        long rejects = 0;
+
+        long passStart = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            byte command = commands[i];
+            long start = System.nanoTime();
+            switch (command) {
+                case CMD_NEW -> {
+                    if (!book.processOrder(orders[i]).isAccepted()) rejects++;
+                }
+                case CMD_CANCEL -> book.cancelOrder(orderIds[i]);
+                default -> {
+                    // The journal holds the replacement's open quantity, so replay both halves as journaled
+                    book.cancelOrder(orderIds[i]);
+                    if (!book.processOrder(orders[i]).isAccepted()) rejects++;
+                }
+            }
+            latency[command].record(System.nanoTime() - start);
+        }
+        long elapsedNanos = System.nanoTime() - passStart;
+
+        return new ReplayResult(size, fills[0], rejects, elapsedNanos, latency);
+    }
+
+    public record ReplayResult(long commands, long fills, long rejects, long elapsedNanos,
+                               LatencyHistogram[] latencyByCommand) {
+
+        public double getOrdersPerSecond() {
+            return commands / (elapsedNanos / 1e9);
+        }
+
+        public double getFillsPerSecond() {
+            return fills / (elapsedNanos / 1e9);
+        }
+
+        public void print() {
+            System.out.printf("Commands: %,d in %.2f ms, rejects: %,d%n",
+                    commands, elapsedNanos / 1e6, rejects);
+            System.out.printf("Throughput: %,.0f orders/sec, %,.0f fills/sec (%,d fills)%n",
+                    getOrdersPerSecond(), getFillsPerSecond(), fills);
+            for (int i = 0; i < latencyByCommand.length; i++) {
+                if (latencyByCommand[i].getCount() > 0) {
+                    System.out.printf("  %-7s %s%n", CMD_NAMES[i], latencyByCommand[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package org.example.journal;
+
+import org.example.OrderJournal;
+import org.example.concurrent.SpscRing;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Primary side of journal replication.
+ *
+ * Followers connect over TCP and send the last sequence they applied. Each
+ * follower gets its own thread for the handshake, catch-up and sending, so a
+ * slow or silent follower never holds up the acceptor or the journal writer.
+ * The writer only registers a new follower between batches, noting the last
+ * sequence written as its watermark, and from then on copies every record
+ * into the follower's bounded queue. The follower's thread streams the
+ * missing records up to the watermark from the journal files, then drains
+ * its queue to the socket, so no record is missed or sent twice. The writer
+ * never touches a socket: a follower whose queue fills up is dropped and
+ * catches up again when it reconnects. Followers
+ * acknowledge applied sequences on the same socket, and {@link #awaitAck}
+ * lets order-entry threads hold a confirmation until enough replicas have
+ * the event.
+ *
+ * Wire format (primary to follower): a handshake of {@code long epoch}, then
+ * {@link JournalRecord} frames. Follower to primary: {@code long lastApplied}
+ * once on connect, then one {@code long} per acknowledgement.
+ */
+public class JournalReplicator {
+    private static final Logger LOGGER = Logger.getLogger(JournalReplicator.class.getName());
+
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+    // Records queued for a follower before it is dropped to reconnect later
+    private static final int FOLLOWER_QUEUE_CAPACITY = 1 << 18;
+    private static final int MAX_SEND_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = 50_000;
+    private static final int MAX_IDLE_CATCH_UP_PASSES = 1_000;
+
+    private final int port;
+    private final int requiredAcks;
+    private final long ackTimeoutMillis;
+
+    // Identifies this primary's journal session; sequences restart with each epoch
+    private final long epoch = System.currentTimeMillis();
+
+    private final Queue<Follower> pending = new ConcurrentLinkedQueue<>();
+    private final List<Follower> live = new CopyOnWriteArrayList<>();
+    private final Object ackMonitor = new Object();
+
+    private volatile boolean running = true;
+    private ServerSocket serverSocket;
+    private OrderJournal journal;
+
+    /**
+     * @param requiredAcks     number of followers that must acknowledge an event
+     *                         before {@link #awaitAck} returns; 0 means asynchronous
+     * @param ackTimeoutMillis how long {@link #awaitAck} waits before giving up
+     */
+    public JournalReplicator(int port, int requiredAcks, long ackTimeoutMillis) {
+        this.port = port;
+        this.requiredAcks = requiredAcks;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+    }
+
+    public void start(OrderJournal journal) throws IOException {
+        this.journal = journal;
+        serverSocket = new ServerSocket(port);
+        journal.setReplicator(this);
+
+        Thread acceptor = new Thread(this::acceptLoop, "Replication-Acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("[Replication] Primary listening for followers on port " + port);
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> serveFollower(socket),
+                        "Replication-Follower-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.log(Level.WARNING, "Failed to accept follower", e);
+                }
+            }
+        }
+    }
+
+    // ================= FOLLOWER THREAD =================
+
+    /** Handshake, wait to be registered by the writer, catch up, then send from the queue. */
+    private void serveFollower(Socket socket) {
+        Follower follower;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeLong(epoch);
+            out.flush();
+
+            long lastApplied = in.readLong();
+            socket.setSoTimeout(0);
+            follower = new Follower(socket, in, out, lastApplied);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Handshake failed for follower " + socket.getRemoteSocketAddress(), e);
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+            return;
+        }
+
+        pending.add(follower);
+        System.out.printf("[Replication] Follower %s connected, resuming after seq %d%n",
+                follower.name, follower.lastApplied);
+        try {
+            follower.registered.await();
+            catchUp(follower);
+            stream(follower);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropFollower(follower, new InterruptedIOException("catch-up interrupted"));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Catch-up failed for follower " + follower.name, e);
+            dropFollower(follower, e);
+        }
+    }
+
+    /**
+     * Stream the records up to the follower's watermark from the journal
+     * files; everything after it is already in the follower's queue. A pass that races
+     * a segment rotation can miss records, so only the next expected sequence
+     * is sent and the read is repeated from there.
+     */
+    private void catchUp(Follower f) throws IOException, InterruptedException {
+        long[] next = {f.lastApplied + 1};
+        int idlePasses = 0;
+        while (next[0] <= f.watermark && !f.closed) {
+            long before = next[0];
+            try {
+                journal.readSession(next[0] - 1, f.watermark, record -> {
+                    if (record.getSequence() == next[0]) {
+                        f.send(record);
+                        next[0]++;
+                    }
+                });
+            } catch (FileNotFoundException e) {
+                // The active segment was being rotated; read again
+            }
+            if (next[0] == before) {
+                if (++idlePasses > MAX_IDLE_CATCH_UP_PASSES) {
+                    throw new IOException("journal has no record " + next[0] + " for catch-up");
+                }
+                Thread.sleep(1);
+            } else {
+                idlePasses = 0;
+            }
+        }
+        if (!f.closed) {
+            System.out.printf("[Replication] Follower %s caught up to seq %d%n", f.name, f.watermark);
+        }
+    }
+
+    /** Send the queued records in batches, one flush per batch, until the follower is dropped. */
+    private void stream(Follower f) {
+        while (!f.closed) {
+            if (f.queue.drain(f::send, MAX_SEND_BATCH) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                f.out.flush();
+            } catch (IOException e) {
+                dropFollower(f, e);
+            }
+        }
+    }
+
+    // ================= WRITER THREAD =================
+
+    public boolean hasPendingFollowers() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Register pending followers between batches, with the last sequence
+     * written (and flushed) as their catch-up watermark. Every later record
+     * reaches them through {@link #append}, so none is missed or sent twice.
+     */
+    public void admitPendingFollowers(OrderJournal journal) {
+        Follower f;
+        while ((f = pending.poll()) != null) {
+            f.watermark = journal.getWrittenSequence();
+            live.add(f);
+            startAckReader(f);
+            f.registered.countDown();
+        }
+    }
+
+    /** Queue one record for every live follower; drops a follower whose queue is full. Never blocks. */
+    public void append(JournalRecord record) {
+        for (Follower f : live) {
+            if (!f.enqueue(record)) {
+                dropFollower(f, new IOException("too far behind, queue full"));
+            }
+        }
+    }
+
+    // ================= ACKNOWLEDGEMENTS =================
+
+    private void startAckReader(Follower f) {
+        Thread reader = new Thread(() -> {
+            try {
+                while (running) {
+                    long acked = f.in.readLong();
+                    f.ackedSequence = acked;
+                    synchronized (ackMonitor) {
+                        ackMonitor.notifyAll();
+                    }
+                }
+            } catch (IOException e) {
+                dropFollower(f, e);
+            }
+        }, "Replication-Ack-" + f.name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public boolean isSynchronous() {
+        return requiredAcks > 0;
+    }
+
+    /**
+     * Wait until {@code requiredAcks} followers have applied {@code sequence}.
+     * Returns immediately when replication is asynchronous or the sequence is
+     * invalid; returns false on timeout.
+     */
+    public boolean awaitAck(long sequence) {
+        if (requiredAcks <= 0 || sequence <= 0) return true;
+        if (countAcked(sequence) >= requiredAcks) return true;
+
+        long deadline = System.nanoTime() + ackTimeoutMillis * 1_000_000L;
+        synchronized (ackMonitor) {
+            while (countAcked(sequence) < requiredAcks) {
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                try {
+                    ackMonitor.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int countAcked(long sequence) {
+        int count = 0;
+        for (Follower f : live) {
+            if (f.ackedSequence >= sequence) count++;
+        }
+        return count;
+    }
+
+    private void dropFollower(Follower f, IOException cause) {
+        if (live.remove(f)) {
+            System.out.printf("[Replication] Follower %s disconnected: %s%n", f.name,
+                    cause.getMessage() != null ? cause.getMessage() : "connection closed");
+        }
+        f.close();
+        synchronized (ackMonitor) {
+            ackMonitor.notifyAll();
+        }
+    }
+
+    public ReplicationStatus getStatus() {
+        long minAcked = Long.MAX_VALUE;
+        for (Follower f : live) {
+            minAcked = Math.min(minAcked, f.ackedSequence);
+        }
+        return new ReplicationStatus(epoch, live.size(), pending.size(),
+                live.isEmpty() ? 0 : minAcked, requiredAcks);
+    }
+
+    public void shutdown() {
+        running = false;
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException ignored) {}
+        for (Follower f : live) {
+            f.close();
+        }
+        for (Follower f : pending) {
+            f.close();
+        }
+    }
+
+    // ================= INNER CLASSES =================
+
+    private final class Follower {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final long lastApplied;
+        private final String name;
+        private final CountDownLatch registered = new CountDownLatch(1);
+        private volatile long ackedSequence;
+        private volatile long watermark;
+        private volatile boolean closed;
+
+        // Records written after the watermark; the writer produces, the follower's thread sends
+        private final SpscRing<JournalRecord> queue = new SpscRing<>(FOLLOWER_QUEUE_CAPACITY, JournalRecord::new);
+
+        Follower(Socket socket, DataInputStream in, DataOutputStream out, long lastApplied) {
+            this.socket = socket;
+            this.in = in;
+            this.out = out;
+            this.lastApplied = lastApplied;
+            this.ackedSequence = lastApplied;
+            this.name = socket.getRemoteSocketAddress().toString();
+        }
+
+        void send(JournalRecord record) {
+            try {
+                record.writeTo(out);
+            } catch (IOException e) {
+                dropFollower(this, e);
+            }
+        }
+
+        /** Writer thread: copy the record into the queue; false if it is full. */
+        boolean enqueue(JournalRecord record) {
+            JournalRecord slot = queue.claim();
+            if (slot == null) return false;
+            slot.copyFrom(record);
+            queue.publish();
+            return true;
+        }
+
+        void close() {
+            closed = true;
+            registered.countDown();
+            try {
+                socket.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    public record ReplicationStatus(long epoch, int liveFollowers, int pendingFollowers,
+                                    long minAckedSequence, int requiredAcks) {
+        @Override
+        public String toString() {
+            return String.format(
+                    "Replication: epoch %d, followers %d live / %d pending, min acked seq %d, %s",
+                    epoch, liveFollowers, pendingFollowers, minAckedSequence,
+                    requiredAcks > 0 ? "sync (" + requiredAcks + " ack)" : "async");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.journal;
+
+import org.example.EnhancedOrderBook;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Standby side of journal replication.
+ *
+ * Connects to a {@link JournalReplicator}, applies every replicated event to
+ * its own {@link EnhancedOrderBook} strictly in sequence, and acknowledges the
+ * last applied sequence after each burst. The book stays warm, so
+ * {@link #promote()} only has to stop following before the standby can take
+ * order flow.
+ */
+public class ReplicaFollower {
+    private static final Logger LOGGER = Logger.getLogger(ReplicaFollower.class.getName());
+    private static final long RECONNECT_DELAY_MS = 1000;
+
+    private final EnhancedOrderBook book;
+    private final String host;
+    private final int port;
+
+    private volatile boolean following = true;
+    private volatile Socket socket;
+    private volatile long lastApplied;
+    private volatile long appliedCount;
+    private long epoch;
+
+    private Thread thread;
+
+    public ReplicaFollower(EnhancedOrderBook book, String host, int port) {
+        this.book = book;
+        this.host = host;
+        this.port = port;
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "Replica-Follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        JournalRecord record = new JournalRecord();
+        while (following) {
+            try (Socket s = new Socket(host, port)) {
+                socket = s;
+                s.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+                long primaryEpoch = in.readLong();
+                if (epoch != 0 && primaryEpoch != epoch) {
+                    System.err.printf("[Replica] Primary restarted (epoch %d -> %d); " +
+                            "standby book no longer matches, stopping replication%n", epoch, primaryEpoch);
+                    following = false;
+                    return;
+                }
+                epoch = primaryEpoch;
+
+                out.writeLong(lastApplied);
+                out.flush();
+                System.out.printf("[Replica] Following %s:%d from seq %d%n", host, port, lastApplied);
+
+                while (following) {
+                    record.readFrom(in);
+                    apply(record);
+
+                    // Acknowledge once per burst rather than per record
+                    if (in.available() == 0) {
+                        out.writeLong(lastApplied);
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                if (!following) break;
+                LOGGER.log(Level.FINE, "Replication stream lost", e);
+                System.out.println("[Replica] Lost primary: " + e.getMessage() + ", reconnecting...");
+                sleepQuietly(RECONNECT_DELAY_MS);
+            }
+        }
+    }
+
+    private void apply(JournalRecord record) throws IOException {
+        long expected = lastApplied + 1;
+        if (record.getSequence() != expected) {
+            throw new IOException(String.format(
+                    "Sequence gap: expected %d, got %d", expected, record.getSequence()));
+        }
+
+        if (record.getType() == JournalRecord.NEW) {
+            book.applyReplicated(record.toOrder());
+        } else {
+            book.cancelOrder(record.getOrderId());
+        }
+        lastApplied = record.getSequence();
+        appliedCount++;
+    }
+
+    /**
+     * Stop following the primary and hand the warm book to the caller.
+     * Waits for the in-flight event (if any) to finish applying.
+     */
+    public EnhancedOrderBook promote() {
+        following = false;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {}
+        }
+        if (thread != null) {
+            try {
+                thread.join(RECONNECT_DELAY_MS * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.printf("[Replica] Promoted to primary at seq %d (%d events applied)%n",
+                lastApplied, appliedCount);
+        return book;
+    }
+
+    public boolean isFollowing() { return following; }
+    public long getLastApplied() { return lastApplied; }
+    public long getAppliedCount() { return appliedCount; }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
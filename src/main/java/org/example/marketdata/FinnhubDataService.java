@@ -20,6 +20,7 @@ public class FinnhubDataService {
     // Cache to avoid hitting rate limits
     private final ConcurrentHashMap<String, MarketDataSnapshot> cache;
     private final ConcurrentHashMap<String, Long> lastFetchTime;
+    private volatile MarketDataListener quoteListener;
 
     public FinnhubDataService() {
         this.httpClient = HttpClient.newHttpClient();
@@ -58,6 +59,8 @@ public class FinnhubDataService {
             if (snapshot != null) {
                 cache.put(symbol, snapshot);
                 lastFetchTime.put(symbol, now);
+                MarketDataListener listener = quoteListener;
+                if (listener != null) listener.onMarketData(snapshot);
                 return snapshot;
             }
         } catch (Exception e) {
@@ -130,6 +133,11 @@ public class FinnhubDataService {
         return snapshot;
     }
 
+    /** Notified with every quote actually fetched from Finnhub; cached and default snapshots are not quotes. */
+    public void setQuoteListener(MarketDataListener listener) {
+        this.quoteListener = listener;
+    }
+
     public void startBackgroundUpdates() {
         // Update all symbols every 5 seconds (respects rate limits)
         scheduler.scheduleAtFixedRate(() -> {
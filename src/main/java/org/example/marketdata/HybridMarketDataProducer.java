@@ -1,12 +1,15 @@
 package org.example.marketdata;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class HybridMarketDataProducer {
     private final FinnhubDataService finnhubService;
     private final SimulatedDataProducer simulatedProducer;
     private final Map<String, String> symbolSourceMap;
+    private final List<MarketDataListener> listeners = new CopyOnWriteArrayList<>();
 
     public HybridMarketDataProducer() {
         this.finnhubService = new FinnhubDataService();
@@ -21,18 +24,34 @@ public class HybridMarketDataProducer {
         symbolSourceMap.put("AMZN", "FINNHUB");
         symbolSourceMap.put("TSLA", "FINNHUB");
 
-        // Start background updates
+        // Start background updates; every fresh quote reaches the listeners
+        finnhubService.setQuoteListener(snapshot -> {
+            for (MarketDataListener listener : listeners) {
+                listener.onMarketData(snapshot);
+            }
+        });
         finnhubService.startBackgroundUpdates();
     }
 
+    /**
+     * Notified with every quote fetched from a real feed, as it arrives.
+     * Simulated and cached fallback prices are not quotes and never reach
+     * listeners, so they cannot be mistaken for marks.
+     */
+    public void addListener(MarketDataListener listener) {
+        listeners.add(listener);
+    }
+
     public MarketDataSnapshot getSnapshot(String symbol) {
         String source = symbolSourceMap.getOrDefault(symbol, "SIMULATION");
 
+        MarketDataSnapshot snapshot;
         if ("FINNHUB".equals(source)) {
-            return finnhubService.getRealTimeData(symbol);
+            snapshot = finnhubService.getRealTimeData(symbol);
         } else {
-            return simulatedProducer.getSnapshot(symbol);
+            snapshot = simulatedProducer.getSnapshot(symbol);
         }
+        return snapshot;
     }
 
     public void shutdown() {
@@ -0,0 +1,5 @@
+package org.example.marketdata;
+
+public interface MarketDataListener {
+    void onMarketData(MarketDataSnapshot snapshot);
+}
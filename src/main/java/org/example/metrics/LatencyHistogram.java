@@ -0,0 +1,105 @@
+package org.example.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size log-linear latency histogram (nanosecond samples).
+ *
+ * Every power of two is split into 32 linear sub-buckets, giving about 3%
+ * relative precision from 1 ns up to {@code Long.MAX_VALUE} in 1920 counters.
+ * Recording is a couple of shifts and an array increment with no allocation.
+ * Not thread-safe: record from a single thread; other threads may read an
+ * approximate snapshot.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long totalNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[indexOf(nanos)]++;
+        totalCount++;
+        totalNanos += nanos;
+        if (nanos < minNanos) minNanos = nanos;
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    /** Merge another histogram's samples into this one. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        totalNanos += other.totalNanos;
+        minNanos = Math.min(minNanos, other.minNanos);
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalNanos = 0;
+        minNanos = Long.MAX_VALUE;
+        maxNanos = 0;
+    }
+
+    /**
+     * Value at the given percentile (0-100), reported as the upper bound of
+     * the bucket that contains it.
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(totalCount * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(upperBound(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    public long getCount() { return totalCount; }
+    public long getMin() { return totalCount == 0 ? 0 : minNanos; }
+    public long getMax() { return maxNanos; }
+
+    public double getMean() {
+        return totalCount == 0 ? 0.0 : (double) totalNanos / totalCount;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        int bucket = index >>> SUB_BUCKET_BITS;
+        int sub = index & (SUB_BUCKETS - 1);
+        if (bucket == 0) return sub;
+        return ((long) (SUB_BUCKETS + sub)) << (bucket - 1);
+    }
+
+    static long upperBound(int index) {
+        return index + 1 < BUCKET_COUNT ? lowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "n=%,d mean=%.2f μs p50=%.2f μs p90=%.2f μs p99=%.2f μs p99.9=%.2f μs max=%.2f μs",
+                totalCount, getMean() / 1000.0,
+                getPercentile(50) / 1000.0, getPercentile(90) / 1000.0,
+                getPercentile(99) / 1000.0, getPercentile(99.9) / 1000.0,
+                maxNanos / 1000.0);
+    }
+}
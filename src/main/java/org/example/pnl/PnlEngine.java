@@ -0,0 +1,355 @@
+package org.example.pnl;
+
+import org.example.Trade;
+import org.example.TradeListener;
+import org.example.concurrent.SpscRing;
+import org.example.marketdata.MarketDataListener;
+import org.example.marketdata.MarketDataSnapshot;
+import org.example.risk.LossMonitor;
+import org.example.risk.RiskEngine;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Realised and unrealised PnL per trader and instrument, on its own thread.
+ *
+ * Each order book gets a {@link #feed} that only copies its fills into a
+ * private ring, so matching pays a few stores per trade. The PnL thread drains
+ * the rings, updates positions and average cost, and re-marks open positions
+ * whenever an instrument's mark moves. Marks arrive from real market data
+ * quotes through {@link #onMarketData} and are picked up on the next loop;
+ * an instrument without a quote is marked at its last trade.
+ *
+ * All money is in cents. Average cost is fixed-point, {@link #COST_SCALE}
+ * units per cent, so repeated fills at different prices do not drift.
+ * Traders and instruments use the risk engine's ids; results are published
+ * per trader so the risk check reads its loss flag in O(1).
+ */
+public class PnlEngine implements LossMonitor, MarketDataListener, Closeable {
+    public static final long COST_SCALE = 10_000;
+
+    private static final Logger LOGGER = Logger.getLogger(PnlEngine.class.getName());
+
+    private static final int RING_CAPACITY = 1 << 14;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    // Per-trader published layout, at trader * TRADER_STRIDE
+    private static final int REALISED = 0;
+    private static final int UNREALISED = 1;
+    private static final int TRADER_STRIDE = 2;
+
+    private final RiskEngine riskEngine;
+    private final int maxTraders;
+    private final int maxInstruments;
+    private final long lossLimit;
+
+    // Cell state at trader * maxInstruments + instrument; written only by the PnL thread
+    private final AtomicLongArray position;     // signed quantity
+    private final AtomicLongArray averageCost;  // cents * COST_SCALE
+    private final AtomicLongArray realised;     // cents * COST_SCALE
+    private final AtomicLongArray unrealised;   // cents * COST_SCALE
+
+    private final AtomicLongArray traderPnl;
+    private final AtomicIntegerArray lossBreached;
+
+    // Latest mark per instrument (written by market data) and the one last applied
+    private final AtomicLongArray marks;
+    private final long[] appliedMarks;
+
+    private final List<Feed> feeds = new CopyOnWriteArrayList<>();
+    private final AtomicLong backpressureStalls = new AtomicLong();
+    private final AtomicLong droppedTrades = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean stopped; // PnL thread has exited: feeds drop instead of waiting
+    private final Thread pnlThread;
+
+    /**
+     * @param lossLimit loss in cents (positive) beyond which new orders are
+     *                  rejected; 0 for no limit
+     */
+    public PnlEngine(RiskEngine riskEngine, int maxTraders, int maxInstruments, long lossLimit) {
+        this.riskEngine = riskEngine;
+        this.maxTraders = maxTraders;
+        this.maxInstruments = maxInstruments;
+        this.lossLimit = lossLimit;
+
+        int cells = maxTraders * maxInstruments;
+        this.position = new AtomicLongArray(cells);
+        this.averageCost = new AtomicLongArray(cells);
+        this.realised = new AtomicLongArray(cells);
+        this.unrealised = new AtomicLongArray(cells);
+        this.traderPnl = new AtomicLongArray(maxTraders * TRADER_STRIDE);
+        this.lossBreached = new AtomicIntegerArray(maxTraders);
+        this.marks = new AtomicLongArray(maxInstruments);
+        this.appliedMarks = new long[maxInstruments];
+
+        pnlThread = new Thread(this::run, "PnL-Engine");
+        pnlThread.setDaemon(true);
+        pnlThread.start();
+    }
+
+    public PnlEngine(RiskEngine riskEngine, long lossLimit) {
+        this(riskEngine, RiskEngine.DEFAULT_MAX_TRADERS, RiskEngine.DEFAULT_MAX_INSTRUMENTS, lossLimit);
+    }
+
+    // ================= PRODUCERS =================
+
+    /**
+     * Trade listener for one book. Each book needs its own feed: a feed is a
+     * single-producer ring, and the book's lock serialises its producers.
+     */
+    public TradeListener feed(String symbol) {
+        Feed feed = new Feed(riskEngine.internInstrument(symbol));
+        feeds.add(feed);
+        return feed;
+    }
+
+    /** Record the latest price of an instrument; open positions are re-marked on the PnL thread. */
+    @Override
+    public void onMarketData(MarketDataSnapshot snapshot) {
+        long ticks = Math.round(snapshot.getLastPrice() * 100);
+        int instrument = riskEngine.internInstrument(snapshot.getSymbol());
+        if (instrument >= 0 && ticks > 0) {
+            marks.lazySet(instrument, ticks);
+        }
+    }
+
+    private final class Feed implements TradeListener {
+        private final int instrument;
+        private final SpscRing<Slot> ring = new SpscRing<>(RING_CAPACITY, Slot::new);
+
+        Feed(int instrument) {
+            this.instrument = instrument;
+        }
+
+        @Override
+        public void onTrade(Trade trade) {
+            if (stopped) {
+                droppedTrades.incrementAndGet();
+                return;
+            }
+            Slot slot = ring.claim();
+            if (slot == null) {
+                backpressureStalls.incrementAndGet();
+                while ((slot = ring.claim()) == null) {
+                    if (stopped) {
+                        droppedTrades.incrementAndGet();
+                        return;
+                    }
+                    Thread.onSpinWait();
+                }
+            }
+            slot.instrument = instrument;
+            slot.price = trade.price();
+            slot.quantity = trade.quantity();
+            slot.buyer = trade.buyUserId();
+            slot.seller = trade.sellUserId();
+            ring.publish();
+        }
+    }
+
+    // ================= PNL THREAD =================
+
+    private void run() {
+        try {
+            while (running) {
+                int drained = 0;
+                for (Feed feed : feeds) {
+                    drained += feed.ring.drain(this::applyTrade, MAX_BATCH);
+                }
+                boolean remarked = applyMarks();
+                if (drained == 0 && !remarked) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "PnL engine stopped, further trades are dropped", e);
+        } finally {
+            stopped = true;
+        }
+    }
+
+    private void applyTrade(Slot slot) {
+        int instrument = slot.instrument;
+        if (instrument < 0) return;
+        applyFill(riskEngine.internTrader(slot.buyer), instrument, slot.price, slot.quantity);
+        applyFill(riskEngine.internTrader(slot.seller), instrument, slot.price, -slot.quantity);
+        if (marks.get(instrument) == 0 && appliedMarks[instrument] != slot.price) {
+            remark(instrument, slot.price); // no market data for it: mark at the last trade
+        }
+    }
+
+    /**
+     * Apply a signed fill. Fills that add to the position move the average
+     * cost; fills that reduce it realise PnL against the average cost, and a
+     * fill through zero opens the remainder at the fill price.
+     */
+    private void applyFill(int trader, int instrument, long price, long signedQty) {
+        if (trader < 0) return;
+        int cell = trader * maxInstruments + instrument;
+        long pos = position.get(cell);
+        long cost = averageCost.get(cell);
+        long scaledPrice = price * COST_SCALE;
+
+        if (pos == 0 || Long.signum(pos) == Long.signum(signedQty)) {
+            long newPos = pos + signedQty;
+            cost = (cost * Math.abs(pos) + scaledPrice * Math.abs(signedQty)) / Math.abs(newPos);
+            pos = newPos;
+        } else {
+            long closed = Math.min(Math.abs(pos), Math.abs(signedQty));
+            long perShare = pos > 0 ? scaledPrice - cost : cost - scaledPrice;
+            realised.lazySet(cell, realised.get(cell) + perShare * closed);
+            pos += signedQty;
+            if (pos == 0) {
+                cost = 0;
+            } else if (Long.signum(pos) == Long.signum(signedQty)) {
+                cost = scaledPrice; // flipped sides
+            }
+        }
+        position.lazySet(cell, pos);
+        averageCost.lazySet(cell, cost);
+        mark(trader, instrument);
+    }
+
+    /** Re-mark every instrument whose market data price moved. Returns true if any did. */
+    private boolean applyMarks() {
+        boolean any = false;
+        for (int i = 0; i < maxInstruments; i++) {
+            long mark = marks.get(i);
+            if (mark != 0 && mark != appliedMarks[i]) {
+                remark(i, mark);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    private void remark(int instrument, long mark) {
+        appliedMarks[instrument] = mark;
+        int traders = Math.min(maxTraders, riskEngine.getTraderCount());
+        for (int t = 0; t < traders; t++) {
+            if (position.get(t * maxInstruments + instrument) != 0) {
+                mark(t, instrument);
+            }
+        }
+    }
+
+    private void mark(int trader, int instrument) {
+        int cell = trader * maxInstruments + instrument;
+        long pos = position.get(cell);
+        long mark = appliedMarks[instrument];
+        long value = pos == 0 || mark == 0 ? 0 : (mark * COST_SCALE - averageCost.get(cell)) * pos;
+        unrealised.lazySet(cell, value);
+        publish(trader);
+    }
+
+    private void publish(int trader) {
+        long realisedTotal = 0;
+        long unrealisedTotal = 0;
+        int base = trader * maxInstruments;
+        for (int i = 0; i < maxInstruments; i++) {
+            realisedTotal += realised.get(base + i);
+            unrealisedTotal += unrealised.get(base + i);
+        }
+        realisedTotal /= COST_SCALE;
+        unrealisedTotal /= COST_SCALE;
+        traderPnl.lazySet(trader * TRADER_STRIDE + REALISED, realisedTotal);
+        traderPnl.lazySet(trader * TRADER_STRIDE + UNREALISED, unrealisedTotal);
+
+        long total = realisedTotal + unrealisedTotal;
+        lossBreached.lazySet(trader, lossLimit > 0 && -total > lossLimit ? 1 : 0);
+        riskEngine.getKillSwitch().checkLoss(trader, total);
+    }
+
+    // ================= LOSS MONITOR =================
+
+    @Override
+    public boolean isLossLimitBreached(int trader) {
+        return lossBreached.get(trader) != 0;
+    }
+
+    @Override
+    public long totalPnl(int trader) {
+        int base = trader * TRADER_STRIDE;
+        return traderPnl.get(base + REALISED) + traderPnl.get(base + UNREALISED);
+    }
+
+    @Override
+    public long lossLimit() {
+        return lossLimit;
+    }
+
+    // ================= QUERIES =================
+
+    public PnlSnapshot getTraderPnl(String traderId) {
+        int trader = riskEngine.lookupTrader(traderId);
+        if (trader < 0) return new PnlSnapshot(traderId, 0, 0, 0, 0);
+        int base = trader * TRADER_STRIDE;
+        return new PnlSnapshot(traderId + "/ALL", 0, 0,
+                traderPnl.get(base + REALISED), traderPnl.get(base + UNREALISED));
+    }
+
+    /** Position, average cost and PnL of one trader in one instrument. */
+    public PnlSnapshot getPnl(String traderId, String symbol) {
+        String key = traderId + "/" + symbol;
+        int trader = riskEngine.lookupTrader(traderId);
+        int instrument = riskEngine.lookupInstrument(symbol);
+        if (trader < 0 || instrument < 0) return new PnlSnapshot(key, 0, 0, 0, 0);
+        int cell = trader * maxInstruments + instrument;
+        return new PnlSnapshot(key, position.get(cell), averageCost.get(cell),
+                realised.get(cell) / COST_SCALE, unrealised.get(cell) / COST_SCALE);
+    }
+
+    public long getBackpressureStalls() {
+        return backpressureStalls.get();
+    }
+
+    /** Fills not applied because the PnL thread had stopped. */
+    public long getDroppedTrades() {
+        return droppedTrades.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            pnlThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ================= INNER CLASSES =================
+
+    /** Mutable ring slot holding a copy of one fill. */
+    private static final class Slot {
+        int instrument;
+        long price;
+        long quantity;
+        String buyer;
+        String seller;
+    }
+
+    /** PnL in cents; average cost in cents * {@link #COST_SCALE}. */
+    public record PnlSnapshot(String key, long position, long averageCost, long realised, long unrealised) {
+        public long total() {
+            return realised + unrealised;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: pos %,d @ %.4f, realised %,.2f, unrealised %,.2f, total %,.2f",
+                    key, position, averageCost / (double) COST_SCALE / 100.0,
+                    realised / 100.0, unrealised / 100.0, total() / 100.0);
+        }
+    }
+}
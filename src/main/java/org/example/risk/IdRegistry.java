@@ -0,0 +1,61 @@
+package org.example.risk;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Assigns dense, never-reused integer ids to names (traders, symbols) so risk
+ * state can live in flat arrays. Lookups are lock-free; registration of a new
+ * name is serialized and publishes the id only after the caller's initializer
+ * has run.
+ */
+final class IdRegistry {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final String[] names;
+    private int count; // guarded by this
+
+    IdRegistry(int capacity) {
+        this.names = new String[capacity];
+    }
+
+    /** Id for {@code name}, or -1 if it was never registered. */
+    int lookup(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Id for {@code name}, registering it on first sight. {@code onRegister}
+     * runs with the new id before any other thread can observe it.
+     * Returns -1 when capacity is exhausted.
+     */
+    int intern(String name, IntConsumer onRegister) {
+        Integer id = ids.get(name);
+        return id != null ? id : register(name, onRegister);
+    }
+
+    private synchronized int register(String name, IntConsumer onRegister) {
+        Integer existing = ids.get(name);
+        if (existing != null) return existing;
+        if (count == names.length) return -1;
+
+        int id = count++;
+        names[id] = name;
+        onRegister.accept(id);
+        ids.put(name, id);
+        return id;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    int capacity() {
+        return names.length;
+    }
+}
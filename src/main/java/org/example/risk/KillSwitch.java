@@ -0,0 +1,194 @@
+package org.example.risk;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+
+/**
+ * Per-trader, per-session and global trading halt.
+ *
+ * Killing sets the block flag first and then asks every registered
+ * {@link Listener} (the order books) to pull the resting orders in scope, so
+ * nothing new gets in while the sweep runs. The hot path only reads the
+ * volatile {@link #isArmed()} flag, which is false unless some kill is active.
+ *
+ * Kills also trigger automatically when a trader breaches the configured
+ * {@link Policy}: too many risk rejects, too many rate-limit rejects, or too
+ * large a loss.
+ */
+public class KillSwitch {
+    private static final Logger LOGGER = Logger.getLogger(KillSwitch.class.getName());
+
+    public enum Scope { TRADER, SESSION, GLOBAL }
+
+    /** Pulls resting orders when a kill fires. {@code index} is -1 for GLOBAL. */
+    public interface Listener {
+        void onKill(Scope scope, int index);
+    }
+
+    /**
+     * Automatic kill thresholds per trader; 0 disables a threshold. Loss is
+     * in cents and counted as a positive number.
+     */
+    public record Policy(int maxRejects, int maxRateRejects, long maxLoss) {
+        public static final Policy DISABLED = new Policy(0, 0, 0);
+    }
+
+    private volatile boolean armed;
+    private volatile boolean global;
+    private final AtomicIntegerArray killedTraders;
+    private final AtomicIntegerArray killedSessions;
+    private final Object armLock = new Object();
+    private int activeKills; // guarded by armLock; armed is only ever derived from it
+
+    private volatile Policy policy;
+    private final AtomicIntegerArray rejectCounts;
+    private final AtomicIntegerArray rateRejectCounts;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public KillSwitch(int maxTraders, int maxSessions, Policy policy) {
+        this.killedTraders = new AtomicIntegerArray(maxTraders);
+        this.killedSessions = new AtomicIntegerArray(maxSessions);
+        this.rejectCounts = new AtomicIntegerArray(maxTraders);
+        this.rateRejectCounts = new AtomicIntegerArray(maxTraders);
+        this.policy = policy;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // ================= HOT PATH =================
+
+    /** True if any kill is active. The only read on the hot path when nothing is killed. */
+    public boolean isArmed() {
+        return armed;
+    }
+
+    /** Whether an order from this trader and session is blocked. Call only when armed. */
+    public boolean blocks(int trader, int session) {
+        return global
+                || (trader >= 0 && killedTraders.get(trader) != 0)
+                || (session >= 0 && killedSessions.get(session) != 0);
+    }
+
+    // ================= KILL / RELEASE =================
+
+    public void killTrader(int trader, String reason) {
+        if (trader >= 0 && killedTraders.compareAndSet(trader, 0, 1)) {
+            fire(Scope.TRADER, trader, reason);
+        }
+    }
+
+    public void killSession(int session, String reason) {
+        if (session >= 0 && killedSessions.compareAndSet(session, 0, 1)) {
+            fire(Scope.SESSION, session, reason);
+        }
+    }
+
+    public synchronized void killAll(String reason) {
+        if (!global) {
+            global = true;
+            fire(Scope.GLOBAL, -1, reason);
+        }
+    }
+
+    private void fire(Scope scope, int index, String reason) {
+        changeActiveKills(1);
+        LOGGER.warning(String.format("Kill switch %s%s: %s", scope,
+                index >= 0 ? " " + index : "", reason));
+        for (Listener listener : listeners) {
+            listener.onKill(scope, index);
+        }
+    }
+
+    public void releaseTrader(int trader) {
+        if (trader >= 0 && killedTraders.compareAndSet(trader, 1, 0)) {
+            rejectCounts.set(trader, 0);
+            rateRejectCounts.set(trader, 0);
+            released(Scope.TRADER, trader);
+        }
+    }
+
+    public void releaseSession(int session) {
+        if (session >= 0 && killedSessions.compareAndSet(session, 1, 0)) {
+            released(Scope.SESSION, session);
+        }
+    }
+
+    public synchronized void releaseAll() {
+        if (global) {
+            global = false;
+            released(Scope.GLOBAL, -1);
+        }
+    }
+
+    private void released(Scope scope, int index) {
+        changeActiveKills(-1);
+        LOGGER.warning(String.format("Kill switch %s%s released", scope, index >= 0 ? " " + index : ""));
+    }
+
+    /** Count a kill or release and recompute the flag in the same critical section. */
+    private void changeActiveKills(int delta) {
+        synchronized (armLock) {
+            activeKills += delta;
+            armed = activeKills > 0;
+        }
+    }
+
+    public boolean isTraderKilled(int trader) {
+        return trader >= 0 && killedTraders.get(trader) != 0;
+    }
+
+    public boolean isSessionKilled(int session) {
+        return session >= 0 && killedSessions.get(session) != 0;
+    }
+
+    public boolean isGlobalKilled() {
+        return global;
+    }
+
+    // ================= AUTOMATIC BREACHES =================
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /** Count a risk reject; kills the trader once the policy's reject limit is reached. */
+    public void recordReject(int trader) {
+        int limit = policy.maxRejects();
+        if (limit > 0 && trader >= 0 && rejectCounts.incrementAndGet(trader) >= limit) {
+            killTrader(trader, "reject count reached " + limit);
+        }
+    }
+
+    /** Count a rate-limit reject; kills the trader once the policy's limit is reached. */
+    public void recordRateReject(int trader) {
+        int limit = policy.maxRateRejects();
+        if (limit > 0 && trader >= 0 && rateRejectCounts.incrementAndGet(trader) >= limit) {
+            killTrader(trader, "rate-limit rejects reached " + limit);
+        }
+    }
+
+    /** Report a trader's current PnL in cents; kills the trader if the loss exceeds the policy. */
+    public void checkLoss(int trader, long pnl) {
+        long limit = policy.maxLoss();
+        if (limit > 0 && trader >= 0 && -pnl > limit && !isTraderKilled(trader)) {
+            killTrader(trader, String.format("loss %.2f exceeds limit %.2f", -pnl / 100.0, limit / 100.0));
+        }
+    }
+
+    /** Clear breach counters (start of day). */
+    public void resetCounters() {
+        for (int i = 0; i < rejectCounts.length(); i++) {
+            rejectCounts.set(i, 0);
+            rateRejectCounts.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.risk;
+
+/**
+ * Source of per-trader loss state for the pre-trade check. Implementations
+ * must answer in O(1) without locking; the risk check calls this for every
+ * order.
+ */
+public interface LossMonitor {
+
+    /** Whether the trader's total PnL is below their loss limit. */
+    boolean isLossLimitBreached(int trader);
+
+    /** Current total (realised + unrealised) PnL of the trader, in cents. */
+    long totalPnl(int trader);
+
+    /** Loss limit in cents, as a positive number; 0 if none. */
+    long lossLimit();
+}
@@ -0,0 +1,193 @@
+package org.example.risk;
+
+import org.example.concurrent.CachedClock;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Orders-per-second and cancels-per-second limits per trader and per session.
+ *
+ * Every bucket is a token bucket kept in its GCRA form: a single long holding
+ * the "theoretical arrival time" of the next message. Admitting a message is
+ * one CAS that pushes it forward by the emission interval; the message is
+ * refused if that would put it more than {@code burst} intervals ahead of now.
+ * No locks, no refill thread, and the time source is {@link CachedClock}.
+ *
+ * Gateways call {@link #tryOrder} and {@link #tryCancel} before handing a
+ * message to the matching engine. A rate of 0 disables that throttle.
+ */
+public class OrderThrottle {
+    public static final int DEFAULT_MAX_SESSIONS = 1024;
+
+    // Arrival time of a bucket with full burst available (nanoTime may be negative)
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final ThrottleConfig traderConfig;
+    private final ThrottleConfig sessionConfig;
+
+    private final AtomicLongArray traderOrders;
+    private final AtomicLongArray traderCancels;
+    private final AtomicLongArray sessionOrders;
+    private final AtomicLongArray sessionCancels;
+
+    // Session slots are recycled, since TCP connections come and go
+    private final int[] freeSessions;
+    private final String[] sessionNames; // guarded by this
+    private int freeCount; // guarded by this
+
+    // Rate-limit rejects count towards the trader's kill-switch policy
+    private final KillSwitch killSwitch;
+
+    public OrderThrottle(int maxTraders, int maxSessions,
+                         ThrottleConfig traderConfig, ThrottleConfig sessionConfig,
+                         KillSwitch killSwitch) {
+        this.killSwitch = killSwitch;
+        this.traderConfig = traderConfig;
+        this.sessionConfig = sessionConfig;
+        this.traderOrders = new AtomicLongArray(maxTraders);
+        this.traderCancels = new AtomicLongArray(maxTraders);
+        this.sessionOrders = new AtomicLongArray(maxSessions);
+        this.sessionCancels = new AtomicLongArray(maxSessions);
+        for (AtomicLongArray buckets : new AtomicLongArray[]{
+                traderOrders, traderCancels, sessionOrders, sessionCancels}) {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, IDLE);
+            }
+        }
+
+        this.freeSessions = new int[maxSessions];
+        this.sessionNames = new String[maxSessions];
+        for (int i = 0; i < maxSessions; i++) {
+            freeSessions[i] = maxSessions - 1 - i;
+        }
+        this.freeCount = maxSessions;
+    }
+
+    // ================= SESSIONS =================
+
+    /**
+     * Allocate a session slot, or -1 if all are in use (the session is then
+     * unthrottled). The name is only used to find the session for admin
+     * actions such as the kill switch.
+     */
+    public synchronized int openSession(String name) {
+        if (freeCount == 0) return -1;
+        int session = freeSessions[--freeCount];
+        sessionOrders.set(session, IDLE);
+        sessionCancels.set(session, IDLE);
+        sessionNames[session] = name;
+        if (killSwitch != null) killSwitch.releaseSession(session); // slot may be reused
+        return session;
+    }
+
+    public synchronized void closeSession(int session) {
+        if (session >= 0) {
+            sessionNames[session] = null;
+            freeSessions[freeCount++] = session;
+        }
+    }
+
+    /** Slot of the open session with this name, or -1. */
+    public synchronized int findSession(String name) {
+        for (int i = 0; i < sessionNames.length; i++) {
+            if (name.equals(sessionNames[i])) return i;
+        }
+        return -1;
+    }
+
+    public synchronized String sessionName(int session) {
+        return session >= 0 ? sessionNames[session] : null;
+    }
+
+    /** Names of the open sessions, indexed by slot (null for free slots). */
+    public synchronized String[] sessionNames() {
+        return sessionNames.clone();
+    }
+
+    // ================= CHECKS =================
+
+    /**
+     * Admit one new order (or replace) for the trader and session.
+     * Indexes below zero are not throttled.
+     */
+    public RiskEngine.RiskCheckResult tryOrder(int trader, int session) {
+        long now = CachedClock.nanoTime();
+        if (session >= 0 && !sessionConfig.admitOrder(sessionOrders, session, now)) {
+            return sessionConfig.orderReject(RiskEngine.RejectCode.SESSION_ORDER_RATE_EXCEEDED);
+        }
+        if (trader >= 0 && !traderConfig.admitOrder(traderOrders, trader, now)) {
+            if (killSwitch != null) killSwitch.recordRateReject(trader);
+            return traderConfig.orderReject(RiskEngine.RejectCode.TRADER_ORDER_RATE_EXCEEDED);
+        }
+        return RiskEngine.RiskCheckResult.approve();
+    }
+
+    /** Admit one cancel for the trader and session. */
+    public RiskEngine.RiskCheckResult tryCancel(int trader, int session) {
+        long now = CachedClock.nanoTime();
+        if (session >= 0 && !sessionConfig.admitCancel(sessionCancels, session, now)) {
+            return sessionConfig.cancelReject(RiskEngine.RejectCode.SESSION_CANCEL_RATE_EXCEEDED);
+        }
+        if (trader >= 0 && !traderConfig.admitCancel(traderCancels, trader, now)) {
+            if (killSwitch != null) killSwitch.recordRateReject(trader);
+            return traderConfig.cancelReject(RiskEngine.RejectCode.TRADER_CANCEL_RATE_EXCEEDED);
+        }
+        return RiskEngine.RiskCheckResult.approve();
+    }
+
+    /**
+     * GCRA admission: one CAS moving the bucket's theoretical arrival time
+     * forward by {@code interval}, refused if it would run more than
+     * {@code burst} intervals ahead of {@code now}.
+     */
+    private static boolean admit(AtomicLongArray buckets, int index, long now,
+                                 long interval, long burstWindow) {
+        while (true) {
+            long tat = buckets.get(index);
+            long next = Math.max(tat, now) + interval;
+            if (next - now > burstWindow) {
+                return false;
+            }
+            if (buckets.compareAndSet(index, tat, next)) {
+                return true;
+            }
+        }
+    }
+
+    public ThrottleConfig getTraderConfig() { return traderConfig; }
+    public ThrottleConfig getSessionConfig() { return sessionConfig; }
+
+    // ================= INNER CLASSES =================
+
+    /**
+     * Rates and bursts for one kind of throttle. A rate of 0 means unlimited.
+     */
+    public record ThrottleConfig(int ordersPerSecond, int orderBurst,
+                                 int cancelsPerSecond, int cancelBurst) {
+
+        boolean admitOrder(AtomicLongArray buckets, int index, long now) {
+            if (ordersPerSecond <= 0) return true;
+            long interval = 1_000_000_000L / ordersPerSecond;
+            return admit(buckets, index, now, interval, interval * Math.max(1, orderBurst));
+        }
+
+        boolean admitCancel(AtomicLongArray buckets, int index, long now) {
+            if (cancelsPerSecond <= 0) return true;
+            long interval = 1_000_000_000L / cancelsPerSecond;
+            return admit(buckets, index, now, interval, interval * Math.max(1, cancelBurst));
+        }
+
+        RiskEngine.RiskCheckResult orderReject(RiskEngine.RejectCode code) {
+            return RiskEngine.RiskCheckResult.reject(code, ordersPerSecond, orderBurst);
+        }
+
+        RiskEngine.RiskCheckResult cancelReject(RiskEngine.RejectCode code) {
+            return RiskEngine.RiskCheckResult.reject(code, cancelsPerSecond, cancelBurst);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("orders %d/s (burst %d), cancels %d/s (burst %d)",
+                    ordersPerSecond, orderBurst, cancelsPerSecond, cancelBurst);
+        }
+    }
+}
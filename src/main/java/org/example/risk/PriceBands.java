@@ -0,0 +1,81 @@
+package org.example.risk;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-instrument price bands in integer ticks (cents).
+ *
+ * Each instrument takes its reference price from one {@link ReferenceSource};
+ * updates from other sources are ignored. Whenever the reference moves, the
+ * lower and upper limits are recomputed and published as one immutable
+ * {@link PriceBand}, so the risk check reads a consistent pair with a single
+ * volatile load and does two integer compares.
+ */
+public class PriceBands {
+    public static final int DEFAULT_BAND_BPS = 500;              // +/- 5%
+    public static final long DEFAULT_REFERENCE_TICKS = 10_000;   // 100.00 until a live price arrives
+
+    /** Where an instrument's reference price comes from. */
+    public enum ReferenceSource { LAST_TRADE, MID, MARKET_DATA }
+
+    private final AtomicReferenceArray<PriceBand> bands;
+    private final AtomicReferenceArray<ReferenceSource> sources;
+    private final AtomicIntegerArray bandBps;
+
+    public PriceBands(int maxInstruments, ReferenceSource defaultSource) {
+        this.bands = new AtomicReferenceArray<>(maxInstruments);
+        this.sources = new AtomicReferenceArray<>(maxInstruments);
+        this.bandBps = new AtomicIntegerArray(maxInstruments);
+        for (int i = 0; i < maxInstruments; i++) {
+            sources.set(i, defaultSource);
+            bandBps.set(i, DEFAULT_BAND_BPS);
+            bands.set(i, PriceBand.of(DEFAULT_REFERENCE_TICKS, DEFAULT_BAND_BPS));
+        }
+    }
+
+    public PriceBand band(int instrument) {
+        return bands.get(instrument);
+    }
+
+    public ReferenceSource source(int instrument) {
+        return sources.get(instrument);
+    }
+
+    /**
+     * Offer a reference price. Applied only if it comes from the instrument's
+     * configured source and differs from the current reference.
+     */
+    public void update(int instrument, ReferenceSource source, long referenceTicks) {
+        if (source != sources.get(instrument) || referenceTicks <= 0) return;
+        if (bands.get(instrument).reference() == referenceTicks) return;
+        bands.set(instrument, PriceBand.of(referenceTicks, bandBps.get(instrument)));
+    }
+
+    /** Set the reference directly, whatever the source (start of day, manual override). */
+    public void setReference(int instrument, long referenceTicks) {
+        bands.set(instrument, PriceBand.of(referenceTicks, bandBps.get(instrument)));
+    }
+
+    public void setSource(int instrument, ReferenceSource source) {
+        sources.set(instrument, source);
+    }
+
+    public void setBandWidth(int instrument, int bps) {
+        bandBps.set(instrument, bps);
+        setReference(instrument, bands.get(instrument).reference());
+    }
+
+    /** Accepted price range [lower, upper] around a reference, all in ticks. */
+    public record PriceBand(long reference, long lower, long upper) {
+        static PriceBand of(long reference, int bps) {
+            long width = reference * bps / 10_000;
+            return new PriceBand(reference, reference - width, reference + width);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.2f [%.2f - %.2f]", reference / 100.0, lower / 100.0, upper / 100.0);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.risk;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Admin HTTP endpoint for the kill switch, bound to the loopback interface.
+ *
+ * <pre>
+ * GET  /kill                      current halts
+ * POST /kill?trader=ID            halt a trader and pull their orders
+ * POST /kill?session=NAME         halt a gateway session (FIX session id or tcp:host:port)
+ * POST /kill?all                  halt everything
+ * POST /release?trader=ID|session=NAME|all
+ * </pre>
+ */
+public class RiskAdminServer implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RiskAdminServer.class.getName());
+    public static final int DEFAULT_PORT = 8090;
+
+    private final RiskEngine riskEngine;
+    private final HttpServer server;
+
+    public RiskAdminServer(RiskEngine riskEngine, int port) throws IOException {
+        this.riskEngine = riskEngine;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/kill", exchange -> handle(exchange, true));
+        server.createContext("/release", exchange -> handle(exchange, false));
+    }
+
+    public void start() {
+        server.start();
+        LOGGER.info("Risk admin listening on " + server.getAddress());
+    }
+
+    private void handle(HttpExchange exchange, boolean kill) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = query(exchange.getRequestURI().getRawQuery());
+
+            if (method.equals("GET") && params.isEmpty()) {
+                respond(exchange, 200, status());
+                return;
+            }
+            if (!method.equals("POST")) {
+                respond(exchange, 405, "Use POST to change the kill switch\n");
+                return;
+            }
+
+            String reason = "admin request from " + exchange.getRemoteAddress();
+            KillSwitch killSwitch = riskEngine.getKillSwitch();
+            if (params.containsKey("all")) {
+                if (kill) killSwitch.killAll(reason); else killSwitch.releaseAll();
+            } else if (params.containsKey("trader")) {
+                String trader = params.get("trader");
+                if (kill) riskEngine.killTrader(trader, reason); else riskEngine.releaseTrader(trader);
+            } else if (params.containsKey("session")) {
+                String session = params.get("session");
+                boolean found = kill ? riskEngine.killSession(session, reason) : riskEngine.releaseSession(session);
+                if (!found) {
+                    respond(exchange, 404, "No open session " + session + "\n");
+                    return;
+                }
+            } else {
+                respond(exchange, 400, "Expected trader=, session= or all\n");
+                return;
+            }
+            respond(exchange, 200, status());
+        }
+    }
+
+    private String status() {
+        return String.format("global=%s%ntraders=%s%nsessions=%s%n",
+                riskEngine.getKillSwitch().isGlobalKilled(),
+                String.join(",", riskEngine.getKilledTraders()),
+                String.join(",", riskEngine.getKilledSessions()));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -1,188 +1,791 @@
 package org.example.risk;
 
 import org.example.Order;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Pre-trade risk checks and exposure tracking.
+ *
+ * Traders and instruments are interned to dense ids. Exposure is kept in a
+ * trader x instrument matrix with one cache line ({@link #CELL_STRIDE} longs)
+ * per cell, plus per-trader aggregates, so every check is O(1) regardless of
+ * how many traders and instruments exist. Quantities are shares, notionals are
+ * price in cents x quantity.
+ *
+ * Gross notional also rolls up a trader -> account -> firm hierarchy, kept as
+ * running totals per account and firm, so credit lines are checked with one
+ * read per level.
+ */
 public class RiskEngine {
-    // Risk limits per trader
-    private final Map<String, RiskLimit> traderLimits = new ConcurrentHashMap<>();
-
-    // Current positions per trader (simplified - in reality per symbol)
-    private final Map<String, AtomicLong> positions = new ConcurrentHashMap<>();
-
-    // Daily volume per trader
-    private final Map<String, AtomicLong> dailyVolume = new ConcurrentHashMap<>();
+    private static final Logger LOGGER = Logger.getLogger(RiskEngine.class.getName());
+
+    public static final int DEFAULT_MAX_TRADERS = 4096;
+    public static final int DEFAULT_MAX_INSTRUMENTS = 64;
+    public static final int DEFAULT_MAX_ACCOUNTS = 1024;
+    public static final int DEFAULT_MAX_FIRMS = 256;
+
+    /** Symbol of instrument index 0, which orders carry unless a book says otherwise. */
+    public static final String DEFAULT_SYMBOL = "TEST";
+
+    // Matrix cell layout, at (trader * maxInstruments + instrument) * CELL_STRIDE
+    private static final int OPEN_BUY = 0;            // qty reserved by open buy orders
+    private static final int OPEN_SELL = 1;           // qty reserved by open sell orders
+    private static final int BOUGHT = 2;              // filled buy qty
+    private static final int SOLD = 3;                // filled sell qty
+    private static final int OPEN_BUY_NOTIONAL = 4;
+    private static final int OPEN_SELL_NOTIONAL = 5;
+    private static final int FILLED_NOTIONAL = 6;     // signed: buys add, sells subtract
+    private static final int CELL_STRIDE = 8;         // 64 bytes
+
+    // Per-trader aggregate layout, at trader * TRADER_STRIDE
+    private static final int DAILY_VOLUME = 0;
+    private static final int GROSS_NOTIONAL = 1;      // sum of |filled| + open notional
+    private static final int NET_NOTIONAL = 2;        // sum of signed filled + open notional
+    private static final int TRADER_STRIDE = 4;
+
+    private final IdRegistry traders;
+    private final IdRegistry instruments;
+    private final IdRegistry accounts;
+    private final IdRegistry firms;
+    private final int maxInstruments;
+
+    // Current limits; replaced wholesale on reload, never modified in place
+    private volatile RiskLimitTable limits;
+
+    private final AtomicLongArray exposure;
+    private final AtomicLongArray traderTotals;
+
+    // Gross notional (filled plus open) rolled up the credit hierarchy, by account and firm id
+    private final AtomicLongArray accountExposure;
+    private final AtomicLongArray firmExposure;
+
+    private final OrderThrottle throttle;
+    private final PriceBands priceBands;
+    private final KillSwitch killSwitch;
+    private volatile LossMonitor lossMonitor; // null until a PnL engine is attached
 
     // Global risk limits
     private static final long MAX_ORDER_QUANTITY = 1_000_000; // 1M shares
-    private static final double MAX_PRICE_DEVIATION = 0.05; // 5%
     private static final long MAX_DAILY_VOLUME = 10_000_000; // 10M shares
     private static final long MAX_POSITION = 100_000; // 100K shares
+    private static final long MAX_INSTRUMENT_NOTIONAL = 1_000_000_000L; // $10M in cents
+    private static final long MAX_GROSS_NOTIONAL = 5_000_000_000L;      // $50M
+    private static final long MAX_NET_NOTIONAL = 2_000_000_000L;        // $20M
+
+    /** Limits for traders without an entry of their own, unless the limits file overrides them. */
+    public static final RiskLimit DEFAULT_LIMIT = new RiskLimit(
+            MAX_POSITION,            // max position per instrument
+            MAX_ORDER_QUANTITY,      // max order size
+            MAX_DAILY_VOLUME,        // daily volume limit
+            MAX_INSTRUMENT_NOTIONAL, // max notional per instrument
+            MAX_GROSS_NOTIONAL,      // max gross notional
+            MAX_NET_NOTIONAL         // max net notional
+    );
+
+    // Default message rate limits
+    public static final OrderThrottle.ThrottleConfig DEFAULT_TRADER_THROTTLE =
+            new OrderThrottle.ThrottleConfig(5_000, 500, 5_000, 500);
+    public static final OrderThrottle.ThrottleConfig DEFAULT_SESSION_THROTTLE =
+            new OrderThrottle.ThrottleConfig(20_000, 2_000, 20_000, 2_000);
 
     public RiskEngine() {
-        // Initialize with default limits for all traders
-        traderLimits.put("DEFAULT", new RiskLimit(
-                MAX_POSITION,        // max position
-                MAX_ORDER_QUANTITY,  // max order size
-                MAX_DAILY_VOLUME     // daily volume limit
-        ));
+        this(DEFAULT_MAX_TRADERS, DEFAULT_MAX_INSTRUMENTS);
+    }
 
-        // Example trader-specific limits
-        traderLimits.put("TRADER1", new RiskLimit(50_000, 500_000, 5_000_000));
-        traderLimits.put("TRADER2", new RiskLimit(200_000, 2_000_000, 20_000_000));
-        traderLimits.put("ASVAL", new RiskLimit(10_000, 100_000, 1_000_000));
-        traderLimits.put("OXFORMED", new RiskLimit(1_000, 10_000, 100_000));
-        traderLimits.put("MOD_TEST", new RiskLimit(1_000, 10_000, 100_000));
-        traderLimits.put("NEWTRADER", new RiskLimit(5_000, 50_000, 500_000));
+    public RiskEngine(int maxTraders, int maxInstruments) {
+        this(maxTraders, maxInstruments, DEFAULT_TRADER_THROTTLE, DEFAULT_SESSION_THROTTLE);
     }
 
+    public RiskEngine(int maxTraders, int maxInstruments,
+                      OrderThrottle.ThrottleConfig traderThrottle,
+                      OrderThrottle.ThrottleConfig sessionThrottle) {
+        this.priceBands = new PriceBands(maxInstruments, PriceBands.ReferenceSource.LAST_TRADE);
+        this.killSwitch = new KillSwitch(maxTraders, OrderThrottle.DEFAULT_MAX_SESSIONS,
+                KillSwitch.Policy.DISABLED);
+        this.throttle = new OrderThrottle(maxTraders, OrderThrottle.DEFAULT_MAX_SESSIONS,
+                traderThrottle, sessionThrottle, killSwitch);
+        this.traders = new IdRegistry(maxTraders);
+        this.instruments = new IdRegistry(maxInstruments);
+        this.accounts = new IdRegistry(DEFAULT_MAX_ACCOUNTS);
+        this.firms = new IdRegistry(DEFAULT_MAX_FIRMS);
+        this.maxInstruments = maxInstruments;
+
+        this.exposure = new AtomicLongArray(maxTraders * maxInstruments * CELL_STRIDE);
+        this.traderTotals = new AtomicLongArray(maxTraders * TRADER_STRIDE);
+        this.accountExposure = new AtomicLongArray(DEFAULT_MAX_ACCOUNTS);
+        this.firmExposure = new AtomicLongArray(DEFAULT_MAX_FIRMS);
+        internInstrument(DEFAULT_SYMBOL);
+
+        // Built-in defaults until a limits file is loaded
+        this.limits = new RiskLimitTable(
+                new RiskLimitConfig(DEFAULT_LIMIT, Map.of(), Map.of()), traders, instruments, accounts, firms);
+    }
+
+    // ================= INTERNING =================
+
     /**
-     * Check if an order passes all risk checks
+     * Return the dense index for a trader, assigning one on first sight.
+     * Gateways call this once per session/account and stamp the index on
+     * their orders, so the hot path never hashes the user id.
+     * Returns -1 if the engine's trader capacity is exhausted.
      */
-    public RiskCheckResult checkOrder(Order order, double marketPrice) {
-        // 1. Fat-finger check - maximum order quantity
-        if (order.getQuantity() > MAX_ORDER_QUANTITY) {
-            return RiskCheckResult.reject(
-                    "EXCEED_MAX_ORDER_SIZE",
-                    String.format("Order quantity %d exceeds maximum limit %d",
-                            order.getQuantity(), MAX_ORDER_QUANTITY)
-            );
+    public int internTrader(String userId) {
+        return traders.intern(userId, index -> {});
+    }
+
+    /**
+     * Return the dense index for an instrument, assigning one on first sight.
+     * Returns -1 if the engine's instrument capacity is exhausted.
+     */
+    public int internInstrument(String symbol) {
+        return instruments.intern(symbol, index -> {});
+    }
+
+    /** Index of a known trader, or -1; never assigns one. */
+    public int lookupTrader(String userId) {
+        return traders.lookup(userId);
+    }
+
+    public int lookupInstrument(String symbol) {
+        return instruments.lookup(symbol);
+    }
+
+    public int getTraderCount() {
+        return traders.size();
+    }
+
+    private int traderIndexOf(Order order) {
+        int index = order.getTraderIndex();
+        if (index < 0) {
+            index = internTrader(order.getUserId());
+            order.setTraderIndex(index);
         }
+        return index;
+    }
 
-        // 2. Price deviation check
-        double orderPrice = order.getPrice() / 100.0; // Convert from cents
-        double priceDeviation = Math.abs(orderPrice - marketPrice) / marketPrice;
+    private int cell(int trader, int instrument) {
+        return (trader * maxInstruments + instrument) * CELL_STRIDE;
+    }
 
-        if (priceDeviation > MAX_PRICE_DEVIATION) {
-            return RiskCheckResult.reject(
-                    "PRICE_DEVIATION_TOO_HIGH",
-                    String.format("Price deviation %.2f%% exceeds maximum %.2f%%",
-                            priceDeviation * 100, MAX_PRICE_DEVIATION * 100)
-            );
+    /**
+     * Check if an order passes all risk checks and, if it does, reserve its
+     * quantity and notional as open exposure. Filled position plus open
+     * exposure must stay within the position limit, so resting orders count and
+     * two concurrent checks cannot both take the last of the headroom. The
+     * quantity reservation is a single CAS; it is released by {@link #onFill}
+     * and {@link #release}.
+     *
+     * Notional limits are checked against a snapshot and reserved after the
+     * CAS; orders of one trader are checked on one thread, so only fills can
+     * move them in between, and fills only make the check conservative.
+     *
+     * A passing check is a handful of array reads and compares and allocates
+     * nothing. Unless a kill switch is active, the kill check is one volatile
+     * read. Rejects count towards the trader's kill-switch policy.
+     */
+    public RiskCheckResult checkOrder(Order order) {
+        // 0. Kill switch - a single volatile read while nothing is killed
+        if (killSwitch.isArmed() && killSwitch.blocks(traderIndexOf(order), order.getSessionIndex())) {
+            return RiskCheckResult.reject(RejectCode.KILL_SWITCH_ACTIVE, 0, 0);
         }
 
-        // 3. Trader-specific limits
-        RiskLimit limit = traderLimits.getOrDefault(order.getUserId(),
-                traderLimits.get("DEFAULT"));
+        RiskCheckResult result = check(order);
+        if (!result.isApproved()) {
+            killSwitch.recordReject(traderIndexOf(order));
+        }
+        return result;
+    }
+
+    /**
+     * Whether a kill switch blocks this order now; for stages that act on an
+     * order after its check passed. One volatile read unless a kill is active.
+     */
+    public boolean isBlocked(Order order) {
+        return killSwitch.isArmed() && killSwitch.blocks(order.getTraderIndex(), order.getSessionIndex());
+    }
+
+    private RiskCheckResult check(Order order) {
+        long quantity = order.getQuantity();
+
+        // 1. Fat-finger check - maximum order quantity
+        if (quantity > MAX_ORDER_QUANTITY) {
+            return RiskCheckResult.reject(RejectCode.EXCEED_MAX_ORDER_SIZE, quantity, MAX_ORDER_QUANTITY);
+        }
+
+        // 2. Price band check - limits precomputed from the instrument's reference price
+        PriceBands.PriceBand band = priceBands.band(order.getInstrumentIndex());
+        long price = order.getPrice();
+        if (price < band.lower()) {
+            return RiskCheckResult.reject(RejectCode.PRICE_OUTSIDE_BAND, price, band.lower());
+        }
+        if (price > band.upper()) {
+            return RiskCheckResult.reject(RejectCode.PRICE_OUTSIDE_BAND, price, band.upper());
+        }
 
-        // 4. Position limit check
-        String positionKey = order.getUserId() + "_" + order.getSide();
-        AtomicLong currentPosition = positions.computeIfAbsent(
-                positionKey, k -> new AtomicLong(0));
+        // 3. Trader-specific limits
+        int trader = traderIndexOf(order);
+        if (trader < 0) {
+            return RiskCheckResult.reject(RejectCode.TRADER_CAPACITY_EXCEEDED,
+                    traders.capacity(), traders.capacity());
+        }
+        // Loss limit, precomputed by the PnL engine
+        LossMonitor lossMonitor = this.lossMonitor;
+        if (lossMonitor != null && lossMonitor.isLossLimitBreached(trader)) {
+            return RiskCheckResult.reject(RejectCode.LOSS_LIMIT_BREACHED,
+                    -lossMonitor.totalPnl(trader), lossMonitor.lossLimit());
+        }
+        int instrument = order.getInstrumentIndex();
+        RiskLimitTable limits = this.limits; // one consistent snapshot for the whole check
 
-        long newPosition = currentPosition.get() + order.getQuantity();
-        if (newPosition > limit.getMaxPosition()) {
-            return RiskCheckResult.reject(
-                    "EXCEED_POSITION_LIMIT",
-                    String.format("New position %d exceeds limit %d",
-                            newPosition, limit.getMaxPosition())
-            );
+        // 4. Order size check (trader-specific)
+        long orderSizeLimit = limits.maxOrderSize(trader);
+        if (quantity > orderSizeLimit) {
+            return RiskCheckResult.reject(RejectCode.EXCEED_TRADER_ORDER_SIZE, quantity, orderSizeLimit);
         }
 
         // 5. Daily volume check
-        String volumeKey = order.getUserId() + "_DAILY";
-        AtomicLong dailyVol = dailyVolume.computeIfAbsent(
-                volumeKey, k -> new AtomicLong(0));
+        int totals = trader * TRADER_STRIDE;
+        long newDailyVolume = traderTotals.get(totals + DAILY_VOLUME) + quantity;
+        long volumeLimit = limits.dailyVolumeLimit(trader);
+        if (newDailyVolume > volumeLimit) {
+            return RiskCheckResult.reject(RejectCode.EXCEED_DAILY_VOLUME, newDailyVolume, volumeLimit);
+        }
+
+        // 6. Notional checks: per instrument, then gross and net across instruments
+        boolean buy = order.getSide() == Order.Side.BUY;
+        int cell = cell(trader, instrument);
+        long notional = order.getPrice() * quantity;
+
+        long filledNotional = exposure.get(cell + FILLED_NOTIONAL);
+        long instrumentNotional = (buy ? filledNotional : -filledNotional) + notional
+                + exposure.get(cell + (buy ? OPEN_BUY_NOTIONAL : OPEN_SELL_NOTIONAL));
+        long instrumentNotionalLimit = Math.min(limits.maxInstrumentNotional(trader),
+                limits.instrumentMaxNotional(instrument));
+        if (instrumentNotional > instrumentNotionalLimit) {
+            return RiskCheckResult.reject(RejectCode.EXCEED_INSTRUMENT_NOTIONAL,
+                    instrumentNotional, instrumentNotionalLimit);
+        }
+
+        long grossNotional = traderTotals.get(totals + GROSS_NOTIONAL) + notional;
+        long grossLimit = limits.maxGrossNotional(trader);
+        if (grossNotional > grossLimit) {
+            return RiskCheckResult.reject(RejectCode.EXCEED_GROSS_NOTIONAL, grossNotional, grossLimit);
+        }
+
+        // Credit lines up the hierarchy: one check per level, whatever the order count
+        int account = limits.accountOf(trader);
+        if (account >= 0) {
+            long accountUsed = accountExposure.get(account) + notional;
+            long accountCredit = limits.accountCredit(account);
+            if (accountUsed > accountCredit) {
+                return RiskCheckResult.reject(RejectCode.EXCEED_ACCOUNT_CREDIT, accountUsed, accountCredit);
+            }
+            int firm = limits.firmOf(account);
+            if (firm >= 0) {
+                long firmUsed = firmExposure.get(firm) + notional;
+                long firmCredit = limits.firmCredit(firm);
+                if (firmUsed > firmCredit) {
+                    return RiskCheckResult.reject(RejectCode.EXCEED_FIRM_CREDIT, firmUsed, firmCredit);
+                }
+            }
+        }
 
-        long newDailyVolume = dailyVol.get() + order.getQuantity();
-        if (newDailyVolume > limit.getDailyVolumeLimit()) {
-            return RiskCheckResult.reject(
-                    "EXCEED_DAILY_VOLUME",
-                    String.format("Daily volume %d exceeds limit %d",
-                            newDailyVolume, limit.getDailyVolumeLimit())
-            );
+        long netNotional = traderTotals.get(totals + NET_NOTIONAL) + (buy ? notional : -notional);
+        long netLimit = limits.maxNetNotional(trader);
+        if (Math.abs(netNotional) > netLimit) {
+            return RiskCheckResult.reject(RejectCode.EXCEED_NET_NOTIONAL, Math.abs(netNotional), netLimit);
         }
 
-        // 6. Order size check (trader-specific)
-        if (order.getQuantity() > limit.getMaxOrderSize()) {
-            return RiskCheckResult.reject(
-                    "EXCEED_TRADER_ORDER_SIZE",
-                    String.format("Order size %d exceeds trader limit %d",
-                            order.getQuantity(), limit.getMaxOrderSize())
-            );
+        // 7. Position limit check and reservation - must stay last, so a
+        //    rejection never leaves anything reserved. Position is net per
+        //    instrument; the worst case is every open order on this side filling.
+        int openSlot = cell + (buy ? OPEN_BUY : OPEN_SELL);
+        long positionLimit = Math.min(limits.maxPosition(trader), limits.instrumentMaxPosition(instrument));
+        long position = netPosition(cell, buy);
+        while (true) {
+            long open = exposure.get(openSlot);
+            long worstCase = position + open + quantity;
+            if (worstCase > positionLimit) {
+                return RiskCheckResult.reject(RejectCode.EXCEED_POSITION_LIMIT, worstCase, positionLimit);
+            }
+            if (exposure.compareAndSet(openSlot, open, open + quantity)) {
+                break;
+            }
+            position = netPosition(cell, buy); // lost a race, re-read both sides
         }
+        reserveNotional(trader, cell, buy, notional);
 
         // All checks passed
         return RiskCheckResult.approve();
     }
 
+    /** Filled net position in the direction of {@code buy} (long for buys, short for sells). */
+    private long netPosition(int cell, boolean buy) {
+        long net = exposure.get(cell + BOUGHT) - exposure.get(cell + SOLD);
+        return buy ? net : -net;
+    }
+
+    private void reserveNotional(int trader, int cell, boolean buy, long notional) {
+        exposure.addAndGet(cell + (buy ? OPEN_BUY_NOTIONAL : OPEN_SELL_NOTIONAL), notional);
+        addGross(trader, notional);
+        traderTotals.addAndGet(trader * TRADER_STRIDE + NET_NOTIONAL, buy ? notional : -notional);
+    }
+
+    /** Apply a gross notional change to the trader and to their account and firm. */
+    private void addGross(int trader, long delta) {
+        traderTotals.addAndGet(trader * TRADER_STRIDE + GROSS_NOTIONAL, delta);
+        RiskLimitTable limits = this.limits;
+        int account = limits.accountOf(trader);
+        if (account >= 0) {
+            accountExposure.addAndGet(account, delta);
+            int firm = limits.firmOf(account);
+            if (firm >= 0) {
+                firmExposure.addAndGet(firm, delta);
+            }
+        }
+    }
+
     /**
-     * Update position after a trade
+     * Reserve an order's exposure without checking it, for orders that were
+     * already approved elsewhere (replication standby).
      */
-    public void updatePosition(String traderId, Order.Side side, long quantity) {
-        String key = traderId + "_" + side;
-        positions.computeIfAbsent(key, k -> new AtomicLong(0))
-                .addAndGet(quantity);
+    public void reserve(Order order) {
+        int trader = traderIndexOf(order);
+        if (trader < 0) return;
+        boolean buy = order.getSide() == Order.Side.BUY;
+        int cell = cell(trader, order.getInstrumentIndex());
+        exposure.addAndGet(cell + (buy ? OPEN_BUY : OPEN_SELL), order.getQuantity());
+        reserveNotional(trader, cell, buy, order.getPrice() * order.getQuantity());
+    }
+
+    /**
+     * Move filled quantity from open exposure to position. The reservation was
+     * made at the order's limit price and the fill happens at {@code tradePrice},
+     * so notional aggregates are adjusted by the difference. Position is added
+     * before the reservation is dropped, so a concurrent check can only
+     * over-count exposure, never under-count it.
+     */
+    public void onFill(Order order, long tradePrice, long quantity) {
+        int trader = order.getTraderIndex();
+        if (trader < 0) return;
+        boolean buy = order.getSide() == Order.Side.BUY;
+        int cell = cell(trader, order.getInstrumentIndex());
+
+        exposure.addAndGet(cell + (buy ? BOUGHT : SOLD), quantity);
+        exposure.addAndGet(cell + (buy ? OPEN_BUY : OPEN_SELL), -quantity);
+
+        long reserved = order.getPrice() * quantity;
+        long filled = tradePrice * quantity;
+        exposure.addAndGet(cell + (buy ? OPEN_BUY_NOTIONAL : OPEN_SELL_NOTIONAL), -reserved);
+        long before = exposure.getAndAdd(cell + FILLED_NOTIONAL, buy ? filled : -filled);
+        long after = before + (buy ? filled : -filled);
+
+        int totals = trader * TRADER_STRIDE;
+        addGross(trader, Math.abs(after) - Math.abs(before) - reserved);
+        traderTotals.addAndGet(totals + NET_NOTIONAL, buy ? filled - reserved : reserved - filled);
 
         // Also update daily volume
-        String volumeKey = traderId + "_DAILY";
-        dailyVolume.computeIfAbsent(volumeKey, k -> new AtomicLong(0))
-                .addAndGet(quantity);
+        traderTotals.addAndGet(totals + DAILY_VOLUME, quantity);
+    }
+
+    /**
+     * Release the unfilled remainder of an order that left the book without
+     * trading (cancel, replace, expiry).
+     */
+    public void release(Order order) {
+        int trader = order.getTraderIndex();
+        if (trader < 0) return;
+        boolean buy = order.getSide() == Order.Side.BUY;
+        int cell = cell(trader, order.getInstrumentIndex());
+        exposure.addAndGet(cell + (buy ? OPEN_BUY : OPEN_SELL), -order.getQuantity());
+        reserveNotional(trader, cell, buy, -order.getPrice() * order.getQuantity());
     }
 
     /**
      * Reset daily volumes (call this at start of trading day)
      */
     public void resetDailyVolumes() {
-        dailyVolume.clear();
+        for (int i = 0; i < traderTotals.length(); i += TRADER_STRIDE) {
+            traderTotals.set(i + DAILY_VOLUME, 0);
+        }
+        killSwitch.resetCounters();
         System.out.println("[RiskEngine] Daily volumes reset");
     }
 
     /**
-     * Get current position for a trader
+     * Get filled quantity for a trader and side, summed over instruments
      */
     public long getPosition(String traderId, Order.Side side) {
-        String key = traderId + "_" + side;
-        AtomicLong position = positions.get(key);
-        return position != null ? position.get() : 0;
+        return sumOverInstruments(traderId, side == Order.Side.BUY ? BOUGHT : SOLD);
+    }
+
+    /**
+     * Get exposure reserved by a trader's open orders, summed over instruments
+     */
+    public long getOpenExposure(String traderId, Order.Side side) {
+        return sumOverInstruments(traderId, side == Order.Side.BUY ? OPEN_BUY : OPEN_SELL);
+    }
+
+    /**
+     * Get filled net position (bought - sold) of a trader in one instrument
+     */
+    public long getNetPosition(String traderId, String symbol) {
+        int trader = traders.lookup(traderId);
+        int instrument = instruments.lookup(symbol);
+        if (trader < 0 || instrument < 0) return 0;
+        return netPosition(cell(trader, instrument), true);
+    }
+
+    private long sumOverInstruments(String traderId, int field) {
+        int trader = traders.lookup(traderId);
+        if (trader < 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < instruments.size(); i++) {
+            sum += exposure.get(cell(trader, i) + field);
+        }
+        return sum;
     }
 
     /**
      * Get daily volume for a trader
      */
     public long getDailyVolume(String traderId) {
-        String key = traderId + "_DAILY";
-        AtomicLong volume = dailyVolume.get(key);
-        return volume != null ? volume.get() : 0;
+        return traderTotal(traderId, DAILY_VOLUME);
+    }
+
+    /**
+     * Get gross notional (filled plus open, all instruments) for a trader, in cents
+     */
+    public long getGrossNotional(String traderId) {
+        return traderTotal(traderId, GROSS_NOTIONAL);
+    }
+
+    /**
+     * Get net notional (filled plus open, all instruments) for a trader, in cents
+     */
+    public long getNetNotional(String traderId) {
+        return traderTotal(traderId, NET_NOTIONAL);
+    }
+
+    private long traderTotal(String traderId, int field) {
+        int trader = traders.lookup(traderId);
+        return trader >= 0 ? traderTotals.get(trader * TRADER_STRIDE + field) : 0;
+    }
+
+    // ================= LIMIT CONFIGURATION =================
+
+    /**
+     * Load limits from a file and swap them in. Checks in flight keep the table
+     * they started with; the next check sees the new one. On a parse error the
+     * current limits stay in force and the exception is rethrown.
+     */
+    public void loadLimits(Path file) throws IOException {
+        RiskLimitConfig config = RiskLimitConfig.load(file, DEFAULT_LIMIT);
+        swapLimits(config);
+        LOGGER.info(String.format("Loaded risk limits from %s: %d traders, %d instruments",
+                file, config.traderLimits().size(), config.instrumentLimits().size()));
     }
 
     /**
      * Add or update trader limits
      */
     public void setTraderLimit(String traderId, RiskLimit limit) {
-        traderLimits.put(traderId, limit);
-        System.out.printf("[RiskEngine] Set limits for %s: %s%n", traderId, limit);
+        synchronized (this) {
+            swapLimits(limits.config().withTraderLimit(traderId, limit));
+        }
+        LOGGER.info(String.format("Set limits for %s: %s", traderId, limit));
     }
 
+    /**
+     * Cap position and notional in one instrument for every trader
+     */
+    public void setInstrumentLimit(String symbol, long maxPosition, long maxNotional) {
+        synchronized (this) {
+            InstrumentLimit current = limits.config().instrumentLimits().get(symbol);
+            long tickSize = current != null ? current.tickSize() : InstrumentLimit.DEFAULT_TICK_SIZE;
+            swapLimits(limits.config().withInstrumentLimit(symbol,
+                    new InstrumentLimit(maxPosition, maxNotional, tickSize)));
+        }
+        LOGGER.info(String.format("Set limits for instrument %s: Pos: %d, Notional: %d",
+                symbol, maxPosition, maxNotional));
+    }
+
+    // Builders are serialized so concurrent updates cannot drop each other
+    private synchronized void swapLimits(RiskLimitConfig config) {
+        RiskLimitTable previous = limits;
+        limits = new RiskLimitTable(config, traders, instruments, accounts, firms);
+        if (!previous.config().sameHierarchy(config)) {
+            rebuildCreditExposure();
+        }
+    }
+
+    /**
+     * Re-derive account and firm totals from the per-trader totals after the
+     * hierarchy changed. Only runs on reload; changes made by checks racing
+     * with it may be counted against the old parent until the next rebuild.
+     */
+    private void rebuildCreditExposure() {
+        RiskLimitTable limits = this.limits;
+        long[] byAccount = new long[accountExposure.length()];
+        long[] byFirm = new long[firmExposure.length()];
+        for (int t = 0; t < traders.size(); t++) {
+            int account = limits.accountOf(t);
+            if (account < 0) continue;
+            long gross = traderTotals.get(t * TRADER_STRIDE + GROSS_NOTIONAL);
+            byAccount[account] += gross;
+            int firm = limits.firmOf(account);
+            if (firm >= 0) byFirm[firm] += gross;
+        }
+        for (int a = 0; a < byAccount.length; a++) accountExposure.set(a, byAccount[a]);
+        for (int f = 0; f < byFirm.length; f++) firmExposure.set(f, byFirm[f]);
+    }
 
+    public RiskLimit getTraderLimit(String traderId) {
+        return limits.config().limitFor(traderId);
+    }
+
+    // ================= CREDIT HIERARCHY =================
+
+    /** Account a trader's exposure counts against, or null. */
+    public String getAccountOf(String traderId) {
+        return limits.config().traderAccounts().get(traderId);
+    }
+
+    /** Gross notional (filled plus open) of all the account's traders, in cents */
+    public long getAccountExposure(String account) {
+        int index = accounts.lookup(account);
+        return index >= 0 ? accountExposure.get(index) : 0;
+    }
+
+    /** Gross notional (filled plus open) of all the firm's accounts, in cents */
+    public long getFirmExposure(String firm) {
+        int index = firms.lookup(firm);
+        return index >= 0 ? firmExposure.get(index) : 0;
+    }
+
+    public AccountLimit getAccountLimit(String account) {
+        return limits.config().accountLimits().get(account);
+    }
+
+    public Long getFirmLimit(String firm) {
+        return limits.config().firmLimits().get(firm);
+    }
+
+    /**
+     * Minimum price increment of an instrument, in cents
+     */
+    public long getTickSize(int instrument) {
+        return limits.tickSize(instrument);
+    }
+
+    // ================= PRICE BANDS =================
+
+    /**
+     * Offer a new reference price for an instrument, in ticks. Only the
+     * instrument's configured source moves its band.
+     */
+    public void updateReferencePrice(int instrument, PriceBands.ReferenceSource source, long ticks) {
+        priceBands.update(instrument, source, ticks);
+    }
+
+    public PriceBands.ReferenceSource getReferenceSource(int instrument) {
+        return priceBands.source(instrument);
+    }
+
+    public void setReferenceSource(String symbol, PriceBands.ReferenceSource source) {
+        int index = internInstrument(symbol);
+        if (index >= 0) priceBands.setSource(index, source);
+    }
+
+    public void setReferencePrice(String symbol, long ticks) {
+        int index = internInstrument(symbol);
+        if (index >= 0) priceBands.setReference(index, ticks);
+    }
+
+    public void setPriceBandWidth(String symbol, int bps) {
+        int index = internInstrument(symbol);
+        if (index >= 0) priceBands.setBandWidth(index, bps);
+    }
+
+    public PriceBands.PriceBand getPriceBand(String symbol) {
+        int index = instruments.lookup(symbol);
+        return index >= 0 ? priceBands.band(index) : null;
+    }
+
+    /**
+     * Message rate limits, checked by the gateways before an order or cancel
+     * reaches the book.
+     */
+    public OrderThrottle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Attach the PnL source whose loss limit the check enforces; traders below
+     * it can only reduce risk through cancels.
+     */
+    public void setLossMonitor(LossMonitor lossMonitor) {
+        this.lossMonitor = lossMonitor;
+    }
+
+    /**
+     * Trading halts per trader, session and globally. Books register as
+     * listeners to pull resting orders when a kill fires.
+     */
+    public KillSwitch getKillSwitch() {
+        return killSwitch;
+    }
+
+    /** Halt a trader by name and pull their resting orders. */
+    public void killTrader(String traderId, String reason) {
+        killSwitch.killTrader(internTrader(traderId), traderId + " - " + reason);
+    }
+
+    public void releaseTrader(String traderId) {
+        killSwitch.releaseTrader(traders.lookup(traderId));
+    }
+
+    public boolean isTraderKilled(String traderId) {
+        return killSwitch.isTraderKilled(traders.lookup(traderId));
+    }
+
+    /** Halt an open session by its gateway name. Returns false if no such session is open. */
+    public boolean killSession(String sessionName, String reason) {
+        int session = throttle.findSession(sessionName);
+        killSwitch.killSession(session, reason);
+        return session >= 0;
+    }
+
+    public boolean releaseSession(String sessionName) {
+        int session = throttle.findSession(sessionName);
+        killSwitch.releaseSession(session);
+        return session >= 0;
+    }
+
+    /** Names of the traders currently halted. */
+    public List<String> getKilledTraders() {
+        List<String> killed = new ArrayList<>();
+        for (int t = 0; t < traders.size(); t++) {
+            if (killSwitch.isTraderKilled(t)) killed.add(traders.name(t));
+        }
+        return killed;
+    }
+
+    /** Names of the open sessions currently halted. */
+    public List<String> getKilledSessions() {
+        List<String> killed = new ArrayList<>();
+        String[] names = throttle.sessionNames();
+        for (int s = 0; s < names.length; s++) {
+            if (names[s] != null && killSwitch.isSessionKilled(s)) killed.add(names[s]);
+        }
+        return killed;
+    }
+
+    public String getTraderName(int traderIndex) {
+        return traders.name(traderIndex);
+    }
+
+    public String getInstrumentName(int instrumentIndex) {
+        return instruments.name(instrumentIndex);
+    }
 
     // ================= INNER CLASSES =================
 
     /**
-     * Risk limits for a trader
+     * Risk limits for a trader. Notionals are in cents.
      */
     public static class RiskLimit {
-        private final long maxPosition;        // Maximum position size
-        private final long maxOrderSize;       // Maximum single order size
-        private final long dailyVolumeLimit;   // Maximum daily trading volume
+        private final long maxPosition;           // Maximum net position per instrument
+        private final long maxOrderSize;          // Maximum single order size
+        private final long dailyVolumeLimit;      // Maximum daily trading volume
+        private final long maxInstrumentNotional; // Maximum notional per instrument
+        private final long maxGrossNotional;      // Maximum gross notional, all instruments
+        private final long maxNetNotional;        // Maximum |net notional|, all instruments
 
         public RiskLimit(long maxPosition, long maxOrderSize, long dailyVolumeLimit) {
+            this(maxPosition, maxOrderSize, dailyVolumeLimit,
+                    Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        }
+
+        public RiskLimit(long maxPosition, long maxOrderSize, long dailyVolumeLimit,
+                         long maxInstrumentNotional, long maxGrossNotional, long maxNetNotional) {
             this.maxPosition = maxPosition;
             this.maxOrderSize = maxOrderSize;
             this.dailyVolumeLimit = dailyVolumeLimit;
+            this.maxInstrumentNotional = maxInstrumentNotional;
+            this.maxGrossNotional = maxGrossNotional;
+            this.maxNetNotional = maxNetNotional;
         }
 
         // Getters
         public long getMaxPosition() { return maxPosition; }
         public long getMaxOrderSize() { return maxOrderSize; }
         public long getDailyVolumeLimit() { return dailyVolumeLimit; }
+        public long getMaxInstrumentNotional() { return maxInstrumentNotional; }
+        public long getMaxGrossNotional() { return maxGrossNotional; }
+        public long getMaxNetNotional() { return maxNetNotional; }
 
         @Override
         public String toString() {
-            return String.format("Pos: %d, Order: %d, Daily: %d",
-                    maxPosition, maxOrderSize, dailyVolumeLimit);
+            return String.format("Pos: %d, Order: %d, Daily: %d, Notional: %d, Gross: %d, Net: %d",
+                    maxPosition, maxOrderSize, dailyVolumeLimit,
+                    maxInstrumentNotional, maxGrossNotional, maxNetNotional);
+        }
+    }
+
+    /**
+     * Position and notional caps for one instrument, applied to every trader,
+     * and the instrument's tick size in cents
+     */
+    public record InstrumentLimit(long maxPosition, long maxNotional, long tickSize) {
+        public static final long DEFAULT_TICK_SIZE = 1;
+
+        public InstrumentLimit(long maxPosition, long maxNotional) {
+            this(maxPosition, maxNotional, DEFAULT_TICK_SIZE);
+        }
+    }
+
+    /**
+     * Credit line of an account, in cents, and the firm it rolls up to (null for none)
+     */
+    public record AccountLimit(String firm, long credit) {}
+
+    /**
+     * Reject reasons. The message is only formatted when someone asks for it.
+     */
+    public enum RejectCode {
+        EXCEED_MAX_ORDER_SIZE("Order quantity %d exceeds maximum limit %d"),
+        PRICE_OUTSIDE_BAND("Price %d is outside the price band (limit %d)"),
+        EXCEED_POSITION_LIMIT("Position plus open exposure %d exceeds limit %d"),
+        EXCEED_DAILY_VOLUME("Daily volume %d exceeds limit %d"),
+        EXCEED_TRADER_ORDER_SIZE("Order size %d exceeds trader limit %d"),
+        EXCEED_INSTRUMENT_NOTIONAL("Instrument notional %d exceeds limit %d"),
+        EXCEED_GROSS_NOTIONAL("Gross notional %d exceeds limit %d"),
+        EXCEED_NET_NOTIONAL("Net notional %d exceeds limit %d"),
+        TRADER_CAPACITY_EXCEEDED("Trader count %d reached engine capacity %d"),
+        TRADER_ORDER_RATE_EXCEEDED("Trader order rate exceeds %d/s (burst %d)"),
+        TRADER_CANCEL_RATE_EXCEEDED("Trader cancel rate exceeds %d/s (burst %d)"),
+        SESSION_ORDER_RATE_EXCEEDED("Session order rate exceeds %d/s (burst %d)"),
+        SESSION_CANCEL_RATE_EXCEEDED("Session cancel rate exceeds %d/s (burst %d)"),
+        KILL_SWITCH_ACTIVE("Trading halted by kill switch"),
+        LOSS_LIMIT_BREACHED("Loss %d exceeds loss limit %d"),
+        EXCEED_ACCOUNT_CREDIT("Account exposure %d exceeds credit line %d"),
+        EXCEED_FIRM_CREDIT("Firm exposure %d exceeds credit line %d");
+
+        private final String template;
+
+        RejectCode(String template) {
+            this.template = template;
+        }
+
+        public String describe(long value, long limit) {
+            return String.format(template, value, limit);
         }
     }
 
@@ -190,36 +793,47 @@ public class RiskEngine {
      * Result of a risk check
      */
     public static class RiskCheckResult {
-        private final boolean approved;
-        private final String rejectCode;
-        private final String rejectReason;
+        private static final RiskCheckResult APPROVED = new RiskCheckResult(null, 0, 0);
 
-        public RiskCheckResult(boolean approved, String rejectCode, String rejectReason) {
-            this.approved = approved;
-            this.rejectCode = rejectCode;
-            this.rejectReason = rejectReason;
+        private final RejectCode code;
+        private final long value;
+        private final long limit;
+        private String rejectReason; // formatted lazily
+
+        private RiskCheckResult(RejectCode code, long value, long limit) {
+            this.code = code;
+            this.value = value;
+            this.limit = limit;
         }
 
         public static RiskCheckResult approve() {
-            return new RiskCheckResult(true, null, null);
+            return APPROVED;
         }
 
-        public static RiskCheckResult reject(String code, String reason) {
-            return new RiskCheckResult(false, code, reason);
+        public static RiskCheckResult reject(RejectCode code, long value, long limit) {
+            return new RiskCheckResult(code, value, limit);
         }
 
         // Getters
-        public boolean isApproved() { return approved; }
-        public String getRejectCode() { return rejectCode; }
-        public String getRejectReason() { return rejectReason; }
+        public boolean isApproved() { return code == null; }
+        public RejectCode getCode() { return code; }
+        public String getRejectCode() { return code != null ? code.name() : null; }
+
+        public String getRejectReason() {
+            if (code == null) return null;
+            if (rejectReason == null) {
+                rejectReason = code.describe(value, limit);
+            }
+            return rejectReason;
+        }
 
         @Override
         public String toString() {
-            if (approved) {
+            if (isApproved()) {
                 return "APPROVED";
             } else {
-                return String.format("REJECTED [%s]: %s", rejectCode, rejectReason);
+                return String.format("REJECTED [%s]: %s", getRejectCode(), getRejectReason());
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,192 @@
+package org.example.risk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Risk limits as written in a limits file, keyed by name.
+ *
+ * File format (properties syntax, notionals in cents):
+ * <pre>
+ * # maxPosition, maxOrderSize, dailyVolume[, instrumentNotional, grossNotional, netNotional]
+ * trader.DEFAULT = 100000, 1000000, 10000000, 1000000000, 5000000000, 2000000000
+ * trader.TRADER1 = 50000, 500000, 5000000
+ * # maxPosition, maxNotional[, tickSize]
+ * instrument.TEST = 500000, 5000000000, 1
+ * # credit lines: firm.<id> = credit; account.<id> = firm, credit
+ * firm.FIRM1 = 10000000000
+ * account.ACC1 = FIRM1, 5000000000
+ * trader.TRADER1.account = ACC1
+ * </pre>
+ * {@code trader.DEFAULT} applies to every trader without an entry of its own;
+ * omitted notional limits are unlimited. An account's firm may be omitted
+ * ({@code account.ACC2 = , 100000}) for an account with no parent.
+ */
+public record RiskLimitConfig(RiskEngine.RiskLimit defaultLimit,
+                              Map<String, RiskEngine.RiskLimit> traderLimits,
+                              Map<String, RiskEngine.InstrumentLimit> instrumentLimits,
+                              Map<String, String> traderAccounts,
+                              Map<String, RiskEngine.AccountLimit> accountLimits,
+                              Map<String, Long> firmLimits) {
+
+    public static final String DEFAULT_FILE = "risk-limits.cfg";
+    private static final String DEFAULT_TRADER = "DEFAULT";
+    private static final String ACCOUNT_SUFFIX = ".account";
+
+    public RiskLimitConfig {
+        traderLimits = Collections.unmodifiableMap(new LinkedHashMap<>(traderLimits));
+        instrumentLimits = Collections.unmodifiableMap(new LinkedHashMap<>(instrumentLimits));
+        traderAccounts = Collections.unmodifiableMap(new LinkedHashMap<>(traderAccounts));
+        accountLimits = Collections.unmodifiableMap(new LinkedHashMap<>(accountLimits));
+        firmLimits = Collections.unmodifiableMap(new LinkedHashMap<>(firmLimits));
+    }
+
+    /** Limits without an account hierarchy. */
+    public RiskLimitConfig(RiskEngine.RiskLimit defaultLimit,
+                           Map<String, RiskEngine.RiskLimit> traderLimits,
+                           Map<String, RiskEngine.InstrumentLimit> instrumentLimits) {
+        this(defaultLimit, traderLimits, instrumentLimits, Map.of(), Map.of(), Map.of());
+    }
+
+    public RiskLimitConfig withTraderLimit(String traderId, RiskEngine.RiskLimit limit) {
+        Map<String, RiskEngine.RiskLimit> traders = new LinkedHashMap<>(traderLimits);
+        traders.put(traderId, limit);
+        return new RiskLimitConfig(defaultLimit, traders, instrumentLimits,
+                traderAccounts, accountLimits, firmLimits);
+    }
+
+    public RiskLimitConfig withInstrumentLimit(String symbol, RiskEngine.InstrumentLimit limit) {
+        Map<String, RiskEngine.InstrumentLimit> instruments = new LinkedHashMap<>(instrumentLimits);
+        instruments.put(symbol, limit);
+        return new RiskLimitConfig(defaultLimit, traderLimits, instruments,
+                traderAccounts, accountLimits, firmLimits);
+    }
+
+    /** Same trader-to-account-to-firm structure (limits may differ). */
+    boolean sameHierarchy(RiskLimitConfig other) {
+        if (!traderAccounts.equals(other.traderAccounts)) return false;
+        if (!accountLimits.keySet().equals(other.accountLimits.keySet())) return false;
+        for (Map.Entry<String, RiskEngine.AccountLimit> e : accountLimits.entrySet()) {
+            if (!Objects.equals(e.getValue().firm(), other.accountLimits.get(e.getKey()).firm())) return false;
+        }
+        return true;
+    }
+
+    public RiskEngine.RiskLimit limitFor(String traderId) {
+        return traderLimits.getOrDefault(traderId, defaultLimit);
+    }
+
+    /**
+     * Parse a limits file. Any malformed entry fails the whole load, so a bad
+     * edit can never be half-applied.
+     */
+    public static RiskLimitConfig load(Path file, RiskEngine.RiskLimit fallbackDefault) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+
+        RiskEngine.RiskLimit defaultLimit = fallbackDefault;
+        Map<String, RiskEngine.RiskLimit> traders = new LinkedHashMap<>();
+        Map<String, RiskEngine.InstrumentLimit> instruments = new LinkedHashMap<>();
+        Map<String, String> traderAccounts = new LinkedHashMap<>();
+        Map<String, RiskEngine.AccountLimit> accounts = new LinkedHashMap<>();
+        Map<String, Long> firms = new LinkedHashMap<>();
+
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (key.startsWith("trader.") && key.endsWith(ACCOUNT_SUFFIX)) {
+                if (value.isEmpty()) {
+                    throw new IOException(key + ": expected an account id");
+                }
+                traderAccounts.put(key.substring("trader.".length(), key.length() - ACCOUNT_SUFFIX.length()), value);
+                continue;
+            }
+            if (key.startsWith("account.")) {
+                int comma = value.indexOf(',');
+                if (comma < 0) {
+                    throw new IOException(key + ": expected firm, credit");
+                }
+                String firm = value.substring(0, comma).trim();
+                long[] credit = parseValues(key, value.substring(comma + 1));
+                if (credit.length != 1) {
+                    throw new IOException(key + ": expected firm, credit");
+                }
+                accounts.put(key.substring("account.".length()),
+                        new RiskEngine.AccountLimit(firm.isEmpty() ? null : firm, credit[0]));
+                continue;
+            }
+
+            long[] values = parseValues(key, value);
+            if (key.startsWith("trader.")) {
+                RiskEngine.RiskLimit limit = traderLimit(key, values);
+                String traderId = key.substring("trader.".length());
+                if (traderId.equals(DEFAULT_TRADER)) {
+                    defaultLimit = limit;
+                } else {
+                    traders.put(traderId, limit);
+                }
+            } else if (key.startsWith("instrument.")) {
+                if (values.length != 2 && values.length != 3) {
+                    throw new IOException(key + ": expected maxPosition, maxNotional[, tickSize]");
+                }
+                if (values.length == 3 && values[2] <= 0) {
+                    throw new IOException(key + ": tick size must be positive");
+                }
+                instruments.put(key.substring("instrument.".length()), values.length == 3
+                        ? new RiskEngine.InstrumentLimit(values[0], values[1], values[2])
+                        : new RiskEngine.InstrumentLimit(values[0], values[1]));
+            } else if (key.startsWith("firm.")) {
+                if (values.length != 1) {
+                    throw new IOException(key + ": expected credit");
+                }
+                firms.put(key.substring("firm.".length()), values[0]);
+            } else {
+                throw new IOException("Unknown key " + key
+                        + " (expected trader.*, instrument.*, account.* or firm.*)");
+            }
+        }
+        for (Map.Entry<String, String> e : traderAccounts.entrySet()) {
+            if (!accounts.containsKey(e.getValue())) {
+                throw new IOException("trader." + e.getKey() + ACCOUNT_SUFFIX + ": unknown account " + e.getValue());
+            }
+        }
+        for (Map.Entry<String, RiskEngine.AccountLimit> e : accounts.entrySet()) {
+            String firm = e.getValue().firm();
+            if (firm != null && !firms.containsKey(firm)) {
+                throw new IOException("account." + e.getKey() + ": unknown firm " + firm);
+            }
+        }
+        return new RiskLimitConfig(defaultLimit, traders, instruments, traderAccounts, accounts, firms);
+    }
+
+    private static RiskEngine.RiskLimit traderLimit(String key, long[] v) throws IOException {
+        if (v.length == 3) {
+            return new RiskEngine.RiskLimit(v[0], v[1], v[2]);
+        }
+        if (v.length == 6) {
+            return new RiskEngine.RiskLimit(v[0], v[1], v[2], v[3], v[4], v[5]);
+        }
+        throw new IOException(key + ": expected 3 or 6 values, got " + v.length);
+    }
+
+    private static long[] parseValues(String key, String value) throws IOException {
+        String[] parts = value.split(",");
+        long[] values = new long[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Long.parseLong(parts[i].trim().replace("_", ""));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(key + ": " + e.getMessage());
+        }
+        return values;
+    }
+}
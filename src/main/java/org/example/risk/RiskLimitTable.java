@@ -0,0 +1,117 @@
+package org.example.risk;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable, id-indexed snapshot of a {@link RiskLimitConfig}. Every trader
+ * and instrument slot up to capacity is filled (with the defaults where the
+ * config has no entry), so traders that appear after the table was built are
+ * covered without touching it. The engine publishes tables through a volatile
+ * reference; a check reads the reference once and sees one consistent table.
+ */
+final class RiskLimitTable {
+    private static final int MAX_POSITION = 0;
+    private static final int MAX_ORDER_SIZE = 1;
+    private static final int DAILY_VOLUME = 2;
+    private static final int INSTRUMENT_NOTIONAL = 3;
+    private static final int GROSS_NOTIONAL = 4;
+    private static final int NET_NOTIONAL = 5;
+    private static final int TRADER_STRIDE = 6;
+
+    private final RiskLimitConfig config;
+    private final long[] traderValues;
+    private final long[] instrumentPosition;
+    private final long[] instrumentNotional;
+    private final long[] instrumentTickSize;
+
+    // Credit hierarchy: trader -> account -> firm, -1 where there is no parent
+    private final int[] traderAccount;
+    private final int[] accountFirm;
+    private final long[] accountCredit;
+    private final long[] firmCredit;
+
+    /**
+     * Compile {@code config} against the engine's registries, interning every
+     * name it mentions so each has a slot.
+     */
+    RiskLimitTable(RiskLimitConfig config, IdRegistry traders, IdRegistry instruments,
+                   IdRegistry accounts, IdRegistry firms) {
+        this.config = config;
+        this.traderValues = new long[traders.capacity() * TRADER_STRIDE];
+        this.instrumentPosition = new long[instruments.capacity()];
+        this.instrumentNotional = new long[instruments.capacity()];
+        this.instrumentTickSize = new long[instruments.capacity()];
+
+        for (int t = 0; t < traders.capacity(); t++) {
+            put(t, config.defaultLimit());
+        }
+        for (Map.Entry<String, RiskEngine.RiskLimit> e : config.traderLimits().entrySet()) {
+            int t = traders.intern(e.getKey(), id -> {});
+            if (t >= 0) put(t, e.getValue());
+        }
+
+        Arrays.fill(instrumentPosition, Long.MAX_VALUE);
+        Arrays.fill(instrumentNotional, Long.MAX_VALUE);
+        Arrays.fill(instrumentTickSize, RiskEngine.InstrumentLimit.DEFAULT_TICK_SIZE);
+        for (Map.Entry<String, RiskEngine.InstrumentLimit> e : config.instrumentLimits().entrySet()) {
+            int i = instruments.intern(e.getKey(), id -> {});
+            if (i >= 0) {
+                instrumentPosition[i] = e.getValue().maxPosition();
+                instrumentNotional[i] = e.getValue().maxNotional();
+                instrumentTickSize[i] = e.getValue().tickSize();
+            }
+        }
+
+        this.traderAccount = new int[traders.capacity()];
+        this.accountFirm = new int[accounts.capacity()];
+        this.accountCredit = new long[accounts.capacity()];
+        this.firmCredit = new long[firms.capacity()];
+        Arrays.fill(traderAccount, -1);
+        Arrays.fill(accountFirm, -1);
+        Arrays.fill(accountCredit, Long.MAX_VALUE);
+        Arrays.fill(firmCredit, Long.MAX_VALUE);
+        for (Map.Entry<String, Long> e : config.firmLimits().entrySet()) {
+            int f = firms.intern(e.getKey(), id -> {});
+            if (f >= 0) firmCredit[f] = e.getValue();
+        }
+        for (Map.Entry<String, RiskEngine.AccountLimit> e : config.accountLimits().entrySet()) {
+            int a = accounts.intern(e.getKey(), id -> {});
+            if (a < 0) continue;
+            accountCredit[a] = e.getValue().credit();
+            accountFirm[a] = e.getValue().firm() != null ? firms.lookup(e.getValue().firm()) : -1;
+        }
+        for (Map.Entry<String, String> e : config.traderAccounts().entrySet()) {
+            int t = traders.intern(e.getKey(), id -> {});
+            if (t >= 0) traderAccount[t] = accounts.lookup(e.getValue());
+        }
+    }
+
+    private void put(int trader, RiskEngine.RiskLimit limit) {
+        int base = trader * TRADER_STRIDE;
+        traderValues[base + MAX_POSITION] = limit.getMaxPosition();
+        traderValues[base + MAX_ORDER_SIZE] = limit.getMaxOrderSize();
+        traderValues[base + DAILY_VOLUME] = limit.getDailyVolumeLimit();
+        traderValues[base + INSTRUMENT_NOTIONAL] = limit.getMaxInstrumentNotional();
+        traderValues[base + GROSS_NOTIONAL] = limit.getMaxGrossNotional();
+        traderValues[base + NET_NOTIONAL] = limit.getMaxNetNotional();
+    }
+
+    RiskLimitConfig config() { return config; }
+
+    long maxPosition(int trader) { return traderValues[trader * TRADER_STRIDE + MAX_POSITION]; }
+    long maxOrderSize(int trader) { return traderValues[trader * TRADER_STRIDE + MAX_ORDER_SIZE]; }
+    long dailyVolumeLimit(int trader) { return traderValues[trader * TRADER_STRIDE + DAILY_VOLUME]; }
+    long maxInstrumentNotional(int trader) { return traderValues[trader * TRADER_STRIDE + INSTRUMENT_NOTIONAL]; }
+    long maxGrossNotional(int trader) { return traderValues[trader * TRADER_STRIDE + GROSS_NOTIONAL]; }
+    long maxNetNotional(int trader) { return traderValues[trader * TRADER_STRIDE + NET_NOTIONAL]; }
+
+    long instrumentMaxPosition(int instrument) { return instrumentPosition[instrument]; }
+    long instrumentMaxNotional(int instrument) { return instrumentNotional[instrument]; }
+    long tickSize(int instrument) { return instrumentTickSize[instrument]; }
+
+    int accountOf(int trader) { return traderAccount[trader]; }
+    int firmOf(int account) { return accountFirm[account]; }
+    long accountCredit(int account) { return accountCredit[account]; }
+    long firmCredit(int firm) { return firmCredit[firm]; }
+}
@@ -0,0 +1,89 @@
+package org.example.risk;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reloads a {@link RiskEngine}'s limits whenever the limits file changes.
+ * Editors often write a file in several steps, so a change is only applied
+ * after the directory has been quiet for {@link #SETTLE_MILLIS}.
+ */
+public class RiskLimitWatcher implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(RiskLimitWatcher.class.getName());
+    private static final long SETTLE_MILLIS = 200;
+
+    private final RiskEngine riskEngine;
+    private final Path file;
+    private final WatchService watchService;
+
+    public RiskLimitWatcher(RiskEngine riskEngine, Path file) throws IOException {
+        this.riskEngine = riskEngine;
+        this.file = file.toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    public void start() {
+        Thread watcher = new Thread(this::watchLoop, "RiskLimit-Watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = touchesFile(key);
+                key.reset();
+
+                // Let the write settle, absorbing any further events for it
+                while (changed) {
+                    WatchKey more = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                    if (more == null) break;
+                    more.pollEvents();
+                    more.reset();
+                }
+
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private boolean touchesFile(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (context instanceof Path name && name.equals(file.getFileName())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            riskEngine.loadLimits(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Keeping current risk limits, reload of " + file + " failed", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
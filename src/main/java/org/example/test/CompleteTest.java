@@ -3,6 +3,7 @@ package org.example.test;
 import org.example.EnhancedOrderBook;
 import org.example.fix.FixGateway;
 import org.example.risk.RiskEngine;
+import org.example.risk.RiskLimitConfig;
 import org.example.marketdata.HybridMarketDataProducer;
 import org.example.marketdata.MarketDataSnapshot;
 import quickfix.*;
@@ -11,6 +12,7 @@ import quickfix.fix44.NewOrderSingle;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 
 public class CompleteTest {
@@ -40,6 +42,7 @@ public class CompleteTest {
         // Step 1: Start FIX Gateway
         System.out.println("1. Starting FIX Gateway...");
         RiskEngine riskEngine = new RiskEngine();
+        riskEngine.loadLimits(Path.of(RiskLimitConfig.DEFAULT_FILE)); // per-trader limits used below
         EnhancedOrderBook orderBook = new EnhancedOrderBook(
                 trade -> System.out.printf("[ORDER BOOK] Trade: %,d @ $%.2f%n",
                         trade.quantity(), trade.price() / 100.0),
@@ -0,0 +1,66 @@
+package org.example.test;
+
+import org.example.fix.FixDecimal;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import quickfix.FieldNotFound;
+import quickfix.field.OrderQty;
+import quickfix.field.Price;
+import quickfix.fix44.NewOrderSingle;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price/quantity decoding of a NewOrderSingle: the old double + BigDecimal
+ * path against {@link FixDecimal} on the raw field text.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, warmups = 1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FixDecimalBenchmark {
+
+    private NewOrderSingle order;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        order = new NewOrderSingle();
+        order.setString(Price.FIELD, "101.25");
+        order.setString(OrderQty.FIELD, "1500");
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) throws FieldNotFound {
+        double price = order.getPrice().getValue();
+        double orderQty = order.getOrderQty().getValue();
+        BigDecimal priceBD = BigDecimal.valueOf(price);
+        BigDecimal quantityBD = BigDecimal.valueOf(orderQty);
+
+        blackhole.consume(priceBD.multiply(BigDecimal.valueOf(100)).longValue());
+        blackhole.consume(quantityBD.longValue());
+    }
+
+    @Benchmark
+    public void fixedPoint(Blackhole blackhole) throws FieldNotFound {
+        blackhole.consume(FixDecimal.parsePrice(order.getString(Price.FIELD), 1));
+        blackhole.consume(FixDecimal.parseQuantity(order.getString(OrderQty.FIELD)));
+    }
+
+    // ================= MAIN METHOD =================
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FixDecimalBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.test;
+
+import org.example.fix.FixDecimal;
+import org.example.fix.FixFastPath;
+import org.example.fix.FixOrderCommand;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
+import quickfix.FieldNotFound;
+import quickfix.InvalidMessage;
+import quickfix.field.Account;
+import quickfix.field.ClOrdID;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.OrdType;
+import quickfix.field.OrderQty;
+import quickfix.field.Price;
+import quickfix.field.SenderCompID;
+import quickfix.field.SendingTime;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.field.TargetCompID;
+import quickfix.field.TransactTime;
+import quickfix.fix44.NewOrderSingle;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a NewOrderSingle: QuickFIX/J's parse and validation against the
+ * fast path's single pass over the message text. Sample mode reports the
+ * latency percentiles of both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, warmups = 1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FixFastPathBenchmark {
+
+    private String text;
+    private DataDictionary dictionary;
+    private final FixOrderCommand command = new FixOrderCommand();
+
+    @Setup(Level.Trial)
+    public void setup() throws ConfigError {
+        NewOrderSingle order = new NewOrderSingle(new ClOrdID("ORD-000001"), new Side(Side.BUY),
+                new TransactTime(LocalDateTime.now()), new OrdType(OrdType.LIMIT));
+        order.getHeader().setString(SenderCompID.FIELD, "CLIENT");
+        order.getHeader().setString(TargetCompID.FIELD, "EXCHANGE");
+        order.getHeader().setInt(MsgSeqNum.FIELD, 1234);
+        order.getHeader().setString(SendingTime.FIELD, "20240102-09:30:00.000");
+        order.set(new Account("TRADER1"));
+        order.set(new Symbol("TEST"));
+        order.setString(Price.FIELD, "101.25");
+        order.setString(OrderQty.FIELD, "1500");
+        text = order.toString();
+        dictionary = new DataDictionary("FIX44.xml");
+    }
+
+    @Benchmark
+    public void quickFix(Blackhole blackhole) throws InvalidMessage, FieldNotFound {
+        NewOrderSingle order = new NewOrderSingle();
+        order.fromString(text, dictionary, true);
+        blackhole.consume(order.getClOrdID().getValue());
+        blackhole.consume(order.getSide().getValue());
+        blackhole.consume(FixDecimal.parsePrice(order.getString(Price.FIELD), 1));
+        blackhole.consume(FixDecimal.parseQuantity(order.getString(OrderQty.FIELD)));
+    }
+
+    @Benchmark
+    public void fastPath(Blackhole blackhole) {
+        blackhole.consume(FixFastPath.decode(text, command));
+        blackhole.consume(command.getClOrdId());
+        blackhole.consume(command.getSide());
+        blackhole.consume(FixDecimal.parsePrice(command.getPriceText(), 1));
+        blackhole.consume(FixDecimal.parseQuantity(command.getQuantityText()));
+    }
+
+    // ================= MAIN METHOD =================
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FixFastPathBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
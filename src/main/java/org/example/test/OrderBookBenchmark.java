@@ -31,12 +31,12 @@ public class OrderBookBenchmark {
         // 1. Create a Dummy Risk Engine that always approves
         RiskEngine dummyRisk = new RiskEngine() {
             @Override
-            public RiskCheckResult checkOrder(Order order, double marketPrice) {
+            public RiskCheckResult checkOrder(Order order) {
                 return RiskCheckResult.approve();
             }
 
             @Override
-            public void updatePosition(String traderId, Order.Side side, long quantity) {
+            public void onFill(Order order, long tradePrice, long quantity) {
                 // Do nothing for benchmark
             }
         };
@@ -0,0 +1,496 @@
+package org.example.tradestore;
+
+import org.example.Trade;
+import org.example.TradeListener;
+import org.example.concurrent.SpscRing;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only columnar store of executed trades.
+ *
+ * Each field lives in its own file (timestamp, price, qty, buyer, seller, buy
+ * and sell order ids) so a query reads only the columns it needs. Rows are
+ * grouped into fixed-size blocks; a sparse time index (min/max timestamp per
+ * block) and a per-trader bitmap of blocks let queries skip every block that
+ * cannot match. Trader names are interned to int ids in {@code traders.dict}.
+ *
+ * {@link #onTrade} runs on the matching thread and only copies the trade into
+ * a pre-allocated ring; a dedicated writer thread appends to the column files.
+ * If the writer stops (an I/O error), trades are dropped and counted so the
+ * matching thread never waits on a ring nobody drains.
+ * Indexes are rebuilt from the buyer/seller/timestamp columns on open.
+ */
+public class TradeStore implements TradeListener, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(TradeStore.class.getName());
+
+    public static final int BLOCK_ROWS = 4096;
+
+    private static final int RING_CAPACITY = 1 << 15;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = 100_000;
+
+    private final Path directory;
+    private final SpscRing<Slot> ring = new SpscRing<>(RING_CAPACITY, Slot::new);
+
+    private final Column timestamps;
+    private final Column prices;
+    private final Column quantities;
+    private final Column buyers;
+    private final Column sellers;
+    private final Column buyOrderIds;
+    private final Column sellOrderIds;
+    private final Column[] columns;
+
+    private final TraderDictionary traders;
+    private final BlockIndex index = new BlockIndex();
+
+    // Rows flushed to the column files and visible to queries
+    private volatile long committedRows;
+    private long writtenRows; // writer thread only
+
+    private final AtomicLong backpressureStalls = new AtomicLong();
+    private final AtomicLong droppedTrades = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean stopped; // writer thread has exited
+    private final Thread writerThread;
+
+    public TradeStore(String directory) throws IOException {
+        this.directory = Path.of(directory);
+        Files.createDirectories(this.directory);
+
+        timestamps = new Column(this.directory, "timestamp.col", Long.BYTES);
+        prices = new Column(this.directory, "price.col", Long.BYTES);
+        quantities = new Column(this.directory, "qty.col", Long.BYTES);
+        buyers = new Column(this.directory, "buyer.col", Integer.BYTES);
+        sellers = new Column(this.directory, "seller.col", Integer.BYTES);
+        buyOrderIds = new Column(this.directory, "buy_order_id.col", Long.BYTES);
+        sellOrderIds = new Column(this.directory, "sell_order_id.col", Long.BYTES);
+        columns = new Column[]{timestamps, prices, quantities, buyers, sellers, buyOrderIds, sellOrderIds};
+
+        traders = new TraderDictionary(this.directory.resolve("traders.dict"));
+        recover();
+
+        writerThread = new Thread(this::runWriter, "TradeStore-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // ================= MATCHING THREAD =================
+
+    /**
+     * Copy the trade into the ring. Called by the order book under its lock,
+     * so there is a single producer at a time.
+     */
+    @Override
+    public void onTrade(Trade trade) {
+        if (stopped) {
+            droppedTrades.incrementAndGet();
+            return;
+        }
+        Slot slot = ring.claim();
+        if (slot == null) {
+            backpressureStalls.incrementAndGet();
+            while ((slot = ring.claim()) == null) {
+                if (stopped) {
+                    droppedTrades.incrementAndGet();
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        slot.timestamp = trade.timestamp();
+        slot.price = trade.price();
+        slot.quantity = trade.quantity();
+        slot.buyer = trade.buyUserId();
+        slot.seller = trade.sellUserId();
+        slot.buyOrderId = trade.buyOrderId();
+        slot.sellOrderId = trade.sellOrderId();
+        ring.publish();
+    }
+
+    // ================= WRITER THREAD =================
+
+    private void runWriter() {
+        try {
+            while (running || ring.size() > 0) {
+                int drained = ring.drain(this::appendRow, MAX_BATCH);
+                if (drained == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (Column column : columns) {
+                    column.out.flush();
+                }
+                committedRows = writtenRows;
+            }
+        } catch (UncheckedIOException | IOException e) {
+            LOGGER.log(Level.SEVERE, "Trade store writer stopped, further trades are dropped", e);
+        } finally {
+            stopped = true;
+        }
+    }
+
+    private void appendRow(Slot slot) {
+        try {
+            int buyerId = traders.intern(slot.buyer);
+            int sellerId = traders.intern(slot.seller);
+
+            timestamps.out.writeLong(slot.timestamp);
+            prices.out.writeLong(slot.price);
+            quantities.out.writeLong(slot.quantity);
+            buyers.out.writeInt(buyerId);
+            sellers.out.writeInt(sellerId);
+            buyOrderIds.out.writeLong(slot.buyOrderId);
+            sellOrderIds.out.writeLong(slot.sellOrderId);
+
+            index.addRow(writtenRows, slot.timestamp, buyerId, sellerId);
+            writtenRows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Bring columns to a common row count (a crash can leave them ragged),
+     * then rebuild the time and trader indexes from the stored columns.
+     */
+    private void recover() throws IOException {
+        long rows = Long.MAX_VALUE;
+        for (Column column : columns) {
+            rows = Math.min(rows, column.storedRows());
+        }
+        for (Column column : columns) {
+            column.open(rows);
+        }
+
+        for (long first = 0; first < rows; first += BLOCK_ROWS) {
+            int count = (int) Math.min(BLOCK_ROWS, rows - first);
+            ByteBuffer ts = timestamps.read(first, count);
+            ByteBuffer buy = buyers.read(first, count);
+            ByteBuffer sell = sellers.read(first, count);
+            for (int i = 0; i < count; i++) {
+                index.addRow(first + i, ts.getLong(i * Long.BYTES),
+                        buy.getInt(i * Integer.BYTES), sell.getInt(i * Integer.BYTES));
+            }
+        }
+
+        writtenRows = rows;
+        committedRows = rows;
+        if (rows > 0) {
+            System.out.printf("[TradeStore] Recovered %,d trades in %,d blocks from %s%n",
+                    rows, index.blockCount(), directory);
+        }
+    }
+
+    // ================= QUERIES =================
+
+    /**
+     * All fills where {@code trader} was buyer or seller, with timestamps in
+     * {@code [fromMillis, toMillis]}. Only blocks that overlap the window and
+     * contain the trader are read, and the price/qty/id columns only for blocks
+     * with at least one match.
+     */
+    public List<StoredTrade> findTrades(String trader, long fromMillis, long toMillis) throws IOException {
+        List<StoredTrade> result = new ArrayList<>();
+        int traderId = traders.lookup(trader);
+        if (traderId < 0) return result;
+
+        long committed = committedRows;
+        BitSet blocks = index.candidateBlocks(fromMillis, toMillis, traderId);
+        int[] matches = new int[BLOCK_ROWS];
+
+        for (int b = blocks.nextSetBit(0); b >= 0; b = blocks.nextSetBit(b + 1)) {
+            long first = (long) b * BLOCK_ROWS;
+            int rows = (int) Math.min(BLOCK_ROWS, committed - first);
+            if (rows <= 0) break;
+
+            ByteBuffer ts = timestamps.read(first, rows);
+            ByteBuffer buy = buyers.read(first, rows);
+            ByteBuffer sell = sellers.read(first, rows);
+
+            int matched = 0;
+            for (int i = 0; i < rows; i++) {
+                long t = ts.getLong(i * Long.BYTES);
+                if (t < fromMillis || t > toMillis) continue;
+                if (buy.getInt(i * Integer.BYTES) == traderId || sell.getInt(i * Integer.BYTES) == traderId) {
+                    matches[matched++] = i;
+                }
+            }
+            if (matched == 0) continue;
+
+            ByteBuffer px = prices.read(first, rows);
+            ByteBuffer qty = quantities.read(first, rows);
+            ByteBuffer buyIds = buyOrderIds.read(first, rows);
+            ByteBuffer sellIds = sellOrderIds.read(first, rows);
+            for (int m = 0; m < matched; m++) {
+                int i = matches[m];
+                result.add(new StoredTrade(
+                        ts.getLong(i * Long.BYTES),
+                        buyIds.getLong(i * Long.BYTES),
+                        sellIds.getLong(i * Long.BYTES),
+                        px.getLong(i * Long.BYTES),
+                        qty.getLong(i * Long.BYTES),
+                        traders.name(buy.getInt(i * Integer.BYTES)),
+                        traders.name(sell.getInt(i * Integer.BYTES))));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Volume-weighted average price of all trades in {@code [fromMillis, toMillis]}.
+     * Blocks entirely inside the window are aggregated from the price and qty
+     * columns alone; only boundary blocks read timestamps.
+     */
+    public VwapResult vwap(long fromMillis, long toMillis) throws IOException {
+        long committed = committedRows;
+        BitSet blocks = index.candidateBlocks(fromMillis, toMillis, -1);
+        long volume = 0;
+        long notional = 0;
+        long tradeCount = 0;
+
+        for (int b = blocks.nextSetBit(0); b >= 0; b = blocks.nextSetBit(b + 1)) {
+            long first = (long) b * BLOCK_ROWS;
+            int rows = (int) Math.min(BLOCK_ROWS, committed - first);
+            if (rows <= 0) break;
+
+            ByteBuffer px = prices.read(first, rows);
+            ByteBuffer qty = quantities.read(first, rows);
+            ByteBuffer ts = index.blockWithin(b, fromMillis, toMillis) ? null : timestamps.read(first, rows);
+
+            for (int i = 0; i < rows; i++) {
+                if (ts != null) {
+                    long t = ts.getLong(i * Long.BYTES);
+                    if (t < fromMillis || t > toMillis) continue;
+                }
+                long q = qty.getLong(i * Long.BYTES);
+                volume += q;
+                notional += px.getLong(i * Long.BYTES) * q;
+                tradeCount++;
+            }
+        }
+        return new VwapResult(tradeCount, volume, notional);
+    }
+
+    public TradeStoreMetrics getMetrics() {
+        return new TradeStoreMetrics(committedRows, index.blockCount(), traders.size(),
+                ring.size(), backpressureStalls.get(), droppedTrades.get());
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Column column : columns) {
+            column.close();
+        }
+        traders.close();
+    }
+
+    // ================= INNER CLASSES =================
+
+    /** Mutable ring slot holding a copy of one trade. */
+    private static final class Slot {
+        long timestamp;
+        long price;
+        long quantity;
+        String buyer;
+        String seller;
+        long buyOrderId;
+        long sellOrderId;
+    }
+
+    /** One fixed-width column file: buffered appends, positional block reads. */
+    private static final class Column {
+        private final Path path;
+        private final int width;
+        private DataOutputStream out;
+        private FileChannel reader;
+
+        Column(Path directory, String name, int width) {
+            this.path = directory.resolve(name);
+            this.width = width;
+        }
+
+        long storedRows() {
+            return path.toFile().length() / width;
+        }
+
+        void open(long rows) throws IOException {
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.truncate(rows * width);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(path.toFile(), true), 1 << 16));
+            reader = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        ByteBuffer read(long firstRow, int rows) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(rows * width);
+            long position = firstRow * width;
+            while (buffer.hasRemaining()) {
+                if (reader.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Short read in " + path);
+                }
+            }
+            return buffer.flip();
+        }
+
+        void close() throws IOException {
+            out.close();
+            reader.close();
+        }
+    }
+
+    /** Trader name to dense int id, appended to a dictionary file on first sight. */
+    private static final class TraderDictionary {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final Writer out;
+
+        TraderDictionary(Path path) throws IOException {
+            if (Files.exists(path)) {
+                for (String name : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    register(name);
+                }
+            }
+            out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        /** Writer thread only. */
+        int intern(String name) throws IOException {
+            if (name == null) name = "";
+            Integer id = ids.get(name);
+            if (id != null) return id;
+
+            int newId = register(name);
+            out.write(name);
+            out.write('\n');
+            out.flush();
+            return newId;
+        }
+
+        private synchronized int register(String name) {
+            int id = names.size();
+            names.add(name);
+            ids.put(name, id);
+            return id;
+        }
+
+        int lookup(String name) {
+            return ids.getOrDefault(name, -1);
+        }
+
+        synchronized String name(int id) {
+            return names.get(id);
+        }
+
+        synchronized int size() {
+            return names.size();
+        }
+
+        void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /** Sparse time index and per-trader block bitmaps. */
+    private static final class BlockIndex {
+        private long[] minTimestamp = new long[64];
+        private long[] maxTimestamp = new long[64];
+        private int blocks;
+        private final List<BitSet> traderBlocks = new ArrayList<>();
+
+        synchronized void addRow(long row, long timestamp, int buyerId, int sellerId) {
+            int block = (int) (row / BLOCK_ROWS);
+            if (block >= blocks) {
+                if (block >= minTimestamp.length) {
+                    minTimestamp = Arrays.copyOf(minTimestamp, minTimestamp.length * 2);
+                    maxTimestamp = Arrays.copyOf(maxTimestamp, maxTimestamp.length * 2);
+                }
+                minTimestamp[block] = timestamp;
+                maxTimestamp[block] = timestamp;
+                blocks = block + 1;
+            } else {
+                minTimestamp[block] = Math.min(minTimestamp[block], timestamp);
+                maxTimestamp[block] = Math.max(maxTimestamp[block], timestamp);
+            }
+            blocksOf(buyerId).set(block);
+            blocksOf(sellerId).set(block);
+        }
+
+        private BitSet blocksOf(int traderId) {
+            while (traderBlocks.size() <= traderId) {
+                traderBlocks.add(new BitSet());
+            }
+            return traderBlocks.get(traderId);
+        }
+
+        /** Blocks overlapping the window, restricted to a trader's blocks when traderId >= 0. */
+        synchronized BitSet candidateBlocks(long from, long to, int traderId) {
+            BitSet result = new BitSet(blocks);
+            for (int b = 0; b < blocks; b++) {
+                if (maxTimestamp[b] >= from && minTimestamp[b] <= to) {
+                    result.set(b);
+                }
+            }
+            if (traderId >= 0) {
+                result.and(traderId < traderBlocks.size() ? traderBlocks.get(traderId) : new BitSet());
+            }
+            return result;
+        }
+
+        synchronized boolean blockWithin(int block, long from, long to) {
+            return minTimestamp[block] >= from && maxTimestamp[block] <= to;
+        }
+
+        synchronized int blockCount() {
+            return blocks;
+        }
+    }
+
+    public record StoredTrade(long timestamp, long buyOrderId, long sellOrderId,
+                              long price, long quantity, String buyer, String seller) {
+    }
+
+    public record VwapResult(long tradeCount, long volume, long notional) {
+        /** VWAP in price units (cents), or 0 when nothing traded. */
+        public double getVwap() {
+            return volume > 0 ? (double) notional / volume : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("VWAP ₹%.4f over %,d trades, volume %,d",
+                    getVwap() / 100.0, tradeCount, volume);
+        }
+    }
+
+    public record TradeStoreMetrics(long rows, int blocks, int traders, int depth,
+                                    long backpressureStalls, long dropped) {
+        @Override
+        public String toString() {
+            return String.format("Trade store: %,d trades, %,d blocks, %,d traders, depth %d, " +
+                    "backpressure stalls %d, dropped %d", rows, blocks, traders, depth, backpressureStalls, dropped);
+        }
+    }
+}